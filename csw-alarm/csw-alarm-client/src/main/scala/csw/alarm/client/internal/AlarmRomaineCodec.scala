@@ -13,21 +13,22 @@ import romaine.codec.RomaineCodec
 import romaine.codec.RomaineCodec.stringCodec
 
 private[client] object AlarmRomaineCodec extends AlarmCodecs {
+  def keyCodec[K](from: K => String, to: String => K): RomaineCodec[K] = RomaineCodec.interning(stringCodec.bimap(from, to))
+
   def viaJsonCodec[A: Codec]: RomaineCodec[A] =
     stringCodec.bimap[A](
       x => Json.encode(x).toUtf8String,
       x => Json.decode(x.getBytes()).to[A].value
     )
 
-  // Key Codecs
-  implicit val metadataKeyRomaineCodec: RomaineCodec[MetadataKey]         = stringCodec.bimap(_.value, MetadataKey.apply)
-  implicit val ackStatusKeyRomaineCodec: RomaineCodec[AckStatusKey]       = stringCodec.bimap(_.value, AckStatusKey.apply)
-  implicit val alarmTimeKeyRomaineCodec: RomaineCodec[AlarmTimeKey]       = stringCodec.bimap(_.value, AlarmTimeKey.apply)
-  implicit val shelveStatusKeyRomaineCodec: RomaineCodec[ShelveStatusKey] = stringCodec.bimap(_.value, ShelveStatusKey.apply)
-  implicit val latchedSeverityKeyRomaineCodec: RomaineCodec[LatchedSeverityKey] =
-    stringCodec.bimap(_.value, LatchedSeverityKey.apply)
-  implicit val severityKeyRomaineCodec: RomaineCodec[SeverityKey]  = stringCodec.bimap(_.value, SeverityKey.apply)
-  implicit val initializingKeyCodec: RomaineCodec[InitializingKey] = stringCodec.bimap(_.value, InitializingKey.apply)
+  // Key Codecs, each key is encoded and decoded once, see RomaineCodec.interning
+  implicit val metadataKeyRomaineCodec: RomaineCodec[MetadataKey]               = keyCodec(_.value, MetadataKey.apply)
+  implicit val ackStatusKeyRomaineCodec: RomaineCodec[AckStatusKey]             = keyCodec(_.value, AckStatusKey.apply)
+  implicit val alarmTimeKeyRomaineCodec: RomaineCodec[AlarmTimeKey]             = keyCodec(_.value, AlarmTimeKey.apply)
+  implicit val shelveStatusKeyRomaineCodec: RomaineCodec[ShelveStatusKey]       = keyCodec(_.value, ShelveStatusKey.apply)
+  implicit val latchedSeverityKeyRomaineCodec: RomaineCodec[LatchedSeverityKey] = keyCodec(_.value, LatchedSeverityKey.apply)
+  implicit val severityKeyRomaineCodec: RomaineCodec[SeverityKey]               = keyCodec(_.value, SeverityKey.apply)
+  implicit val initializingKeyCodec: RomaineCodec[InitializingKey]              = keyCodec(_.value, InitializingKey.apply)
 
   // value codecs
   implicit val metadataRomaineCodec: RomaineCodec[AlarmMetadata] = viaJsonCodec
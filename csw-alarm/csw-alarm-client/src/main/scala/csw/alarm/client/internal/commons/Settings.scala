@@ -19,4 +19,8 @@ private[alarm] class Settings(config: Config) {
   val shelveTimeout: String           = alarmConfig.getString("shelve-timeout")
   val severityTTLInSeconds: Long      = refreshInterval.toSeconds * maxMissedRefreshCounts
 
+  val severityBatchWindow: FiniteDuration = alarmConfig.getDuration("severity-watch.batch-window").toScala
+  val severityMaxBatchKeys: Int           = alarmConfig.getInt("severity-watch.max-batch-keys")
+  val severityClientTracking: Boolean     = alarmConfig.getBoolean("severity-watch.client-tracking")
+
 }
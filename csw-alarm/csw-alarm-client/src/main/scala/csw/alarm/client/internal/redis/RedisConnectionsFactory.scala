@@ -5,6 +5,7 @@
 
 package csw.alarm.client.internal.redis
 
+import org.apache.pekko.stream.Materializer
 import csw.alarm.api.internal.*
 import csw.alarm.models.*
 import csw.alarm.client.internal.commons.serviceresolver.AlarmServiceResolver
@@ -13,10 +14,10 @@ import io.lettuce.core.RedisURI
 import romaine.RomaineFactory
 import romaine.async.RedisAsyncApi
 import romaine.codec.RomaineCodec
-import romaine.keyspace.RedisKeySpaceApi
+import romaine.keyspace.{RedisKeySpaceApi, RedisKeyTrackingApi}
 import romaine.reactive.RedisSubscriptionApi
 
-import scala.concurrent.ExecutionContext
+import scala.concurrent.{ExecutionContext, Future}
 
 private[client] class RedisConnectionsFactory(
     alarmServiceResolver: AlarmServiceResolver,
@@ -35,11 +36,21 @@ private[client] class RedisConnectionsFactory(
   lazy val shelveStatusApi: RedisAsyncApi[ShelveStatusKey, ShelveStatus]            = asyncApi
   lazy val initializingApi: RedisAsyncApi[InitializingKey, Boolean]                 = asyncApi
 
+  /**
+   * Metadata keys of the alarms matching the given key. These are found with SCAN, so that redis keeps serving other clients
+   * however many alarms it holds. A key which SCAN returns more than once is kept once.
+   */
+  def metadataKeys(key: Key)(implicit mat: Materializer): Future[List[MetadataKey]] =
+    metadataApi.scan(key).runFold(Set.empty[MetadataKey])(_ + _).map(_.toList)
+
   def asyncApi[K: RomaineCodec, V: RomaineCodec]: RedisAsyncApi[K, V] = romaineFactory.redisAsyncApi[K, V](redisURI)
 
   def subscriptionApi[K: RomaineCodec, V: RomaineCodec]: RedisSubscriptionApi[K, V] =
     romaineFactory.redisSubscriptionApi[K, V](redisURI)
 
+  def keyTrackingApi[K: RomaineCodec, V: RomaineCodec]: RedisKeyTrackingApi[K, V] =
+    romaineFactory.redisKeyTrackingApi[K, V](redisURI)
+
   def redisKeySpaceApi[K: RomaineCodec, V: RomaineCodec](asyncApi: RedisAsyncApi[K, V]): RedisKeySpaceApi[K, V] =
     new RedisKeySpaceApi(subscriptionApi, asyncApi)
 
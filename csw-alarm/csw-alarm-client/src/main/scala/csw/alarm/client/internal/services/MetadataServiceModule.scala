@@ -6,6 +6,7 @@
 package csw.alarm.client.internal.services
 
 import org.apache.pekko.Done
+import org.apache.pekko.actor.typed
 import com.typesafe.config.Config
 import csw.alarm.api.exceptions.KeyNotFoundException
 import csw.alarm.api.internal.{AlarmMetadataSet, MetadataKey, MetadataService, StatusService}
@@ -24,6 +25,7 @@ private[client] trait MetadataServiceModule extends MetadataService {
   self: StatusService =>
 
   val redisConnectionsFactory: RedisConnectionsFactory
+  implicit val actorSystem: typed.ActorSystem[?]
   import redisConnectionsFactory._
 
   private val log = AlarmServiceLogger.getLogger
@@ -57,7 +59,7 @@ private[client] trait MetadataServiceModule extends MetadataService {
     async {
       log.debug(s"Getting metadata for alarms matching [${key.value}]")
 
-      val metadataKeys = await(metadataApi.keys(key))
+      val metadataKeys = await(redisConnectionsFactory.metadataKeys(key))
       if (metadataKeys.isEmpty) logAndThrow(KeyNotFoundException(key))
       await(metadataApi.mget(metadataKeys)).collect { case RedisResult(_, Some(metadata)) => metadata }
     }
@@ -21,6 +21,7 @@ import csw.alarm.models.{AlarmSeverity, FullAlarmSeverity, Key}
 import reactor.core.publisher.FluxSink.OverflowStrategy
 import romaine.RedisResult
 import romaine.extensions.SourceExtensions.RichSource
+import romaine.keyspace.RedisKeySpaceApi
 import romaine.reactive.RedisSubscription
 
 import cps.compat.FutureAsync.*
@@ -105,8 +106,7 @@ private[client] trait SeverityServiceModule extends SeverityService {
       val activeSeverityKeys: List[SeverityKey] = metadataKeys.map(a => SeverityKey.fromAlarmKey(a))
       val currentSeverities = await(severityApi.mget(activeSeverityKeys)).map(result => result.key -> result.value).toMap
 
-      keySpaceApi
-        .watchKeyspaceValue(activeSeverityKeys, OverflowStrategy.LATEST)
+      watchSeverities(key, activeSeverityKeys, keySpaceApi)
         .scan(currentSeverities) { case (data, RedisResult(severityKey, mayBeSeverity)) =>
           data + (severityKey -> mayBeSeverity)
         }
@@ -124,9 +124,30 @@ private[client] trait SeverityServiceModule extends SeverityService {
       }
   }
 
+  // changed severities are read in batches, and pushed by redis with client-side caching instead of keyspace notifications
+  // if enabled. Tracking follows the keys starting with the literal part of the key, hence keys which were not asked for are
+  // dropped. The asked keys are read again once the tracking connection is made again, even if they were never pushed.
+  private def watchSeverities(
+      key: Key,
+      severityKeys: List[SeverityKey],
+      keySpaceApi: RedisKeySpaceApi[SeverityKey, FullAlarmSeverity]
+  ): Source[RedisResult[SeverityKey, Option[FullAlarmSeverity]], RedisSubscription] = {
+    import AlarmRomaineCodec._
+    import settings.{severityBatchWindow, severityMaxBatchKeys}
+
+    if (settings.severityClientTracking) {
+      val watchedKeys = severityKeys.toSet
+      val prefix      = SeverityKey(SeverityKey.fromAlarmKey(key).value.takeWhile(_ != '*'))
+      keyTrackingApi[SeverityKey, FullAlarmSeverity]
+        .watchValues(List(prefix), severityBatchWindow, severityMaxBatchKeys, watchedKeys = watchedKeys)
+        .filter(result => watchedKeys.contains(result.key))
+    }
+    else keySpaceApi.watchKeyspaceValueBatched(severityKeys, OverflowStrategy.LATEST, severityBatchWindow, severityMaxBatchKeys)
+  }
+
   private def getActiveAlarmKeys(key: Key): Future[List[MetadataKey]] =
     async {
-      val metadataKeys = await(metadataApi.keys(key))
+      val metadataKeys = await(redisConnectionsFactory.metadataKeys(key))
       if (metadataKeys.isEmpty) logAndThrow(KeyNotFoundException(key))
 
       val keys = await(metadataApi.mget(metadataKeys)).collect {
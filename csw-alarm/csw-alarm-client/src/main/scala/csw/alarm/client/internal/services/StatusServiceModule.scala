@@ -199,10 +199,21 @@ private[client] trait StatusServiceModule extends StatusService {
       .map(_ => Done)
   }
 
+  // each attribute of the status of all alarms is set with a single MSET
   private[alarm] def setStatus(statusMap: Map[AlarmKey, AlarmStatus]): Future[Done] =
-    Future
-      .sequence(statusMap.map { case (key, status) => setStatus(key, status) })
-      .map(_ => Done)
+    if (statusMap.isEmpty) Future.successful(Done)
+    else
+      Future
+        .sequence(
+          Seq(
+            ackStatusApi.mset(statusMap.map((key, status) => (key: AckStatusKey) -> status.acknowledgementStatus)),
+            shelveStatusApi.mset(statusMap.map((key, status) => (key: ShelveStatusKey) -> status.shelveStatus)),
+            alarmTimeApi.mset(statusMap.map((key, status) => (key: AlarmTimeKey) -> status.alarmTime)),
+            latchedSeverityApi.mset(statusMap.map((key, status) => (key: LatchedSeverityKey) -> status.latchedSeverity)),
+            initializingApi.mset(statusMap.map((key, status) => (key: InitializingKey) -> status.initializing))
+          )
+        )
+        .map(_ => Done)
 
   final override private[alarm] def clearAllStatus(): Future[Done] =
     Future
@@ -224,7 +235,7 @@ private[client] trait StatusServiceModule extends StatusService {
     }
 
   private[alarm] def getAlarms(key: Key): Future[List[Alarm]] =
-    metadataApi.keys(key).flatMap {
+    redisConnectionsFactory.metadataKeys(key).flatMap {
       Future.traverse(_) { key =>
         for {
           metadata <- getMetadata(key)
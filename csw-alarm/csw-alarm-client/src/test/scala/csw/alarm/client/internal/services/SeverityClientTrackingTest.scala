@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.alarm.client.internal.services
+
+import org.apache.pekko.actor.testkit.typed.scaladsl.TestProbe
+import com.typesafe.config.ConfigFactory
+import csw.alarm.api.internal.SeverityKey
+import csw.alarm.client.internal.commons.Settings
+import csw.alarm.models.AlarmSeverity.*
+import csw.alarm.models.FullAlarmSeverity
+import csw.alarm.models.FullAlarmSeverity.Disconnected
+import csw.alarm.models.Key.*
+import csw.alarm.client.internal.helpers.TestFutureExt.given
+import scala.language.implicitConversions
+
+import csw.alarm.client.internal.helpers.{AlarmServiceTestSetup, TestDataFeeder}
+import csw.prefix.models.Subsystem.TCS
+
+import scala.concurrent.duration.DurationInt
+
+// aggregated severities watched with client-side caching of redis instead of keyspace notifications
+class SeverityClientTrackingTest
+    extends AlarmServiceTestSetup
+    with SeverityServiceModule
+    with MetadataServiceModule
+    with StatusServiceModule
+    with TestDataFeeder {
+
+  override def settings: Settings =
+    new Settings(ConfigFactory.parseString("csw-alarm.severity-watch.client-tracking = on").withFallback(ConfigFactory.load()))
+
+  override protected def beforeEach(): Unit = {
+    val validAlarmsConfig = ConfigFactory.parseResources("test-alarms/more-alarms.conf")
+    initAlarms(validAlarmsConfig, reset = true).await
+  }
+
+  test("subscribe aggregated severity should be notified of severities which are set and expire with client tracking") {
+    settings.severityClientTracking shouldBe true
+
+    val testProbe         = TestProbe[FullAlarmSeverity]()(actorSystem)
+    val alarmSubscription = subscribeAggregatedSeverityCallback(tromboneAxisLowLimitAlarmKey, testProbe.ref ! _)
+    alarmSubscription.ready().await
+    testProbe.expectMessage(Disconnected) // on subscription, current aggregated severity will be calculated
+
+    setSeverity(tromboneAxisLowLimitAlarmKey, Critical).await
+    testProbe.expectMessage(Critical)
+    testProbe.expectMessage(2.seconds, Disconnected) // severity expires after 1 second in test
+
+    // the key of another alarm is not tracked
+    setSeverity(tromboneAxisHighLimitAlarmKey, Major).await
+    testProbe.expectNoMessage(200.millis)
+
+    alarmSubscription.unsubscribe().await
+    setSeverity(tromboneAxisLowLimitAlarmKey, Major).await
+    testProbe.expectNoMessage(200.millis)
+  }
+
+  test("subscribe aggregated severity should aggregate severities changed together with client tracking") {
+    val testProbe         = TestProbe[FullAlarmSeverity]()(actorSystem)
+    val alarmSubscription = subscribeAggregatedSeverityCallback(SubsystemKey(TCS), testProbe.ref ! _)
+    alarmSubscription.ready().await
+    testProbe.expectMessage(Disconnected) // on subscription, current aggregated severity will be calculated
+
+    val severityKeys = List(SeverityKey.fromAlarmKey(cpuExceededAlarmKey), SeverityKey.fromAlarmKey(outOfRangeOffloadAlarmKey))
+    testSeverityApi.mset(severityKeys.zip(List(Warning, Major)).toMap).await
+    testProbe.expectMessage(Major)
+
+    testSeverityApi.del(severityKeys).await
+    testProbe.expectMessage(Disconnected)
+
+    alarmSubscription.unsubscribe().await
+  }
+}
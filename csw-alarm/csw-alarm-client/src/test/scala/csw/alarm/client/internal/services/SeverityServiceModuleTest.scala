@@ -11,6 +11,7 @@ import java.time.Instant
 import org.apache.pekko.actor.testkit.typed.scaladsl.TestProbe
 import com.typesafe.config.ConfigFactory
 import csw.alarm.api.exceptions.{InactiveAlarmException, InvalidSeverityException, KeyNotFoundException}
+import csw.alarm.api.internal.SeverityKey
 import csw.alarm.models.AcknowledgementStatus.{Acknowledged, Unacknowledged}
 import csw.alarm.models.AlarmSeverity.*
 import csw.alarm.models.FullAlarmSeverity.Disconnected
@@ -343,6 +344,23 @@ class SeverityServiceModuleTest
     alarmSubscription.unsubscribe().await
   }
 
+  // severities changed together are notified within one batch window, and read with one MGET
+  test("subscribe aggregated severity should aggregate severities changed together | DEOPSCSW-467") {
+    val testProbe         = TestProbe[FullAlarmSeverity]()(actorSystem)
+    val alarmSubscription = subscribeAggregatedSeverityCallback(SubsystemKey(TCS), testProbe.ref ! _)
+    alarmSubscription.ready().await
+    testProbe.expectMessage(Disconnected) // on subscription, current aggregated severity will be calculated
+
+    val severityKeys = List(SeverityKey.fromAlarmKey(cpuExceededAlarmKey), SeverityKey.fromAlarmKey(outOfRangeOffloadAlarmKey))
+    testSeverityApi.mset(severityKeys.zip(List(Warning, Major)).toMap).await
+    testProbe.expectMessage(Major)
+
+    testSeverityApi.del(severityKeys).await
+    testProbe.expectMessage(Disconnected)
+
+    alarmSubscription.unsubscribe().await
+  }
+
   // DEOPSCSW-467: Monitor alarm severities in the alarm store for a single alarm, component, subsystem, or all
   test(
     "subscribe aggregated severity via callback for two different subscriptions, one for a component and other for all | DEOPSCSW-467"
@@ -6,14 +6,19 @@
 package csw.benchmark.event
 
 import java.io.{BufferedOutputStream, FileOutputStream}
+import java.nio.ByteBuffer
 import java.nio.file.{Files, Paths}
 import java.util.concurrent.TimeUnit
 
 import csw.params.core.formats.EventCbor
-import csw.params.events.SystemEvent
+import csw.params.core.formats.ParamCodecs.*
+import csw.params.events.{Event, SystemEvent}
+import io.bullet.borer.Cbor
+import io.netty.buffer.{ByteBufOutputStream, PooledByteBufAllocator}
 import org.openjdk.jmh.annotations.*
 
 // RUN using this command: csw-benchmark/jmh:run -f 1 -wi 5 -i 5 csw.benchmark.event.CborSerializationBenchmark
+// Add `-prof gc` to compare the allocation rate of encoding through pooled buffers with that of encoding to ByteBuffers
 @State(Scope.Benchmark)
 class CborSerializationBenchmark {
 
@@ -25,6 +30,28 @@ class CborSerializationBenchmark {
     EventCbor.decode[SystemEvent](bytes)
   }
 
+  // the way the event client encoded and decoded events before writing straight into pooled connection buffers
+  @Benchmark
+  @BenchmarkMode(Array(Mode.AverageTime))
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  def cborByteBufferAvgTime(): Event = {
+    val byteBuffer = Cbor.encode[Event](Data.bigEvent).to[ByteBuffer].result
+    Cbor.decode(byteBuffer).to[Event].value
+  }
+
+  // the way the event client encodes and decodes events on Redis connections, see EventRomaineCodecs
+  @Benchmark
+  @BenchmarkMode(Array(Mode.AverageTime))
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  def cborPooledByteBufAvgTime(): Event = {
+    val byteBuf = PooledByteBufAllocator.DEFAULT.directBuffer(256)
+    try {
+      Cbor.encode[Event](Data.bigEvent).to(new ByteBufOutputStream(byteBuf)).result
+      Cbor.decode(byteBuf.nioBuffer()).to[Event].value
+    }
+    finally byteBuf.release()
+  }
+
 }
 
 object BigCborTest {
@@ -79,7 +79,7 @@ trait EmbeddedRedis {
     Runtime.getRuntime.addShutdownHook(new Thread { override def run(): Unit = hook })
 
   @tailrec
-  private final def getFreePort: Int =
+  protected final def getFreePort: Int =
     Try(new ServerSocket(0)) match {
       case Success(socket) =>
         val port = socket.getLocalPort
@@ -6,6 +6,7 @@
 package csw.event.api.javadsl
 
 import java.time.Duration
+import java.util
 import java.util.Optional
 import java.util.concurrent.CompletableFuture
 import java.util.function.{Consumer, Supplier}
@@ -36,6 +37,22 @@ trait IEventPublisher {
    */
   def publish(event: Event): CompletableFuture[Done]
 
+  /**
+   * Publish all given [[csw.params.events.Event]]s at once, e.g. a snapshot of many event keys taken on a trigger
+   *
+   * Publishers which support it send all events to the event server in a single round trip, in the given order. The events
+   * are queued together, hence they are published after the events published before with `publish(event)` and before the
+   * ones published afterwards, and are subject to the overflow policy of the publish queue as a whole.
+   *
+   * The result holds a [[csw.event.api.exceptions.PublishFailure]] for every event which could not be published, which
+   * wraps the underlying exception and provides the handle to the event. The returned future itself does not fail.
+   *
+   * @param events the events to be published
+   * @return a completable future which completes with the failures of the events which could not be published, in the given
+   *         order, and which is empty if all events are published
+   */
+  def publishAll(events: util.List[Event]): CompletableFuture[util.List[PublishFailure]]
+
   /**
    * Publish from a stream of [[csw.params.events.Event]]
    *
@@ -5,7 +5,7 @@
 
 package csw.event.api.javadsl
 
-import csw.event.api.scaladsl.EventService
+import csw.event.api.scaladsl.{EventService, PublishOverflowPolicy}
 
 /**
  * An interface to provide access to [[csw.event.api.javadsl.IEventPublisher]] and [[csw.event.api.javadsl.IEventSubscriber]].
@@ -33,6 +33,17 @@ trait IEventService {
    */
   def makeNewPublisher(): IEventPublisher
 
+  /**
+   * Create a new instance of [[csw.event.api.javadsl.IEventPublisher]] as with `makeNewPublisher()`, whose publish queue
+   * handles events published while it is full as per the given policy rather than the configured one.
+   *
+   * @param overflowPolicy an appropriate [[csw.event.api.scaladsl.PublishOverflowPolicy]] of the publish queue, e.g.
+   *                       [[csw.event.api.scaladsl.PublishOverflowPolicies.jBackpressure]].
+   *                       Refer the API documentation for PublishOverflowPolicy for more details
+   * @return new instance of [[csw.event.api.javadsl.IEventPublisher]]
+   */
+  def makeNewPublisher(overflowPolicy: PublishOverflowPolicy): IEventPublisher
+
   /**
    * Create a new instance of [[csw.event.api.javadsl.IEventPublisher]] with a separate underlying connection than the default instance.
    * The new instance will be required when the location of Event Service is updated or in case the performance requirements
@@ -7,7 +7,7 @@ package csw.event.api.javadsl
 
 import org.apache.pekko.actor.typed.ActorRef
 import org.apache.pekko.stream.javadsl.Source
-import csw.event.api.scaladsl.SubscriptionMode
+import csw.event.api.scaladsl.{CallbackOrdering, SubscriptionMode}
 import csw.params.events.{Event, EventKey}
 import csw.prefix.models.Subsystem
 
@@ -94,6 +94,32 @@ trait IEventSubscriber {
       mode: SubscriptionMode
   ): IEventSubscription
 
+  /**
+   * Overload for above `subscribeAsync` which runs up to `parallelism` callbacks at the same time, in the given `ordering`,
+   * so that a slow callback does not hold up the events of the other event keys. The latest events available for the given
+   * Event Keys will be received first. If event is not published for one or more event keys, `invalid event` will be received
+   * for those Event Keys.
+   *
+   * At the time of invocation, in case the underlying server is not available, [[csw.event.api.exceptions.EventServerNotAvailable]] exception is thrown
+   * and the subscription is stopped after logging appropriately. [[csw.event.api.scaladsl.EventSubscription!.ready]] method can be used to determine
+   * this state. In all other cases of exception, the subscription resumes to receive remaining elements.
+   *
+   * @note Callbacks are not thread-safe on the JVM, and with a `parallelism` of more than 1 they also run concurrently. If you
+   *       need to do side effects/mutations, prefer using `subscribeActorRef` API.
+   * @param eventKeys a set of [[csw.params.events.EventKey]] to subscribe to
+   * @param callback a function to execute asynchronously on each received event
+   * @param parallelism maximum number of callbacks which run at the same time
+   * @param ordering an appropriate [[csw.event.api.scaladsl.CallbackOrdering]] to control the order in which callbacks run.
+   *                 Refer the API documentation for CallbackOrdering for more details
+   * @return an [[csw.event.api.javadsl.IEventSubscription]] which can be used to unsubscribe from all the Event Keys which were subscribed to
+   */
+  def subscribeAsync(
+      eventKeys: util.Set[EventKey],
+      callback: Event => CompletableFuture[?],
+      parallelism: Int,
+      ordering: CallbackOrdering
+  ): IEventSubscription
+
   /**
    * Subscribes a callback function to events from multiple event keys. The latest events available for the given Event Keys will be received first.
    * If event is not published for one or more event keys, `invalid event` will be received for those Event Keys.
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.api.scaladsl
+
+/**
+ * The callback ordering is used by `subscribeAsync` to control in which order the asynchronous callbacks of received events
+ * run, when up to `parallelism` of them may run at the same time.
+ *
+ * Parameter ordering can have three values -
+ *
+ * - [[CallbackOrderings.InOrder]]: callbacks are started in the order in which events are received, and the callback of an
+ *   event counts as done only once the callbacks of all earlier events are done. A slow callback hence holds up the
+ *   subscription once `parallelism` callbacks were started after it.
+ * - [[CallbackOrderings.InOrderPerKey]]: the callback of an event starts only once the callback of the previous event of
+ *   the same event key completed, while callbacks of events of different keys run at the same time. A slow callback hence
+ *   holds up only the events of its key, and of the keys which share a lane with it, as events are spread by their key
+ *   over `parallelism` lanes.
+ * - [[CallbackOrderings.Unordered]]: callbacks run in no particular order, a callback which completes makes room for the
+ *   next event right away.
+ *
+ * These three orderings can be accessed in Java as:
+ *
+ * - [[CallbackOrderings.jInOrder]]
+ * - [[CallbackOrderings.jInOrderPerKey]]
+ * - [[CallbackOrderings.jUnordered]]
+ *
+ * Once `parallelism` callbacks are running, no further event is taken from the subscription. Events which are received in
+ * the meantime are buffered, and the oldest ones are dropped once the buffer of the subscription is full.
+ */
+sealed trait CallbackOrdering
+
+/**
+ * List of supported callback orderings of `subscribeAsync`.
+ * Refer to documentation for [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+ */
+object CallbackOrderings {
+
+  /**
+   * Callbacks are started and complete in the order of events.
+   * See [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+   */
+  case object InOrder extends CallbackOrdering
+
+  /**
+   * Callbacks of the events of an event key run one after the other, in the order of events.
+   * See [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+   */
+  case object InOrderPerKey extends CallbackOrdering
+
+  /**
+   * Callbacks run in no particular order.
+   * See [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+   */
+  case object Unordered extends CallbackOrdering
+
+  /**
+   * Callback ordering for Java in which callbacks are started and complete in the order of events.
+   * See [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+   */
+  val jInOrder: CallbackOrdering = InOrder
+
+  /**
+   * Callback ordering for Java in which callbacks of the events of an event key run one after the other.
+   * See [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+   */
+  val jInOrderPerKey: CallbackOrdering = InOrderPerKey
+
+  /**
+   * Callback ordering for Java in which callbacks run in no particular order.
+   * See [[csw.event.api.scaladsl.CallbackOrdering]] for more details.
+   */
+  val jUnordered: CallbackOrdering = Unordered
+}
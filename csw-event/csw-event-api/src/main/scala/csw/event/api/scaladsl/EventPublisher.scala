@@ -12,8 +12,10 @@ import csw.event.api.exceptions.PublishFailure
 import csw.params.events.Event
 import csw.time.core.models.TMTTime
 
-import scala.concurrent.Future
+import scala.collection.immutable
 import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.{Failure, Success}
 
 /**
  * An EventPublisher interface to publish events. The published events are published on a key determined by [[csw.params.events.EventKey]]
@@ -34,6 +36,33 @@ trait EventPublisher {
    */
   def publish(event: Event): Future[Done]
 
+  /**
+   * Publish all given [[csw.params.events.Event]]s at once, e.g. a snapshot of many event keys taken on a trigger
+   *
+   * Publishers which support it send all events to the event server in a single round trip, in the given order. The events
+   * are queued together, hence they are published after the events published before with `publish(event)` and before the
+   * ones published afterwards, and are subject to the overflow policy of the publish queue as a whole.
+   *
+   * The result holds a [[csw.event.api.exceptions.PublishFailure]] for every event which could not be published, which
+   * wraps the underlying exception and provides the handle to the event. The returned future itself does not fail.
+   *
+   * @param events the events to be published
+   * @return a future which completes with the failures of the events which could not be published, in the given order, and
+   *         which is empty if all events are published
+   */
+  def publishAll(events: immutable.Seq[Event]): Future[List[PublishFailure]] = {
+    implicit val ec: ExecutionContext = ExecutionContext.parasitic
+    Future
+      .traverse(events.toList) { event =>
+        publish(event).transform {
+          case Success(_)                  => Success(None)
+          case Failure(ex: PublishFailure) => Success(Some(ex))
+          case Failure(ex)                 => Success(Some(PublishFailure(event, ex)))
+        }
+      }
+      .map(_.flatten)
+  }
+
   /**
    * Publish from a stream of [[csw.params.events.Event]]
    *
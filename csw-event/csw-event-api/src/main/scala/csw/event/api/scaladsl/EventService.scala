@@ -31,6 +31,16 @@ trait EventService {
    */
   def makeNewPublisher(): EventPublisher
 
+  /**
+   * Create a new instance of [[csw.event.api.scaladsl.EventPublisher]] as with `makeNewPublisher()`, whose publish queue
+   * handles events published while it is full as per the given policy rather than the configured one.
+   *
+   * @param overflowPolicy an appropriate [[csw.event.api.scaladsl.PublishOverflowPolicy]] of the publish queue.
+   *                       Refer the API documentation for PublishOverflowPolicy for more details
+   * @return new instance of [[csw.event.api.scaladsl.EventPublisher]]
+   */
+  def makeNewPublisher(overflowPolicy: PublishOverflowPolicy): EventPublisher
+
   /**
    * Create a new instance of [[csw.event.api.scaladsl.EventSubscriber]] with a separate underlying connection than the default instance.
    * The new instance will be required when the location of Event Service is updated or in case the performance requirements
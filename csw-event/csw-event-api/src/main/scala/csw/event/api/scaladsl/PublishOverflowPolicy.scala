@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.api.scaladsl
+
+/**
+ * The overflow policy tells a publisher what to do with an event published while its publish queue is full, i.e. while
+ * events are published faster than the event server accepts them. Publishers made with `makeNewPublisher()` use the policy
+ * configured by `csw-event.publisher.queue.overflow-policy`, `makeNewPublisher(overflowPolicy)` makes a publisher with
+ * a policy of its own.
+ *
+ * Policy can have four values -
+ *
+ * - [[PublishOverflowPolicies.DropOldest]]: the oldest queued event is dropped to make room, and the future returned for it
+ *   fails.
+ * - [[PublishOverflowPolicies.DropNewest]]: the published event is dropped, and the future returned for it fails.
+ * - [[PublishOverflowPolicies.FailFast]]: the published event is rejected and the future returned for it fails, which the
+ *   caller is expected to handle.
+ * - [[PublishOverflowPolicies.Backpressure]]: the future returned for the published event completes once there was room for
+ *   it and it is published. As many events as the queue holds wait for room at most, events published beyond are rejected
+ *   as with `FailFast`.
+ *
+ * These four policies can be accessed in Java as:
+ *
+ * - [[PublishOverflowPolicies.jDropOldest]]
+ * - [[PublishOverflowPolicies.jDropNewest]]
+ * - [[PublishOverflowPolicies.jFailFast]]
+ * - [[PublishOverflowPolicies.jBackpressure]]
+ *
+ * @param name the name of the policy in the configuration
+ */
+sealed abstract class PublishOverflowPolicy(val name: String)
+
+/**
+ * List of supported overflow policies of the publish queue.
+ * Refer to documentation for [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+ */
+object PublishOverflowPolicies {
+
+  /**
+   * The oldest queued event is dropped to make room.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  case object DropOldest extends PublishOverflowPolicy("drop-oldest")
+
+  /**
+   * The published event is dropped.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  case object DropNewest extends PublishOverflowPolicy("drop-newest")
+
+  /**
+   * The published event is rejected.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  case object FailFast extends PublishOverflowPolicy("fail-fast")
+
+  /**
+   * The published event waits for room, up to as many events as the queue holds.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  case object Backpressure extends PublishOverflowPolicy("backpressure")
+
+  /**
+   * Overflow policy for Java in which the oldest queued event is dropped to make room.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  val jDropOldest: PublishOverflowPolicy = DropOldest
+
+  /**
+   * Overflow policy for Java in which the published event is dropped.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  val jDropNewest: PublishOverflowPolicy = DropNewest
+
+  /**
+   * Overflow policy for Java in which the published event is rejected.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  val jFailFast: PublishOverflowPolicy = FailFast
+
+  /**
+   * Overflow policy for Java in which the published event waits for room.
+   * See [[csw.event.api.scaladsl.PublishOverflowPolicy]] for more details.
+   */
+  val jBackpressure: PublishOverflowPolicy = Backpressure
+
+  val values: List[PublishOverflowPolicy] = List(DropOldest, DropNewest, FailFast, Backpressure)
+
+  /**
+   * The policy of the given name, as in `csw-event.publisher.queue.overflow-policy`
+   *
+   * @throws IllegalArgumentException if there is no policy of that name
+   */
+  def withName(name: String): PublishOverflowPolicy =
+    values
+      .find(_.name == name)
+      .getOrElse(throw new IllegalArgumentException(s"Unknown overflow policy [$name], expected one of ${values.map(_.name)}"))
+}
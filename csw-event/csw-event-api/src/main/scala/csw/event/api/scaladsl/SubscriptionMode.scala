@@ -13,15 +13,17 @@ package csw.event.api.scaladsl
  * `Tick:` Refers to the exact clock tick
  * `Interval:` Refers to the duration between two ticks
  *
- * Parameter mode can have two values -
+ * Parameter mode can have three values -
  *
  * - [[SubscriptionModes.RateAdapterMode]]
  * - [[SubscriptionModes.RateLimiterMode]]
+ * - [[SubscriptionModes.AggregationMode]]
  *
- * These two modes can be accessed  in Java as:
+ * These three modes can be accessed  in Java as:
  *
  * - [[SubscriptionModes.jRateAdapterMode]]
  * - [[SubscriptionModes.jRateLimiterMode]]
+ * - [[SubscriptionModes.jAggregationMode]]
  *
  * {{{
  * ---------------------------------------------------------------------------------------------------------------------
@@ -60,6 +62,12 @@ package csw.event.api.scaladsl
  *                    |                                               | not match with the specified subscription rate.
  *                    |                                               |
  * }}}
+ *
+ * Unlike the above two modes, which drop events, [[SubscriptionModes.AggregationMode]] summarises all the events received
+ * during an interval. At each tick, the subscriber receives the last event of every event key published during the
+ * interval, to which `p_min`, `p_max`, `p_mean` and `p_count` parameters are added for each of its numeric parameters `p`.
+ * Hence displays downsampling high frequency telemetry do not lose its extremes. No event is received for an interval
+ * during which nothing was published.
  */
 sealed trait SubscriptionMode
 
@@ -81,6 +89,12 @@ object SubscriptionModes {
    */
   case object RateLimiterMode extends SubscriptionMode
 
+  /**
+   * Subscription mode to receive a summary of the events published during each interval.
+   * See [[csw.event.api.scaladsl.SubscriptionMode]] for more details.
+   */
+  case object AggregationMode extends SubscriptionMode
+
   /**
    * Subscription mode for Java to adjust the rate in which subscribed events arrive.
    * See [[csw.event.api.scaladsl.SubscriptionMode]] for more details.
@@ -92,4 +106,10 @@ object SubscriptionModes {
    * See [[csw.event.api.scaladsl.SubscriptionMode]] for more details.
    */
   val jRateLimiterMode: SubscriptionMode = RateLimiterMode
+
+  /**
+   * Subscription mode for Java to receive a summary of the events published during each interval.
+   * See [[csw.event.api.scaladsl.SubscriptionMode]] for more details.
+   */
+  val jAggregationMode: SubscriptionMode = AggregationMode
 }
@@ -5,22 +5,29 @@
 
 package csw.event.client
 
+import java.util.concurrent.ConcurrentHashMap
+
+import org.apache.pekko.Done
 import org.apache.pekko.actor.typed.ActorSystem
 import csw.event.api.javadsl.IEventService
 import csw.event.api.scaladsl.EventService
+import csw.event.client.internal.commons.{EventMetrics, Settings}
 import csw.event.client.internal.commons.javawrappers.JEventService
 import csw.event.client.internal.commons.serviceresolver.{
   EventServiceHostPortResolver,
   EventServiceLocationResolver,
   EventServiceResolver
 }
-import csw.event.client.internal.kafka.KafkaEventService
-import csw.event.client.internal.redis.RedisEventService
-import csw.event.client.models.EventStore
-import csw.event.client.models.EventStores.{KafkaStore, RedisStore}
+import csw.event.client.internal.kafka.{KafkaEventService, KafkaLatestValueCache}
+import csw.event.client.internal.redis.{RedisEventService, RedisStreamsEventService, RedisSubscriptionHub, SentinelFailover}
+import csw.event.client.models.{EventMetricsSnapshot, EventStore}
+import csw.event.client.models.EventStores.{KafkaStore, RedisStore, RedisStreamsStore}
 import csw.location.api.javadsl.ILocationService
 import csw.location.api.scaladsl.LocationService
 
+import scala.concurrent.{ExecutionContext, Future}
+import scala.jdk.CollectionConverters.*
+
 /**
  * Factory to create EventService
  */
@@ -31,6 +38,51 @@ class EventServiceFactory(store: EventStore = RedisStore()) {
    */
   def this() = this(RedisStore())
 
+  import EventServiceFactory._
+
+  // event services made for the same event server share their pub/sub connection, see RedisSubscriptionHub
+  private val subscriptionHubs = new ConcurrentHashMap[EventServer, RedisSubscriptionHub]()
+
+  // event services made for the same event server follow its master together, see SentinelFailover
+  private val failovers = new ConcurrentHashMap[EventServer, SentinelFailover]()
+
+  // kafka event services made for the same event server share the consumer which answers `get`, see KafkaLatestValueCache
+  private val latestValueCaches = new ConcurrentHashMap[EventServer, KafkaLatestValueCache]()
+
+  // shared by all event services made by this factory, see metrics
+  private val eventMetrics = new EventMetrics
+
+  /**
+   * API to get latencies and drops of the events published and received through the event services made by this factory,
+   * since they were made. Publish round trips, ages and decode times of received events are summarised as percentiles,
+   * which are also logged periodically as per `csw-event.metrics.log-interval` in the configuration.
+   *
+   * @note latencies are recorded only by event services backed by [[csw.event.client.models.EventStores.RedisStore]], the
+   *       publish queues of all event services and the near caches of subscribers are included
+   * @return [[csw.event.client.models.EventMetricsSnapshot]] with metrics of every subsystem which published or received events
+   */
+  def metrics(): EventMetricsSnapshot = eventMetrics.snapshot()
+
+  /**
+   * API to release the connections which event services made by this factory share: the pub/sub connections of
+   * subscriptions, which are completed, the watches of Redis Sentinel, and the consumers answering `get` of Kafka event
+   * services. Periodic logging of the metrics stops as well. Event services made before should not be used anymore, event
+   * services made afterwards connect again.
+   *
+   * @return a future which completes once the connections are closed
+   */
+  def shutdown(): Future[Done] = {
+    eventMetrics.stopLogging()
+    failovers.values().asScala.foreach(_.shutdown())
+    failovers.clear()
+    latestValueCaches.values().asScala.foreach(_.close())
+    latestValueCaches.clear()
+    val hubs = subscriptionHubs.values().asScala.toList
+    subscriptionHubs.clear()
+    implicit val ec: ExecutionContext = ExecutionContext.parasitic
+    Future.traverse(hubs)(_.shutdown()).map(_ => Done)
+  }
+
   /**
    * API to create [[csw.event.api.scaladsl.EventService]] using [[csw.location.api.scaladsl.LocationService]] to resolve Event Server.
    *
@@ -39,7 +91,7 @@ class EventServiceFactory(store: EventStore = RedisStore()) {
    * @return [[csw.event.api.scaladsl.EventService]] which provides handles to [[csw.event.api.scaladsl.EventPublisher]] and [[csw.event.api.scaladsl.EventSubscriber]]
    */
   def make(locationService: LocationService)(implicit system: ActorSystem[?]): EventService =
-    eventService(new EventServiceLocationResolver(locationService)(system.executionContext))
+    eventService(new EventServiceLocationResolver(locationService)(system.executionContext), EventServer.Located(locationService))
 
   /**
    * API to create [[csw.event.api.scaladsl.EventService]] using host and port of Event Server.
@@ -50,7 +102,7 @@ class EventServiceFactory(store: EventStore = RedisStore()) {
    * @return [[csw.event.api.scaladsl.EventService]] which provides handles to [[csw.event.api.scaladsl.EventPublisher]] and [[csw.event.api.scaladsl.EventSubscriber]]
    */
   def make(host: String, port: Int)(implicit system: ActorSystem[?]): EventService =
-    eventService(new EventServiceHostPortResolver(host, port))
+    eventService(new EventServiceHostPortResolver(host, port), EventServer.HostPort(host, port))
 
   /**
    * Java API to create [[csw.event.api.javadsl.IEventService]] using [[csw.location.api.javadsl.ILocationService]] to resolve Event Server.
@@ -77,11 +129,37 @@ class EventServiceFactory(store: EventStore = RedisStore()) {
     new JEventService(eventService)
   }
 
-  private def eventService(eventServiceResolver: EventServiceResolver)(implicit system: ActorSystem[?]) = {
-    def masterId = system.settings.config.getString("csw-event.redis.masterId")
+  private def eventService(eventServiceResolver: EventServiceResolver, eventServer: EventServer)(implicit
+      system: ActorSystem[?]
+  ) = {
+    def settings = new Settings(system.settings.config)
     store match {
-      case RedisStore(client) => new RedisEventService(eventServiceResolver, masterId, client)
-      case KafkaStore         => new KafkaEventService(eventServiceResolver)
+      case RedisStore(client) =>
+        val failover = failovers.computeIfAbsent(eventServer, _ => new SentinelFailover(client, settings, eventMetrics))
+        val subscriptionHub = subscriptionHubs.computeIfAbsent(
+          eventServer,
+          _ => new RedisSubscriptionHub(client, settings, eventMetrics, failover)(system.executionContext)
+        )
+        eventMetrics.logEvery(settings.metricsLogInterval)
+        new RedisEventService(eventServiceResolver, settings, client, subscriptionHub, eventMetrics, failover)
+      case KafkaStore =>
+        val latestValueCache = latestValueCaches.computeIfAbsent(
+          eventServer,
+          _ => new KafkaLatestValueCache(settings.latestValuePollTimeout, settings.latestValueLoadTimeout)
+        )
+        new KafkaEventService(eventServiceResolver, settings, latestValueCache, eventMetrics)
+      case RedisStreamsStore(client) => new RedisStreamsEventService(eventServiceResolver, settings, client, eventMetrics)
     }
   }
 }
+
+private object EventServiceFactory {
+
+  // the event server which event services are made for, event services made for the same one share their connections
+  sealed trait EventServer
+
+  object EventServer {
+    case class Located(locationService: LocationService) extends EventServer
+    case class HostPort(host: String, port: Int)         extends EventServer
+  }
+}
@@ -5,9 +5,13 @@
 
 package csw.event.client.internal.commons
 
+import java.io.OutputStream
+
+import csw.params.core.generics.Parameter
 import csw.params.events.Event
 import io.bullet.borer.Cbor.DecodingConfig
-import io.bullet.borer.{Cbor, Input, Output}
+import io.bullet.borer.derivation.MapBasedCodecs
+import io.bullet.borer.{Cbor, Decoder, Input, Output}
 
 import scala.util.control.NonFatal
 
@@ -23,7 +27,55 @@ private[event] object EventConverter {
     }
   }
 
+  /**
+   * Decodes the event with a [[csw.event.client.internal.commons.LazyParamSet]], hence values of its parameters are decoded
+   * only when they are accessed. The event keeps a reference to the given bytes, which must not be modified afterwards.
+   * Only an event whose structure can not be decoded is replaced by a bad event, a parameter whose values can not be decoded
+   * fails when it is accessed.
+   */
+  def toLazyEvent(bytes: Array[Byte]): Event = {
+    try {
+      val event =
+        Cbor.decode(bytes).withConfig(DecodingConfig(readDoubleAlsoAsFloat = true)).to[Event](using lazyEventDecoder).value
+      event.paramSet match {
+        case lazyParamSet: LazyParamSet => lazyParamSet.bind(bytes)
+        case _                          =>
+      }
+      event
+    }
+    catch {
+      case NonFatal(_) => Event.badEvent()
+    }
+  }
+
+  /**
+   * Decodes all parameters of an event decoded by [[toLazyEvent]], which is hence not lazy anymore. An event whose
+   * parameters can not be decoded is replaced by a bad event, as with [[toEvent]].
+   */
+  def decodeParams(event: Event): Event =
+    event.paramSet match {
+      case lazyParamSet: LazyParamSet =>
+        try {
+          lazyParamSet.decodeAll()
+          event
+        }
+        catch {
+          case NonFatal(_) => Event.badEvent()
+        }
+      case _ => event
+    }
+
+  // same as the derived event codec of ParamCodecs, except for reading paramSet through LazyParamSet.decoder
+  private lazy val lazyEventDecoder: Decoder[Event] = {
+    implicit val lazyParamSetDecoder: Decoder[Set[Parameter[?]]] = LazyParamSet.decoder
+    MapBasedCodecs.deriveAllDecoders[Event]
+  }
+
   def toBytes[Chunk: Output.ToTypeProvider](event: Event): Chunk = {
     Cbor.encode(event).to[Chunk].result
   }
+
+  def writeBytes(event: Event, outputStream: OutputStream): Unit = {
+    Cbor.encode(event).to(outputStream).result
+  }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.commons
+
+import java.time.Instant
+import java.time.temporal.ChronoUnit
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.{AtomicReference, LongAdder}
+
+import org.apache.pekko.actor.Cancellable
+import org.apache.pekko.actor.typed.ActorSystem
+import csw.event.client.models.{
+  EventMetricsSnapshot,
+  LatencySummary,
+  NearCacheMetrics,
+  PublishQueueMetrics,
+  SubsystemEventMetrics
+}
+import csw.params.events.{Event, EventKey}
+import csw.prefix.models.Subsystem
+import org.HdrHistogram.{Histogram, Recorder}
+
+import scala.concurrent.duration.{Duration, DurationLong, FiniteDuration}
+import scala.jdk.CollectionConverters.*
+
+/**
+ * Latencies and drops of the events published and received through the event services of an
+ * [[csw.event.client.EventServiceFactory]], per subsystem of the events.
+ *
+ * Recording never takes a lock, latencies are recorded into HdrHistogram recorders from which snapshots take the values
+ * recorded since the previous one. Hence recording is cheap enough to be always on.
+ */
+private[event] class EventMetrics {
+  import EventMetrics._
+
+  private val logger = EventServiceLogger.getLogger
+
+  private val subsystems = new ConcurrentHashMap[Subsystem, SubsystemRecorders]()
+  private val failovers  = new LatencyRecorder
+  // the periodic logging, if started
+  private var logging: Option[Cancellable] = None
+
+  private val publishQueues        = ConcurrentHashMap.newKeySet[PublishQueue]()
+  private val removedPublishQueues = new AtomicReference(NoPublishQueue)
+  private val nearCaches           = ConcurrentHashMap.newKeySet[() => NearCacheMetrics]()
+
+  /**
+   * @param sentAtNs `System.nanoTime()` when the event was sent to the event server
+   */
+  def recordPublished(event: Event, sentAtNs: Long): Unit =
+    recorders(event.eventKey).publishRoundTrip.record(System.nanoTime() - sentAtNs)
+
+  def recordReceived(event: Event, decodeTimeNs: Long): Unit = {
+    val subsystemRecorders = recorders(event.eventKey)
+    subsystemRecorders.decodeTime.record(decodeTimeNs)
+    subsystemRecorders.eventAge.record(ChronoUnit.NANOS.between(event.eventTime.value, Instant.now()))
+  }
+
+  def recordCallback(event: Event, durationNs: Long): Unit = recorders(event.eventKey).callbackDuration.record(durationNs)
+
+  def recordDropped(eventKey: EventKey): Unit = recorders(eventKey).dropped.increment()
+
+  def recordFailover(duration: FiniteDuration): Unit = failovers.record(duration.toNanos)
+
+  def addPublishQueue(publishQueue: PublishQueue): Unit = publishQueues.add(publishQueue)
+
+  // counters of a queue are kept once it was drained after its publisher was shutdown
+  def removePublishQueue(publishQueue: PublishQueue): Unit =
+    if (publishQueues.remove(publishQueue)) removedPublishQueues.accumulateAndGet(publishQueue.metrics, combined)
+
+  // near caches live as long as their event service
+  def addNearCache(nearCacheMetrics: () => NearCacheMetrics): Unit = nearCaches.add(nearCacheMetrics)
+
+  /**
+   * Metrics of all events since the event services were created
+   */
+  def snapshot(): EventMetricsSnapshot =
+    EventMetricsSnapshot(
+      subsystems.asScala.map { case (subsystem, recorders) => subsystem -> recorders.total() }.toMap,
+      failovers.total(),
+      publishQueues.asScala.foldLeft(removedPublishQueues.get())((metrics, queue) => combined(metrics, queue.metrics)),
+      nearCaches.asScala.foldLeft(NoNearCache)((metrics, nearCache) => combined(metrics, nearCache()))
+    )
+
+  /**
+   * Logs the metrics of the events of every `interval` at info level, for subsystems which published or received events
+   * during the interval. Logging is started only once, it stops with [[stopLogging]] or when the actor system terminates.
+   */
+  def logEvery(interval: FiniteDuration)(implicit actorSystem: ActorSystem[?]): Unit =
+    synchronized {
+      if (interval.length > 0 && logging.isEmpty)
+        logging = Some(actorSystem.scheduler.scheduleAtFixedRate(interval, interval)(() => log())(actorSystem.executionContext))
+    }
+
+  /**
+   * Stops the periodic logging, which the next [[logEvery]] starts again
+   */
+  def stopLogging(): Unit =
+    synchronized {
+      logging.foreach(_.cancel())
+      logging = None
+    }
+
+  private def log(): Unit =
+    subsystems.forEach { (subsystem, recorders) =>
+      val metrics = recorders.sinceLastInterval()
+      if (metrics.publishRoundTrip.count + metrics.eventAge.count + metrics.callbackDuration.count + metrics.dropped > 0)
+        logger.info(
+          s"Event metrics of subsystem $subsystem",
+          Map(
+            "publishRoundTrip" -> format(metrics.publishRoundTrip),
+            "eventAge"         -> format(metrics.eventAge),
+            "decodeTime"       -> format(metrics.decodeTime),
+            "callbackDuration" -> format(metrics.callbackDuration),
+            "dropped"          -> metrics.dropped
+          )
+        )
+    }
+
+  private def format(summary: LatencySummary): String = {
+    import summary._
+    s"count=$count mean=$mean p50=$p50 p90=$p90 p99=$p99 p999=$p999 max=$max"
+  }
+
+  private def recorders(eventKey: EventKey): SubsystemRecorders =
+    subsystems.computeIfAbsent(eventKey.source.subsystem, _ => new SubsystemRecorders)
+}
+
+private object EventMetrics {
+
+  private val NoPublishQueue = PublishQueueMetrics(0, 0, 0, 0, 0, Duration.Zero, Duration.Zero)
+  private val NoNearCache    = NearCacheMetrics(0, 0, 0, 0)
+
+  private def combined(metrics: NearCacheMetrics, other: NearCacheMetrics): NearCacheMetrics =
+    NearCacheMetrics(
+      size = metrics.size + other.size,
+      hits = metrics.hits + other.hits,
+      misses = metrics.misses + other.misses,
+      evictions = metrics.evictions + other.evictions
+    )
+
+  private def combined(metrics: PublishQueueMetrics, other: PublishQueueMetrics): PublishQueueMetrics = {
+    val published    = metrics.published + other.published
+    val totalLatency = metrics.meanLatency.toNanos * metrics.published + other.meanLatency.toNanos * other.published
+    PublishQueueMetrics(
+      depth = metrics.depth + other.depth,
+      offered = metrics.offered + other.offered,
+      dropped = metrics.dropped + other.dropped,
+      rejected = metrics.rejected + other.rejected,
+      published = published,
+      meanLatency = (if (published == 0) 0L else totalLatency / published).nanos,
+      maxLatency = metrics.maxLatency.max(other.maxLatency)
+    )
+  }
+
+  private final class SubsystemRecorders {
+    val publishRoundTrip = new LatencyRecorder
+    val eventAge         = new LatencyRecorder
+    val decodeTime       = new LatencyRecorder
+    val callbackDuration = new LatencyRecorder
+    val dropped          = new LongAdder
+
+    private var droppedBefore = 0L
+
+    def total(): SubsystemEventMetrics =
+      SubsystemEventMetrics(
+        publishRoundTrip.total(),
+        eventAge.total(),
+        decodeTime.total(),
+        callbackDuration.total(),
+        dropped.sum()
+      )
+
+    def sinceLastInterval(): SubsystemEventMetrics =
+      synchronized {
+        val droppedSoFar = dropped.sum()
+        val metrics      = SubsystemEventMetrics(
+          publishRoundTrip.sinceLastInterval(),
+          eventAge.sinceLastInterval(),
+          decodeTime.sinceLastInterval(),
+          callbackDuration.sinceLastInterval(),
+          droppedSoFar - droppedBefore
+        )
+        droppedBefore = droppedSoFar
+        metrics
+      }
+  }
+
+  // values are recorded in microseconds, histograms resize as larger values are recorded
+  private final class LatencyRecorder {
+    private val recorder = new Recorder(3)
+    private val all      = new Histogram(3)
+    private val interval = new Histogram(3)
+
+    // negative values, e.g. ages of events from a host whose clock is ahead, are recorded as 0
+    def record(nanos: Long): Unit = recorder.recordValue(math.max(0L, nanos / 1000))
+
+    def total(): LatencySummary = synchronized {
+      drain()
+      summary(all)
+    }
+
+    def sinceLastInterval(): LatencySummary = synchronized {
+      drain()
+      val intervalSummary = summary(interval)
+      interval.reset()
+      intervalSummary
+    }
+
+    private def drain(): Unit = {
+      val recorded = recorder.getIntervalHistogram()
+      all.add(recorded)
+      interval.add(recorded)
+    }
+
+    private def summary(histogram: Histogram): LatencySummary =
+      LatencySummary(
+        count = histogram.getTotalCount,
+        mean = histogram.getMean.toLong.micros,
+        p50 = histogram.getValueAtPercentile(50).micros,
+        p90 = histogram.getValueAtPercentile(90).micros,
+        p99 = histogram.getValueAtPercentile(99).micros,
+        p999 = histogram.getValueAtPercentile(99.9).micros,
+        max = histogram.getMaxValue.micros
+      )
+  }
+}
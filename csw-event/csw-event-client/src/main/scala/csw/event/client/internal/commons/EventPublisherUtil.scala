@@ -5,45 +5,112 @@
 
 package csw.event.client.internal.commons
 
-import org.apache.pekko.Done
 import org.apache.pekko.actor.typed.ActorSystem
-import org.apache.pekko.actor.{Cancellable, PoisonPill}
+import org.apache.pekko.actor.Cancellable
 import org.apache.pekko.stream.OverflowStrategy
-import org.apache.pekko.stream.scaladsl.{Sink, Source}
+import org.apache.pekko.stream.scaladsl.{Flow, Sink, Source}
+import org.apache.pekko.{Done, NotUsed}
 import csw.event.api.exceptions.PublishFailure
+import csw.event.api.scaladsl.PublishOverflowPolicy
 import csw.params.events.Event
 
+import scala.collection.immutable
 import scala.concurrent.duration.FiniteDuration
 import scala.concurrent.{Future, Promise}
 import scala.util.control.NonFatal
+import scala.util.{Failure, Success, Try}
 
 /**
  * Utility class to provided common functionalities to different implementations of EventPublisher
+ *
+ * @param settings event service settings which determine the capacity of the publish queue
+ * @param metrics records the events dropped by the publish queue, and the counters of the queue
+ * @param overflowPolicy what the publish queue does with events published while it is full
  */
-private[event] class EventPublisherUtil(implicit actorSystem: ActorSystem[?]) {
+private[event] class EventPublisherUtil(settings: Settings, metrics: EventMetrics, overflowPolicy: PublishOverflowPolicy)(
+    implicit actorSystem: ActorSystem[?]
+) {
 
   private val logger = EventServiceLogger.getLogger
 
   import EventStreamSupervisionStrategy.attributes
   import actorSystem.executionContext
 
-  lazy val (actorRef, stream) = Source
-    .actorRef[(Event, Promise[Done])](
-      PartialFunction.empty,
-      PartialFunction.empty,
-      1024,
-      OverflowStrategy.dropHead
-    )
-    .preMaterialize()
+  private val LaneBufferSize = 16
 
-  def streamTermination(f: Event => Future[Done]): Future[Done] =
+  private val publishQueue =
+    new PublishQueue(settings.publishQueueSize, overflowPolicy, event => metrics.recordDropped(event.eventKey))
+
+  metrics.addPublishQueue(publishQueue)
+
+  private def stream = publishQueue.source
+
+  // an entry of the queue with many events, queued by publishAll, is published with `publishBatch` if given. With lanes, its
+  // events are split by lane, so that they are published in order with the other events of their keys.
+  def streamTermination(
+      f: Event => Future[Done],
+      parallelism: Int,
+      keyParallelism: Int = 1,
+      publishBatch: Option[immutable.Seq[Event] => Future[immutable.Seq[Try[Done]]]] = None
+  ): Future[Done] =
     stream
-      .mapAsync(1) { case (e, p) =>
-        f(e).map(p.trySuccess).recover { case ex =>
-          p.tryFailure(ex)
-        }
-      }
+      .mapConcat(entries => if (keyParallelism <= 1) List(entries) else entries.groupBy(e => lane(e._1, keyParallelism)).values)
+      .via(perKey[immutable.Seq[(Event, Promise[Done])], Done](parallelism, keyParallelism)(_.head._1) {
+        case Seq((e, p)) => complete(f(e), p)
+        case entries     =>
+          publishBatch match {
+            case Some(publishBatch) => completeBatch(publishBatch, entries)
+            case None               =>
+              entries.foldLeft(Future.successful(Done)) { case (previous, (e, p)) => previous.flatMap(_ => complete(f(e), p)) }
+          }
+      })
       .runForeach(_ => ())
+      .andThen { case _ => metrics.removePublishQueue(publishQueue) }
+
+  // entries of the queue are batched as a whole, hence the events of a publishAll are published in a single batch
+  def batchedStreamTermination(
+      batching: Flow[immutable.Seq[(Event, Promise[Done])], immutable.Seq[immutable.Seq[(Event, Promise[Done])]], NotUsed],
+      publishBatch: immutable.Seq[Event] => Future[immutable.Seq[Try[Done]]]
+  ): Future[Done] =
+    stream
+      .via(batching)
+      .mapAsync(1)(batch => completeBatch(publishBatch, batch.flatten))
+      .runForeach(_ => ())
+      .andThen { case _ => metrics.removePublishQueue(publishQueue) }
+
+  private def complete(published: Future[Done], p: Promise[Done]): Future[Done] =
+    published.transform { result =>
+      p.tryComplete(result)
+      Success(Done)
+    }
+
+  private def completeBatch(
+      publishBatch: immutable.Seq[Event] => Future[immutable.Seq[Try[Done]]],
+      batch: immutable.Seq[(Event, Promise[Done])]
+  ): Future[Done] =
+    publishBatch(batch.map(_._1))
+      .map(results => batch.zip(results).foreach { case ((_, p), result) => p.tryComplete(result) })
+      .recover { case ex => batch.foreach { case (_, p) => p.tryFailure(ex) } }
+      .map(_ => Done)
+
+  // groups elements while downstream is busy, or for the `linger` duration if it is non zero
+  def batching[T](maxBatchSize: Int, linger: FiniteDuration): Flow[T, immutable.Seq[T], NotUsed] =
+    if (linger.length == 0) Flow[T].batch(maxBatchSize, Vector(_))(_ :+ _)
+    else Flow[T].groupedWithin(maxBatchSize, linger)
+
+  // with a `keyParallelism` of more than 1, elements are spread by their event key over that many lanes, which publish
+  // concurrently one element at a time. All events of a key are in the same lane, hence published in order.
+  private def perKey[T, R](parallelism: Int, keyParallelism: Int)(event: T => Event)(f: T => Future[R]): Flow[T, R, NotUsed] =
+    if (keyParallelism <= 1) Flow[T].mapAsync(parallelism)(f)
+    else
+      Flow[T]
+        .groupBy(keyParallelism, t => lane(event(t), keyParallelism))
+        // a few events are buffered per lane, so that a lane waiting on a slow publish does not hold up the others
+        .buffer(LaneBufferSize, OverflowStrategy.backpressure)
+        .mapAsync(1)(f)
+        .mergeSubstreams
+
+  private def lane(event: Event, keyParallelism: Int): Int = Math.floorMod(event.eventKey.hashCode, keyParallelism)
 
   private def tick(initialDelay: FiniteDuration, every: FiniteDuration): Source[Unit, Cancellable] = {
     // buffer size of the queue should be 0 so as to follow the semantics of Source.tick
@@ -68,10 +135,29 @@ private[event] class EventPublisherUtil(implicit actorSystem: ActorSystem[?]) {
       source: Source[Event, Mat],
       parallelism: Int,
       publish: Event => Future[Done],
+      maybeOnError: Option[PublishFailure => Unit],
+      keyParallelism: Int = 1
+  ): Mat =
+    source
+      .via(perKey[Event, Done](parallelism, keyParallelism)(identity)(publishWithRecovery(_, publish, maybeOnError)))
+      .withAttributes(attributes)
+      .to(Sink.ignore)
+      .run()
+
+  def publishBatchesFromSource[Mat](
+      source: Source[Event, Mat],
+      batching: Flow[Event, immutable.Seq[Event], NotUsed],
+      publishBatch: immutable.Seq[Event] => Future[immutable.Seq[Try[Done]]],
       maybeOnError: Option[PublishFailure => Unit]
   ): Mat =
     source
-      .mapAsync(parallelism) { event => publishWithRecovery(event, publish, maybeOnError) }
+      .via(batching)
+      .mapAsync(1) { events =>
+        publishBatch(events).map(_.foreach {
+          case Failure(failure @ PublishFailure(_, _)) => maybeOnError.foreach(onError => onError(failure))
+          case _                                       =>
+        })
+      }
       .withAttributes(attributes)
       .to(Sink.ignore)
       .run()
@@ -84,14 +170,28 @@ private[event] class EventPublisherUtil(implicit actorSystem: ActorSystem[?]) {
 
   def logError(failure: PublishFailure): Unit = logger.error(failure.getMessage, ex = failure)
 
-  def publish(event: Event, isStreamTerminated: Boolean): Future[Done] = {
-    val p = Promise[Done]()
-    if (isStreamTerminated) p.tryFailure(PublishFailure(event, new RuntimeException("Publisher is shutdown")))
-    else actorRef ! ((event, p))
-    p.future
-  }
+  def publish(event: Event, isStreamTerminated: Boolean): Future[Done] =
+    if (isStreamTerminated) Future.failed(PublishFailure(event, new RuntimeException("Publisher is shutdown")))
+    else publishQueue.offer(event)
+
+  // the events are queued as a single entry, see [[PublishQueue]]
+  def publishAll(events: immutable.Seq[Event], isStreamTerminated: Boolean): Future[List[PublishFailure]] =
+    if (events.isEmpty) Future.successful(Nil)
+    else {
+      val published: immutable.Seq[Future[Done]] =
+        if (isStreamTerminated) events.map(event => publish(event, isStreamTerminated))
+        else publishQueue.offerAll(events)
+      val failures = published.zip(events).map { case (result, event) =>
+        result.transform {
+          case Success(_)                  => Success(None)
+          case Failure(ex: PublishFailure) => Success(Some(ex))
+          case Failure(ex)                 => Success(Some(PublishFailure(event, ex)))
+        }
+      }
+      Future.sequence(failures).map(_.flatten.toList)
+    }
 
-  def shutdown(): Unit = actorRef ! PoisonPill
+  def shutdown(): Unit = publishQueue.close()
 
   // log error for any exception from provided eventGenerator
   private def withErrorLogging(eventGenerator: => Future[Option[Event]]): Future[Event] =
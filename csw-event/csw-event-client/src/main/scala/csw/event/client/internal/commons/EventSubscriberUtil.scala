@@ -6,22 +6,28 @@
 package csw.event.client.internal.commons
 
 import org.apache.pekko.actor.typed.{ActorRef, ActorSystem}
-import org.apache.pekko.stream.FlowShape
 import org.apache.pekko.stream.scaladsl.{Keep, Sink, Source}
 import org.apache.pekko.stream.stage.GraphStage
-import csw.event.api.scaladsl.SubscriptionModes.{RateAdapterMode, RateLimiterMode}
-import csw.event.api.scaladsl.{EventSubscription, SubscriptionMode}
+import org.apache.pekko.stream.{FlowShape, OverflowStrategy}
+import csw.event.api.scaladsl.CallbackOrderings.{InOrder, InOrderPerKey, Unordered}
+import csw.event.api.scaladsl.SubscriptionModes.{AggregationMode, RateAdapterMode, RateLimiterMode}
+import csw.event.api.scaladsl.{CallbackOrdering, EventSubscription, SubscriptionMode}
 import csw.event.client.internal.commons.EventStreamSupervisionStrategy.attributes
-import csw.event.client.internal.commons.throttle.{RateAdapterStage, RateLimiterStage}
+import csw.event.client.internal.commons.throttle.{AggregationStage, RateAdapterStage, RateLimiterStage}
 import csw.params.events.Event
 
-import scala.concurrent.Future
+import scala.concurrent.{ExecutionContext, Future}
 import scala.concurrent.duration.FiniteDuration
 
 /**
  * Utility class to provided common functionalities to different implementations of EventSubscriber
+ *
+ * @param onCallbackDone called with every event whose asynchronous callback completed, along with how long the callback took
+ *                       in nanoseconds
  */
-class EventSubscriberUtil(implicit actorSystem: ActorSystem[?]) {
+class EventSubscriberUtil(onCallbackDone: (Event, Long) => Unit = (_, _) => ())(implicit actorSystem: ActorSystem[?]) {
+
+  private val LaneBufferSize = 16
 
   def subscriptionModeStage(
       every: FiniteDuration,
@@ -30,10 +36,35 @@ class EventSubscriberUtil(implicit actorSystem: ActorSystem[?]) {
     mode match {
       case RateAdapterMode => new RateAdapterStage[Event](every)
       case RateLimiterMode => new RateLimiterStage[Event](every)
+      case AggregationMode => new AggregationStage(every)
     }
 
   def subscribeAsync(eventSource: Source[Event, EventSubscription], callback: Event => Future[?]): EventSubscription =
-    eventSource.mapAsync(1)(x => callback(x)).withAttributes(attributes).to(Sink.ignore).run()
+    subscribeAsync(eventSource, callback, 1, InOrder)
+
+  // with `InOrderPerKey`, events are spread by their event key over `parallelism` lanes, each running one callback at a time
+  def subscribeAsync(
+      eventSource: Source[Event, EventSubscription],
+      callback: Event => Future[?],
+      parallelism: Int,
+      ordering: CallbackOrdering
+  ): EventSubscription = {
+    require(parallelism > 0, s"parallelism of callbacks must be positive, but was $parallelism")
+    val timedCallback = timed(callback)
+    val callbacks     = ordering match {
+      case InOrder                           => eventSource.mapAsync(parallelism)(timedCallback)
+      case Unordered                         => eventSource.mapAsyncUnordered(parallelism)(timedCallback)
+      case InOrderPerKey if parallelism == 1 => eventSource.mapAsync(1)(timedCallback)
+      case InOrderPerKey =>
+        eventSource
+          .groupBy(parallelism, event => Math.floorMod(event.eventKey.hashCode, parallelism))
+          // a few events are buffered per lane, so that a lane waiting on a slow callback does not hold up the others
+          .buffer(LaneBufferSize, OverflowStrategy.backpressure)
+          .mapAsync(1)(timedCallback)
+          .mergeSubstreams
+    }
+    callbacks.withAttributes(attributes).to(Sink.ignore).run()
+  }
 
   def subscribeCallback(eventSource: Source[Event, EventSubscription], callback: Event => Unit): EventSubscription =
     eventSource.to(Sink.foreach(callback)).withAttributes(attributes).run()
@@ -42,4 +73,11 @@ class EventSubscriberUtil(implicit actorSystem: ActorSystem[?]) {
 
   def pSubscribe(stream: Source[Event, EventSubscription], callback: Event => Unit): EventSubscription =
     stream.toMat(Sink.foreach(callback))(Keep.left).withAttributes(attributes).run()
+
+  private def timed(callback: Event => Future[?]): Event => Future[Any] = { event =>
+    val startedAt = System.nanoTime()
+    val done      = callback(event)
+    done.onComplete(_ => onCallbackDone(event, System.nanoTime() - startedAt))(ExecutionContext.parasitic)
+    done
+  }
 }
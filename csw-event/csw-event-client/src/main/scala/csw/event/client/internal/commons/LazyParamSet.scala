@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.commons
+
+import java.nio.ByteBuffer
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+import csw.params.core.generics.{IndexedParamSet, KeyType, Parameter}
+import io.bullet.borer.Cbor.DecodingConfig
+import io.bullet.borer.{Cbor, Decoder, Reader}
+
+import scala.collection.immutable.{AbstractSet, HashSet}
+import scala.util.control.NonFatal
+
+/**
+ * Parameters of a received event which are decoded from the CBOR bytes of the event only when they are accessed.
+ *
+ * While decoding the event, only the key name, key type and position of every parameter are read. Looking up a parameter
+ * through [[csw.params.core.generics.ParameterSetType#get]] decodes just that parameter (once), while operations which need
+ * all the parameters, like iterating or comparing, decode all of them.
+ *
+ * Values of a parameter which can not be decoded are hence only found out once the parameter is accessed, which then throws
+ * an IllegalArgumentException, whereas an event decoded eagerly is replaced by a bad event as a whole.
+ */
+private[event] final class LazyParamSet private (entries: Array[LazyParamSet.Entry])
+    extends AbstractSet[Parameter[?]]
+    with IndexedParamSet {
+
+  @volatile private var eventBytes: Array[Byte] = scala.compiletime.uninitialized
+  private val decoded                           = new AtomicReferenceArray[Parameter[?]](entries.length)
+
+  // the bytes are only known once the whole event has been decoded, see EventConverter.toLazyEvent
+  private[commons] def bind(bytes: Array[Byte]): Unit = eventBytes = bytes
+
+  override def get[S](keyName: String, keyType: KeyType[S]): Option[Parameter[S]] = {
+    val index = entries.indexWhere(entry => entry.keyName == keyName && entry.keyType == keyType)
+    if (index < 0) None else Some(parameter(index).asInstanceOf[Parameter[S]])
+  }
+
+  override def contains(elem: Parameter[?]): Boolean =
+    entries.indices.exists { index =>
+      entries(index).keyName == elem.keyName && entries(index).keyType == elem.keyType && parameter(index) == elem
+    }
+
+  /**
+   * Decodes the parameters which were not accessed yet, e.g. on another thread than the one which decoded the event
+   */
+  def decodeAll(): Unit = {
+    var index = 0
+    while (index < entries.length) {
+      parameter(index)
+      index += 1
+    }
+  }
+
+  override def iterator: Iterator[Parameter[?]] = entries.indices.iterator.map(parameter)
+  override def size: Int                        = entries.length
+  override def knownSize: Int                   = entries.length
+
+  override def incl(elem: Parameter[?]): Set[Parameter[?]] = HashSet.from(iterator) + elem
+  override def excl(elem: Parameter[?]): Set[Parameter[?]] = HashSet.from(iterator) - elem
+
+  private def parameter(index: Int): Parameter[?] = {
+    val cached = decoded.get(index)
+    if (cached != null) cached
+    else {
+      val entry = entries(index)
+      // decoding is idempotent, hence concurrent first accesses can race without any harm
+      val param =
+        try LazyParamSet.decode(ByteBuffer.wrap(eventBytes, entry.start, entry.end - entry.start))
+        catch {
+          case NonFatal(ex) =>
+            throw new IllegalArgumentException(
+              s"Failed to decode parameter [${entry.keyName}] of type [${entry.keyType}] of a received event: ${ex.getMessage}",
+              ex
+            )
+        }
+      decoded.set(index, param)
+      param
+    }
+  }
+}
+
+private[event] object LazyParamSet {
+  import csw.params.core.formats.ParamCodecs.*
+
+  private[commons] final case class Entry(keyName: String, keyType: KeyType[?], start: Int, end: Int)
+
+  /**
+   * Reads parameters of an event without decoding their values, which are skipped over.
+   * Each parameter is encoded as `{KeyTypeName: {keyName, values, units}}`.
+   */
+  val decoder: Decoder[Set[Parameter[?]]] = { (r: Reader) =>
+    val entries = Array.newBuilder[Entry]
+    if (r.hasArrayHeader) {
+      val size = r.readArrayHeader()
+      var i    = 0L
+      while (i < size) {
+        entries += readEntry(r)
+        i += 1
+      }
+    }
+    else {
+      r.readArrayStart()
+      while (!r.tryReadBreak()) entries += readEntry(r)
+    }
+    new LazyParamSet(entries.result())
+  }
+
+  private def readEntry(r: Reader): Entry = {
+    val start      = r.cursor.toInt
+    val indefinite = !r.tryReadMapHeader(1) && r.tryReadMapStart()
+    val keyType    = KeyType.withNameInsensitive(r.readString())
+    var keyName    = ""
+    readMap(r) { field =>
+      if (field == "keyName") keyName = r.readString()
+      else r.skipElement()
+    }
+    if (indefinite) r.tryReadBreak()
+    Entry(keyName, keyType, start, r.cursor.toInt)
+  }
+
+  private def readMap(r: Reader)(readField: String => Unit): Unit =
+    if (r.hasMapHeader) {
+      val size = r.readMapHeader()
+      var i    = 0L
+      while (i < size) {
+        readField(r.readString())
+        i += 1
+      }
+    }
+    else {
+      r.readMapStart()
+      while (!r.tryReadBreak()) readField(r.readString())
+    }
+
+  private def decode(bytes: ByteBuffer): Parameter[?] =
+    Cbor.decode(bytes).withConfig(DecodingConfig(readDoubleAlsoAsFloat = true)).to[Parameter[?]].value
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.commons
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong, AtomicLongArray, AtomicReference, AtomicReferenceArray, LongAdder}
+
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.{Done, NotUsed}
+import csw.event.api.exceptions.PublishFailure
+import csw.event.api.scaladsl.{PublishOverflowPolicies, PublishOverflowPolicy}
+import csw.event.client.models.PublishQueueMetrics
+import csw.params.events.Event
+
+import scala.collection.immutable
+import scala.concurrent.duration.{DurationLong, FiniteDuration}
+import scala.concurrent.{ExecutionContext, Future, Promise}
+
+/**
+ * Queue of events published with `publish(event)` and `publishAll(events)`, from which the publisher's stream takes them
+ * entry by entry to send them to the event server. The events of a `publishAll` make a single entry, which takes a single
+ * slot and is published as a whole, in order with the entries queued before and after it. It is bounded by `capacity`
+ * entries, entries queued while it is full are handled as per `overflowPolicy`. Every event dropped by the policy is passed
+ * to `onDropped`. With the backpressure policy, at most `capacity` more entries wait for room.
+ *
+ * Publishing never takes a lock, as the queue is a bounded array ring in which producers and the consumer claim slots with
+ * a compare and swap of a position counter.
+ */
+private[event] class PublishQueue(capacity: Int, overflowPolicy: PublishOverflowPolicy, onDropped: Event => Unit) {
+  import PublishOverflowPolicies._
+  import PublishQueue._
+
+  private val logger = EventServiceLogger.getLogger
+
+  private val ring         = new BoundedRing[Pending](capacity)
+  private val waiting      = new ConcurrentLinkedQueue[Pending]() // only used by the backpressure policy
+  private val waitingCount = new AtomicInteger
+
+  private val waitingConsumer = new AtomicReference[Promise[Unit]]()
+  @volatile private var closed = false
+
+  private val offered        = new LongAdder
+  private val dropped        = new LongAdder
+  private val rejected       = new LongAdder
+  private val published      = new LongAdder
+  private val totalLatencyNs = new LongAdder
+  private val maxLatencyNs   = new AtomicLong
+
+  def offer(event: Event): Future[Done] = offerAll(event :: Nil).head
+
+  /**
+   * Queues all events as a single entry
+   *
+   * @return a future for every event, in the given order, which completes once the event is published
+   */
+  def offerAll(events: immutable.Seq[Event]): immutable.Seq[Future[Done]] = {
+    val pending = Pending(events.map(_ -> Promise[Done]()), System.nanoTime())
+    if (closed) reject(pending, "Publisher is shutdown")
+    else {
+      offered.add(events.size)
+      pending.entries.foreach { case (_, promise) =>
+        promise.future.foreach(_ => recordLatency(pending))(using ExecutionContext.parasitic)
+      }
+      if (!enqueue(pending)) overflow(pending)
+      wakeUpConsumer()
+    }
+    pending.entries.map { case (_, promise) => promise.future }
+  }
+
+  /**
+   * Entries in the order in which they were queued, each event of an entry along with the promise to be completed once it is
+   * published. The source completes once the queue is closed and all entries queued before are taken.
+   */
+  def source(implicit ec: ExecutionContext): Source[immutable.Seq[(Event, Promise[Done])], NotUsed] =
+    Source.unfoldAsync(())(_ => take().map(_.map(pending => ((), pending.entries))))
+
+  def close(): Unit = {
+    closed = true
+    wakeUpConsumer()
+  }
+
+  def metrics: PublishQueueMetrics = {
+    val count = published.sum()
+    PublishQueueMetrics(
+      depth = ring.size + waitingCount.get(),
+      offered = offered.sum(),
+      dropped = dropped.sum(),
+      rejected = rejected.sum(),
+      published = count,
+      meanLatency = (if (count == 0) 0L else totalLatencyNs.sum() / count).nanos,
+      maxLatency = maxLatencyNs.get().nanos
+    )
+  }
+
+  // events waiting for room have to be published before newer ones, hence these go behind them
+  private def enqueue(pending: Pending): Boolean =
+    if (overflowPolicy == Backpressure && !waiting.isEmpty) false else ring.offer(pending)
+
+  private def overflow(pending: Pending): Unit =
+    overflowPolicy match {
+      case DropOldest =>
+        // other producers can fill up the freed slot in the meantime, in which case their event is dropped instead
+        val oldest = ring.poll()
+        if (oldest != null) drop(oldest)
+        if (!ring.offer(pending)) drop(pending)
+      case DropNewest   => drop(pending)
+      case FailFast     => reject(pending, s"Publish queue is full, capacity: $capacity")
+      case Backpressure =>
+        if (waitingCount.incrementAndGet() <= capacity) waiting.add(pending)
+        else {
+          waitingCount.decrementAndGet()
+          reject(pending, s"Publish queue is full and as many events are waiting for room, capacity: $capacity")
+        }
+    }
+
+  private def drop(pending: Pending): Unit = {
+    val droppedBefore = dropped.sum()
+    dropped.add(pending.entries.size)
+    val droppedSoFar = dropped.sum()
+    // logs on the 1st, 2nd, 4th, 8th, ... dropped event, so that a publisher which is always too fast does not flood the logs
+    if (java.lang.Long.highestOneBit(droppedSoFar) > droppedBefore)
+      logger.warn(s"Publish queue is full, dropped $droppedSoFar events so far as per ${overflowPolicy.name} policy")
+    val cause = new RuntimeException(s"Publish queue is full, dropped as per ${overflowPolicy.name} policy")
+    pending.entries.foreach { case (event, promise) =>
+      onDropped(event)
+      promise.tryFailure(PublishFailure(event, cause))
+    }
+  }
+
+  private def reject(pending: Pending, reason: String): Unit = {
+    rejected.add(pending.entries.size)
+    pending.entries.foreach { case (event, promise) => promise.tryFailure(PublishFailure(event, new RuntimeException(reason))) }
+  }
+
+  private def recordLatency(pending: Pending): Unit = {
+    val latencyNs = System.nanoTime() - pending.enqueuedAtNs
+    published.increment()
+    totalLatencyNs.add(latencyNs)
+    maxLatencyNs.accumulateAndGet(latencyNs, (max, latency) => Math.max(max, latency))
+  }
+
+  private def poll(): Pending = {
+    val pending = ring.poll()
+    if (pending != null) pending
+    else {
+      val waited = waiting.poll()
+      if (waited != null) waitingCount.decrementAndGet()
+      waited
+    }
+  }
+
+  private def take()(implicit ec: ExecutionContext): Future[Option[Pending]] = {
+    val pending = poll()
+    if (pending != null) Future.successful(Some(pending))
+    else if (closed) Future.successful(None)
+    else {
+      val wakeUp = Promise[Unit]()
+      waitingConsumer.set(wakeUp)
+      // an event offered before the consumer started waiting would not wake it up, hence look again
+      val pendingNow = poll()
+      if (pendingNow != null) {
+        waitingConsumer.compareAndSet(wakeUp, null)
+        Future.successful(Some(pendingNow))
+      }
+      else if (closed) Future.successful(None)
+      else wakeUp.future.flatMap(_ => take())
+    }
+  }
+
+  private def wakeUpConsumer(): Unit = {
+    val wakeUp = waitingConsumer.getAndSet(null)
+    if (wakeUp != null) wakeUp.trySuccess(())
+  }
+}
+
+private[event] object PublishQueue {
+
+  private case class Pending(entries: immutable.Seq[(Event, Promise[Done])], enqueuedAtNs: Long)
+
+  /**
+   * Bounded multi producer queue backed by an array, as described by Dmitry Vyukov.
+   * Every slot has a sequence number telling whether it is free to be written or ready to be read at a given position.
+   * Polling is safe from multiple threads as well, which lets producers drop the oldest element.
+   */
+  private[commons] final class BoundedRing[T <: AnyRef](capacity: Int) {
+    require(capacity > 0, "capacity of the publish queue should be positive")
+
+    private val sequences   = new AtomicLongArray(capacity)
+    private val elements    = new AtomicReferenceArray[T](capacity)
+    private val enqueuedPos = new AtomicLong
+    private val dequeuedPos = new AtomicLong
+
+    (0 until capacity).foreach(i => sequences.set(i, i))
+
+    def offer(elem: T): Boolean = {
+      var pos = enqueuedPos.get()
+      while (true) {
+        val index = (pos % capacity).toInt
+        val diff  = sequences.get(index) - pos
+        if (diff == 0) {
+          if (enqueuedPos.compareAndSet(pos, pos + 1)) {
+            elements.set(index, elem)
+            sequences.set(index, pos + 1)
+            return true
+          }
+          pos = enqueuedPos.get()
+        }
+        else if (diff < 0) return false // full
+        else pos = enqueuedPos.get()
+      }
+      false
+    }
+
+    // returns null when empty
+    def poll(): T = {
+      var pos = dequeuedPos.get()
+      while (true) {
+        val index = (pos % capacity).toInt
+        val diff  = sequences.get(index) - (pos + 1)
+        if (diff == 0) {
+          if (dequeuedPos.compareAndSet(pos, pos + 1)) {
+            val elem = elements.getAndSet(index, null.asInstanceOf[T])
+            sequences.set(index, pos + capacity)
+            return elem
+          }
+          pos = dequeuedPos.get()
+        }
+        else if (diff < 0) return null.asInstanceOf[T] // empty
+        else pos = dequeuedPos.get()
+      }
+      null.asInstanceOf[T]
+    }
+
+    def size: Int = Math.max(0, Math.min(capacity.toLong, enqueuedPos.get() - dequeuedPos.get())).toInt
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.commons
+
+import com.typesafe.config.Config
+import csw.event.api.scaladsl.{PublishOverflowPolicies, PublishOverflowPolicy}
+
+import scala.concurrent.duration.FiniteDuration
+import scala.jdk.DurationConverters.*
+
+private[event] class Settings(config: Config) {
+
+  private val eventConfig          = config.getConfig("csw-event")
+  private val publishQueueConfig   = eventConfig.getConfig("publisher.queue")
+  private val publisherConfig      = eventConfig.getConfig("redis.publisher")
+  private val subscriberConfig     = eventConfig.getConfig("redis.subscriber")
+  private val failoverConfig       = eventConfig.getConfig("redis.failover")
+  private val streamsConfig        = eventConfig.getConfig("redis-streams")
+  private val highThroughputConfig = eventConfig.getConfig("kafka.publisher.high-throughput")
+  private val latestValueConfig    = eventConfig.getConfig("kafka.subscriber.latest-value-cache")
+  private val metricsConfig        = eventConfig.getConfig("metrics")
+
+  val masterId: String = eventConfig.getString("redis.masterId")
+
+  val publishQueueSize: Int = publishQueueConfig.getInt("size")
+  val publishOverflowPolicy: PublishOverflowPolicy =
+    PublishOverflowPolicies.withName(publishQueueConfig.getString("overflow-policy"))
+
+  val pipeliningEnabled: Boolean  = publisherConfig.getBoolean("pipelining.enabled")
+  val maxBatchSize: Int           = publisherConfig.getInt("pipelining.max-batch-size")
+  val batchLinger: FiniteDuration = publisherConfig.getDuration("pipelining.linger").toScala
+
+  val keyParallelism: Int = publisherConfig.getInt("key-parallelism")
+
+  val deltaEncodingEnabled: Boolean = publisherConfig.getBoolean("delta-encoding.enabled")
+  val keyframeInterval: Int         = publisherConfig.getInt("delta-encoding.keyframe-interval")
+  val maxKeyframes: Int             = publisherConfig.getInt("delta-encoding.max-keyframes")
+
+  val subscriptionBufferSize: Int    = subscriberConfig.getInt("buffer-size")
+  val lazyParamDecoding: Boolean     = subscriberConfig.getBoolean("lazy-param-decoding")
+  val conflateSubscriptions: Boolean = subscriberConfig.getBoolean("conflate")
+  val decodeParallelism: Int         = subscriberConfig.getInt("decode-parallelism")
+
+  val nearCacheEnabled: Boolean                  = subscriberConfig.getBoolean("near-cache.enabled")
+  val nearCacheMaxEntries: Int                   = subscriberConfig.getInt("near-cache.max-entries")
+  val nearCacheExpireAfterAccess: FiniteDuration = subscriberConfig.getDuration("near-cache.expire-after-access").toScala
+
+  val failoverPublishTimeout: FiniteDuration = failoverConfig.getDuration("publish-timeout").toScala
+  val failoverRetryInterval: FiniteDuration  = failoverConfig.getDuration("retry-interval").toScala
+
+  val streamMaxLength: Long           = streamsConfig.getLong("max-length")
+  val streamReadCount: Long           = streamsConfig.getLong("read-count")
+  val streamReadBlock: FiniteDuration = streamsConfig.getDuration("read-block").toScala
+  val streamReadConnections: Int      = streamsConfig.getInt("read-connections")
+
+  val highThroughputEnabled: Boolean = highThroughputConfig.getBoolean("enabled")
+  val producerLinger: FiniteDuration = highThroughputConfig.getDuration("linger").toScala
+  val producerBatchSize: Int         = highThroughputConfig.getInt("batch-size")
+  val producerCompression: String    = highThroughputConfig.getString("compression")
+  val maxInFlightSends: Int          = highThroughputConfig.getInt("max-in-flight")
+
+  val latestValueCacheEnabled: Boolean       = latestValueConfig.getBoolean("enabled")
+  val latestValuePollTimeout: FiniteDuration = latestValueConfig.getDuration("poll-timeout").toScala
+  val latestValueLoadTimeout: FiniteDuration = latestValueConfig.getDuration("load-timeout").toScala
+
+  val metricsLogInterval: FiniteDuration = metricsConfig.getDuration("log-interval").toScala
+}
@@ -6,6 +6,7 @@
 package csw.event.client.internal.commons.javawrappers
 
 import java.time.Duration
+import java.util
 import java.util.Optional
 import java.util.concurrent.CompletableFuture
 import java.util.function.{Consumer, Supplier}
@@ -20,6 +21,8 @@ import csw.params.events.Event
 import csw.params.extensions.OptionConverters.RichOptional
 import csw.time.core.models.TMTTime
 
+import scala.concurrent.ExecutionContext
+import scala.jdk.CollectionConverters.*
 import scala.jdk.DurationConverters.*
 import scala.jdk.FunctionConverters.*
 import scala.jdk.FutureConverters.*
@@ -30,6 +33,9 @@ import scala.jdk.FutureConverters.*
 private[event] class JEventPublisher(eventPublisher: EventPublisher) extends IEventPublisher {
   override def publish(event: Event): CompletableFuture[Done] = eventPublisher.publish(event).asJava.toCompletableFuture
 
+  override def publishAll(events: util.List[Event]): CompletableFuture[util.List[PublishFailure]] =
+    eventPublisher.publishAll(events.asScala.toList).map(_.asJava)(ExecutionContext.parasitic).asJava.toCompletableFuture
+
   override def publish[Mat](source: Source[Event, Mat]): Mat = eventPublisher.publish(source.asScala)
 
   override def publish[Mat](source: Source[Event, Mat], onError: Consumer[PublishFailure]): Mat =
@@ -6,7 +6,7 @@
 package csw.event.client.internal.commons.javawrappers
 
 import csw.event.api.javadsl.IEventService
-import csw.event.api.scaladsl.EventService
+import csw.event.api.scaladsl.{EventService, PublishOverflowPolicy}
 
 /**
  * Java API for [[csw.event.api.scaladsl.EventService]]
@@ -15,6 +15,9 @@ class JEventService(eventService: EventService) extends IEventService {
 
   override def makeNewPublisher(): JEventPublisher = new JEventPublisher(eventService.makeNewPublisher())
 
+  override def makeNewPublisher(overflowPolicy: PublishOverflowPolicy): JEventPublisher =
+    new JEventPublisher(eventService.makeNewPublisher(overflowPolicy))
+
   override def makeNewSubscriber(): JEventSubscriber = new JEventSubscriber(eventService.defaultSubscriber)
 
   override def asScala: EventService = eventService
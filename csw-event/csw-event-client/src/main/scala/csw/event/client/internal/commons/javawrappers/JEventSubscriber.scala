@@ -16,7 +16,7 @@ import org.apache.pekko.stream.javadsl.Source
 import csw.params.events.{Event, EventKey}
 import csw.event.api.internal.EventServiceExts.RichEventSubscription
 import csw.event.api.javadsl.{IEventSubscriber, IEventSubscription}
-import csw.event.api.scaladsl.{EventSubscriber, EventSubscription, SubscriptionMode}
+import csw.event.api.scaladsl.{CallbackOrdering, EventSubscriber, EventSubscription, SubscriptionMode}
 import csw.prefix.models.Subsystem
 
 import scala.jdk.CollectionConverters.*
@@ -59,6 +59,16 @@ class JEventSubscriber(eventSubscriber: EventSubscriber) extends IEventSubscribe
       .subscribeAsync(eventKeys.asScala.toSet, e => callback(e).asScala, every.toScala, mode)
       .asJava
 
+  def subscribeAsync(
+      eventKeys: util.Set[EventKey],
+      callback: Event => CompletableFuture[?],
+      parallelism: Int,
+      ordering: CallbackOrdering
+  ): IEventSubscription =
+    eventSubscriber
+      .subscribeAsync(eventKeys.asScala.toSet, e => callback(e).asScala, parallelism, ordering)
+      .asJava
+
   def subscribeCallback(eventKeys: util.Set[EventKey], callback: Consumer[Event]): IEventSubscription =
     eventSubscriber.subscribeCallback(eventKeys.asScala.toSet, e => callback.accept(e)).asJava
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.commons.throttle
+
+import org.apache.pekko.stream.stage.*
+import org.apache.pekko.stream.{Attributes, FlowShape, Inlet, Outlet}
+import csw.params.core.generics.KeyType.{DoubleKey, LongKey}
+import csw.params.core.generics.{KeyType, Parameter}
+import csw.params.events.{Event, EventKey}
+
+import scala.collection.mutable
+import scala.concurrent.duration.FiniteDuration
+
+/**
+ * Stream processing stage which summarises the events received in every window of `delay`. At the end of a window, one
+ * event is pushed for every event key which received events during the window. It is the last received event of that key,
+ * along with the following parameters for each of its numeric parameters `p`, computed over all values of `p` received
+ * during the window:
+ *
+ *  - `p_min`, `p_max` and `p_mean` as [[csw.params.core.generics.KeyType.DoubleKey]] in the units of `p`
+ *  - `p_count` as [[csw.params.core.generics.KeyType.LongKey]]
+ *
+ * Numeric parameters are those of the Byte, Short, Int, Long, Float and Double key types. Their values are accumulated as
+ * they are received, without keeping the events of the window around.
+ *
+ * @param delay the duration of a window
+ */
+private[event] class AggregationStage(delay: FiniteDuration) extends GraphStage[FlowShape[Event, Event]] {
+  import AggregationStage._
+
+  final val in    = Inlet.create[Event]("Aggregation.in")
+  final val out   = Outlet.create[Event]("Aggregation.out")
+  final val shape = FlowShape.of(in, out)
+
+  override def createLogic(inheritedAttributes: Attributes): GraphStageLogic =
+    new TimerGraphStageLogic(shape) {
+      // accumulators are kept across windows, so that events of known keys do not allocate new ones
+      private val windows = mutable.LinkedHashMap.empty[EventKey, Window]
+
+      override def preStart(): Unit = {
+        scheduleAtFixedRate(None, delay, delay)
+        pull(in)
+      }
+
+      setHandler(
+        in,
+        new InHandler {
+          override def onPush(): Unit = {
+            val event = grab(in)
+            windows.getOrElseUpdate(event.eventKey, new Window).add(event)
+            pull(in)
+          }
+
+          override def onUpstreamFinish(): Unit = {
+            emitMultiple(out, summaries())
+            completeStage()
+          }
+        }
+      )
+
+      setHandler(
+        out,
+        new OutHandler {
+          override def onPull(): Unit = ()
+        }
+      )
+
+      override def onTimer(key: Any): Unit = emitMultiple(out, summaries())
+
+      private def summaries(): List[Event] = windows.valuesIterator.flatMap(_.summary()).toList
+    }
+}
+
+private[throttle] object AggregationStage {
+
+  // min, max, sum and count of the values of one numeric parameter in the current window
+  private final class Accumulator {
+    var min: Double = Double.MaxValue
+    var max: Double = -Double.MaxValue
+    var sum: Double = 0
+    var count: Long = 0
+
+    def add(value: Double): Unit = {
+      if (value < min) min = value
+      if (value > max) max = value
+      sum += value
+      count += 1
+    }
+
+    def reset(): Unit = {
+      min = Double.MaxValue
+      max = -Double.MaxValue
+      sum = 0
+      count = 0
+    }
+  }
+
+  // events of one event key received in the current window
+  private final class Window {
+    private var last: Event = scala.compiletime.uninitialized
+    private val accumulators = mutable.HashMap.empty[String, Accumulator]
+
+    def add(event: Event): Unit = {
+      last = event
+      event.paramSet.foreach(param => if (isNumeric(param.keyType)) accumulate(param))
+    }
+
+    // the summary of the window, which is then reset for the next one
+    def summary(): Option[Event] =
+      if (last == null) None
+      else {
+        val params = last.paramSet.iterator.flatMap { param =>
+          accumulators.get(param.keyName) match {
+            case Some(acc) if acc.count > 0 =>
+              val units = param.units
+              Iterator(
+                DoubleKey.make(s"${param.keyName}_min", units).set(acc.min),
+                DoubleKey.make(s"${param.keyName}_max", units).set(acc.max),
+                DoubleKey.make(s"${param.keyName}_mean", units).set(acc.sum / acc.count),
+                LongKey.make(s"${param.keyName}_count").set(acc.count)
+              )
+            case _ => Iterator.empty
+          }
+        }.toSet
+        val summaryEvent = last.madd(params)
+        last = null
+        accumulators.valuesIterator.foreach(_.reset())
+        Some(summaryEvent)
+      }
+
+    private def accumulate(param: Parameter[?]): Unit = {
+      val acc = accumulators.getOrElseUpdate(param.keyName, new Accumulator)
+      // values of numeric parameters are held in arrays of primitives, which are read without boxing
+      param.items.array match {
+        case values: Array[Byte] =>
+          var i = 0
+          while (i < values.length) {
+            acc.add(values(i).toDouble)
+            i += 1
+          }
+        case values: Array[Short] =>
+          var i = 0
+          while (i < values.length) {
+            acc.add(values(i).toDouble)
+            i += 1
+          }
+        case values: Array[Int] =>
+          var i = 0
+          while (i < values.length) {
+            acc.add(values(i).toDouble)
+            i += 1
+          }
+        case values: Array[Long] =>
+          var i = 0
+          while (i < values.length) {
+            acc.add(values(i).toDouble)
+            i += 1
+          }
+        case values: Array[Float] =>
+          var i = 0
+          while (i < values.length) {
+            acc.add(values(i).toDouble)
+            i += 1
+          }
+        case values: Array[Double] =>
+          var i = 0
+          while (i < values.length) {
+            acc.add(values(i))
+            i += 1
+          }
+        case _ =>
+      }
+    }
+  }
+
+  private def isNumeric(keyType: KeyType[?]): Boolean =
+    keyType match {
+      case KeyType.ByteKey | KeyType.ShortKey | KeyType.IntKey | KeyType.LongKey | KeyType.FloatKey | KeyType.DoubleKey => true
+      case _                                                                                                              => false
+    }
+}
@@ -10,8 +10,10 @@ import java.util.UUID
 import org.apache.pekko.actor.typed.ActorSystem
 import org.apache.pekko.actor.typed.scaladsl.adapter.TypedActorSystemOps
 import org.apache.pekko.kafka.{ConsumerSettings, ProducerSettings}
-import csw.event.api.scaladsl.EventService
+import csw.event.api.scaladsl.{EventService, PublishOverflowPolicy}
+import csw.event.client.internal.commons.{EventMetrics, Settings}
 import csw.event.client.internal.commons.serviceresolver.EventServiceResolver
+import org.apache.kafka.clients.producer.ProducerConfig
 
 import scala.concurrent.Future
 
@@ -20,21 +22,33 @@ import scala.concurrent.Future
  * and [[csw.event.api.scaladsl.EventSubscriber]] backed by Kafka
  *
  * @param eventServiceResolver to get the connection information of event service
+ * @param settings event service settings
+ * @param latestValueCache latest events shared with the other event services made for the same event server
+ * @param metrics records the publish queues of publishers
  * @param actorSystem actor system to be used by Producer and Consumer API of pekko-connectors-kafka
  */
 // $COVERAGE-OFF$
-private[event] class KafkaEventService(eventServiceResolver: EventServiceResolver)(implicit
-    actorSystem: ActorSystem[?]
-) extends EventService {
+private[event] class KafkaEventService(
+    eventServiceResolver: EventServiceResolver,
+    settings: Settings,
+    latestValueCache: KafkaLatestValueCache,
+    metrics: EventMetrics
+)(implicit actorSystem: ActorSystem[?])
+    extends EventService {
 
   import actorSystem.executionContext
-  override def makeNewPublisher(): KafkaPublisher   = new KafkaPublisher(producerSettings)
-  override def makeNewSubscriber(): KafkaSubscriber = new KafkaSubscriber(consumerSettings)
+  override def makeNewPublisher(): KafkaPublisher = makeNewPublisher(settings.publishOverflowPolicy)
+  override def makeNewPublisher(overflowPolicy: PublishOverflowPolicy): KafkaPublisher =
+    new KafkaPublisher(producerSettings, settings, metrics, overflowPolicy)
+  override def makeNewSubscriber(): KafkaSubscriber =
+    new KafkaSubscriber(consumerSettings, Option.when(settings.latestValueCacheEnabled)(latestValueCache))
 
   // resolve event service every time before creating a new publisher
   private def producerSettings: Future[ProducerSettings[String, Array[Byte]]] =
     eventServiceResolver.uri().map { uri =>
-      ProducerSettings(actorSystem.toClassic, None, None).withBootstrapServers(s"${uri.getHost}:${uri.getPort}")
+      val defaultSettings =
+        ProducerSettings(actorSystem.toClassic, None, None).withBootstrapServers(s"${uri.getHost}:${uri.getPort}")
+      KafkaEventService.withProfile(defaultSettings, settings)
     }
 
   // resolve event service every time before creating a new subscriber
@@ -46,4 +60,23 @@ private[event] class KafkaEventService(eventServiceResolver: EventServiceResolve
     }
 
 }
+
+private[kafka] object KafkaEventService {
+
+  // retries of an idempotent producer neither duplicate nor reorder the events of a partition
+  def withProfile(
+      producerSettings: ProducerSettings[String, Array[Byte]],
+      settings: Settings
+  ): ProducerSettings[String, Array[Byte]] =
+    if (!settings.highThroughputEnabled) producerSettings
+    else
+      producerSettings.withProperties(
+        ProducerConfig.LINGER_MS_CONFIG                             -> settings.producerLinger.toMillis.toString,
+        ProducerConfig.BATCH_SIZE_CONFIG                            -> settings.producerBatchSize.toString,
+        ProducerConfig.COMPRESSION_TYPE_CONFIG                      -> settings.producerCompression,
+        ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG                    -> "true",
+        ProducerConfig.ACKS_CONFIG                                  -> "all",
+        ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_CONFIG -> "5"
+      )
+}
 // $COVERAGE-ON$
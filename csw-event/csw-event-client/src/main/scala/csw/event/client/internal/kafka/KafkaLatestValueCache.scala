@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.kafka
+
+import java.util.concurrent.{ConcurrentHashMap, ConcurrentLinkedQueue}
+
+import org.apache.pekko.Done
+import org.apache.pekko.actor.typed.ActorSystem
+import org.apache.pekko.kafka.ConsumerSettings
+import csw.event.client.internal.commons.{EventConverter, EventServiceLogger}
+import csw.params.events.{Event, EventKey}
+import org.apache.kafka.clients.consumer.Consumer
+import org.apache.kafka.common.TopicPartition
+
+import scala.collection.mutable
+import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.jdk.CollectionConverters.*
+import scala.jdk.DurationConverters.*
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success}
+
+/**
+ * Keeps the latest event of every event key read with `get` through the Kafka event services which an
+ * [[csw.event.client.EventServiceFactory]] creates for the same event server, so that reading it again is answered from
+ * memory instead of setting up a subscription to the broker.
+ *
+ * A single consumer, polled on a dedicated thread, is assigned the partition of every such event key. When a key is read for
+ * the first time, its partition is assigned at the offset of the last published event, and the read completes once that
+ * event is received. From then on, every event published for the key replaces the cached one, i.e. the topics are read as a
+ * compacted log of which only the latest value of each key is kept. Reads of cached keys may hence miss events published
+ * less than a poll before.
+ *
+ * The last event of a partition may never be received, e.g. as it was compacted away. The first read of its key then
+ * completes after `loadTimeout` with an invalid event, which is replaced once an event of the key is received. A read of
+ * keys whose partitions can not be assigned, e.g. as their topics do not exist, fails without affecting other keys.
+ *
+ * @param pollTimeout how long the consumer waits for new events in a poll, which also bounds how long the first read of a key
+ *                    waits for its partition to be assigned
+ * @param loadTimeout how long the first read of a key waits for the end offset and the last event of its partition
+ * @param makeConsumer creates the consumer from the settings of the event server
+ * @param actorSystem to be used for performing asynchronous operations
+ */
+private[event] class KafkaLatestValueCache(
+    pollTimeout: FiniteDuration,
+    loadTimeout: FiniteDuration,
+    makeConsumer: ConsumerSettings[String, Array[Byte]] => Consumer[String, Array[Byte]] = _.createKafkaConsumer()
+)(implicit actorSystem: ActorSystem[?]) {
+
+  import actorSystem.executionContext
+
+  private val logger = EventServiceLogger.getLogger
+
+  private val latest   = new ConcurrentHashMap[EventKey, Event]()
+  private val requests = new ConcurrentLinkedQueue[(Set[EventKey], Promise[Done])]()
+
+  private var poller: Option[Poller] = None
+
+  /**
+   * A consumer which could not be created, or which failed, is replaced on the next read of keys which are not cached, for
+   * which the location of the event server is resolved again using the given `consumerSettings`
+   */
+  def get(eventKeys: Set[EventKey])(consumerSettings: => Future[ConsumerSettings[String, Array[Byte]]]): Future[Set[Event]] = {
+    val uncached = eventKeys.filterNot(latest.containsKey)
+    if (uncached.isEmpty) Future.successful(cached(eventKeys))
+    else {
+      val loaded = Promise[Done]()
+      requests.add((uncached, loaded))
+      ensurePolling(consumerSettings)
+      loaded.future.map(_ => cached(eventKeys))
+    }
+  }
+
+  /**
+   * Stops the consumer and drops the cached events, reads afterwards start a new consumer
+   */
+  def close(): Unit =
+    synchronized {
+      poller.foreach(_.running = false)
+      poller = None
+      latest.clear()
+    }
+
+  private def cached(eventKeys: Set[EventKey]): Set[Event] =
+    eventKeys.map(eventKey => latest.getOrDefault(eventKey, Event.invalidEvent(eventKey)))
+
+  private def ensurePolling(consumerSettings: => Future[ConsumerSettings[String, Array[Byte]]]): Unit =
+    synchronized {
+      if (poller.forall(_.failed)) poller = Some(new Poller(consumerSettings))
+    }
+
+  private class Poller(consumerSettings: Future[ConsumerSettings[String, Array[Byte]]]) {
+    @volatile var failed  = false
+    @volatile var running = true
+
+    consumerSettings.onComplete {
+      case Success(settings) =>
+        val thread = new Thread(() => poll(makeConsumer(settings)), "csw-event-kafka-latest-values")
+        thread.setDaemon(true)
+        thread.start()
+      case Failure(ex) => fail(ex)
+    }
+
+    actorSystem.whenTerminated.onComplete(_ => running = false)(ExecutionContext.parasitic)
+
+    // the consumer is only ever accessed from the polling thread
+    private def poll(consumer: Consumer[String, Array[Byte]]): Unit = {
+      val assigned = mutable.Set.empty[TopicPartition]
+      // end offsets of the partitions whose last published event is not received yet, and until when it is awaited
+      val awaited = mutable.Map.empty[TopicPartition, (Long, Long)]
+      var waiting = List.empty[(Set[TopicPartition], Promise[Done])]
+
+      try {
+        while (running) {
+          var request = requests.poll()
+          while (request != null) {
+            val (eventKeys, loaded) = request
+            val partitions          = eventKeys.map(eventKey => new TopicPartition(eventKey.key, 0))
+            val added               = partitions -- assigned
+            try {
+              if (added.nonEmpty) {
+                consumer.assign((assigned ++ added).asJava)
+                val endOffsets = consumer.endOffsets(added.asJava, loadTimeout.toJava).asScala
+                val deadline   = System.nanoTime() + loadTimeout.toNanos
+                assigned ++= added
+                endOffsets.foreach { case (partition, endOffset) =>
+                  val eventKey = EventKey(partition.topic())
+                  consumer.seek(partition, Math.max(0L, endOffset - 1))
+                  // an event key for which nothing has been published yet reads as an invalid event
+                  if (endOffset == 0) latest.putIfAbsent(eventKey, Event.invalidEvent(eventKey))
+                  else awaited(partition) = (endOffset, deadline)
+                }
+              }
+              waiting ::= (partitions, loaded)
+            }
+            catch {
+              case NonFatal(ex) =>
+                consumer.assign(assigned.asJava)
+                loaded.tryFailure(ex)
+            }
+            request = requests.poll()
+          }
+
+          consumer.poll(pollTimeout.toJava).forEach { record =>
+            latest.put(EventKey(record.topic()), EventConverter.toEvent(record.value()))
+            val partition = new TopicPartition(record.topic(), record.partition())
+            awaited.get(partition).foreach { case (endOffset, _) => if (record.offset() + 1 >= endOffset) awaited.remove(partition) }
+          }
+
+          val now = System.nanoTime()
+          awaited.filterInPlace { case (partition, (_, deadline)) =>
+            val expired = now - deadline >= 0
+            if (expired) {
+              val eventKey = EventKey(partition.topic())
+              latest.putIfAbsent(eventKey, Event.invalidEvent(eventKey))
+            }
+            !expired
+          }
+
+          val (loaded, notLoaded) = waiting.partition { case (partitions, _) => !partitions.exists(awaited.contains) }
+          loaded.foreach { case (_, promise) => promise.trySuccess(Done) }
+          waiting = notLoaded
+        }
+        waiting.foreach { case (_, promise) => promise.tryFailure(new IllegalStateException("Latest value cache was closed")) }
+      }
+      catch {
+        case NonFatal(ex) =>
+          logger.error("Latest value cache of event service failed, it will be reloaded on the next read", ex = ex)
+          waiting.foreach { case (_, promise) => promise.tryFailure(ex) }
+          fail(ex)
+      }
+      finally consumer.close()
+    }
+
+    // events of a failed consumer are not updated anymore, hence they are not served from the cache
+    private def fail(ex: Throwable): Unit = {
+      failed = true
+      latest.clear()
+      var request = requests.poll()
+      while (request != null) {
+        request._2.tryFailure(ex)
+        request = requests.poll()
+      }
+    }
+  }
+}
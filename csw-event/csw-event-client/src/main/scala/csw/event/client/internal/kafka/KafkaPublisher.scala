@@ -11,14 +11,15 @@ import org.apache.pekko.actor.typed.ActorSystem
 import org.apache.pekko.kafka.ProducerSettings
 import org.apache.pekko.stream.scaladsl.Source
 import csw.event.api.exceptions.PublishFailure
-import csw.event.api.scaladsl.EventPublisher
-import csw.event.client.internal.commons.{EventConverter, EventPublisherUtil}
+import csw.event.api.scaladsl.{EventPublisher, PublishOverflowPolicy}
+import csw.event.client.internal.commons.{EventConverter, EventMetrics, EventPublisherUtil, Settings}
 import csw.params.events.Event
 import csw.time.core.models.TMTTime
-import org.apache.kafka.clients.producer.{Callback, ProducerRecord}
+import org.apache.kafka.clients.producer.{Callback, Producer, ProducerRecord}
 
 import scala.concurrent.duration.{DurationDouble, FiniteDuration}
 import scala.concurrent.{Future, Promise}
+import scala.util.{Failure, Success}
 import scala.util.control.NonFatal
 
 /**
@@ -26,20 +27,33 @@ import scala.util.control.NonFatal
  * and subscribing events.
  *
  * @param producerSettings future of settings for pekko-streams-kafka API for Apache Kafka producer
+ * @param settings event service settings which determine how events published one by one are queued, and whether events
+ *                 are sent as per the high throughput profile
+ * @param metrics records the publish queue
+ * @param overflowPolicy what the publish queue does with events published while it is full
  */
 // $COVERAGE-OFF$
-private[event] class KafkaPublisher(producerSettings: Future[ProducerSettings[String, Array[Byte]]])(implicit
-    actorSystem: ActorSystem[?]
-) extends EventPublisher {
+private[event] class KafkaPublisher(
+    producerSettings: Future[ProducerSettings[String, Array[Byte]]],
+    settings: Settings,
+    metrics: EventMetrics,
+    overflowPolicy: PublishOverflowPolicy
+)(implicit actorSystem: ActorSystem[?])
+    extends EventPublisher {
 
   import actorSystem.executionContext
 
-  private val parallelism                         = 1
+  // with the high throughput profile, sends are not awaited one by one. These are still made in the order of events, hence
+  // events of an event key, which are all keyed by it and hence go to the same partition, are stored in order
+  private val parallelism                         = if (settings.highThroughputEnabled) settings.maxInFlightSends else 1
   private val defaultInitialDelay: FiniteDuration = 0.millis
   private val kafkaProducer                       = producerSettings.map(_.createKafkaProducer())
-  private val eventPublisherUtil                  = new EventPublisherUtil()
+  private val eventPublisherUtil                  = new EventPublisherUtil(settings, metrics, overflowPolicy)
 
-  private val streamTermination: Future[Done] = eventPublisherUtil.streamTermination(publishInternal)
+  private val streamTermination: Future[Done] = eventPublisherUtil.streamTermination(publishInternal, parallelism)
+
+  // sends of events published before the producer is created are chained, so that they are made in order once it is
+  private var sends: Future[Producer[String, Array[Byte]]] = kafkaProducer
 
   override def publish(event: Event): Future[Done] = {
     eventPublisherUtil.publish(event, streamTermination.isCompleted)
@@ -47,12 +61,26 @@ private[event] class KafkaPublisher(producerSettings: Future[ProducerSettings[St
 
   private def publishInternal(event: Event): Future[Done] = {
     val p = Promise[Done]()
-    kafkaProducer.map(_.send(eventToProducerRecord(event), completePromise(event, p))).recover { case NonFatal(ex) =>
-      p.failure(PublishFailure(event, ex))
-    }: Any
+    synchronized {
+      sends.value match {
+        case Some(Success(producer)) => send(producer, event, p)
+        case Some(Failure(ex))       => p.tryFailure(PublishFailure(event, ex))
+        case None =>
+          sends = sends.map { producer =>
+            send(producer, event, p)
+            producer
+          }
+          sends.failed.foreach(ex => p.tryFailure(PublishFailure(event, ex)))
+      }
+    }
     p.future
   }
 
+  // the record is handed over to the producer right away, the promise completes once the broker acknowledges it
+  private def send(producer: Producer[String, Array[Byte]], event: Event, p: Promise[Done]): Unit =
+    try producer.send(eventToProducerRecord(event), completePromise(event, p)): Unit
+    catch { case NonFatal(ex) => p.tryFailure(PublishFailure(event, ex)): Unit }
+
   override def publish[Mat](source: Source[Event, Mat]): Mat =
     eventPublisherUtil.publishFromSource(source, parallelism, publishInternal, None)
 
@@ -107,8 +135,12 @@ private[event] class KafkaPublisher(producerSettings: Future[ProducerSettings[St
       Done
     }
 
-  private def eventToProducerRecord(event: Event): ProducerRecord[String, Array[Byte]] =
-    new ProducerRecord(event.eventKey.key, EventConverter.toBytes[Array[Byte]](event))
+  // every event key has a topic of its own, the record is keyed by the event key as well, hence all events of an event key go
+  // to the same partition, whatever the number of partitions of the topic
+  private def eventToProducerRecord(event: Event): ProducerRecord[String, Array[Byte]] = {
+    val key = event.eventKey.key
+    new ProducerRecord(key, key, EventConverter.toBytes[Array[Byte]](event))
+  }
 
   // callback to be complete the future operation for publishing when the record has been acknowledged by the server
   private def completePromise(event: Event, promisedDone: Promise[Done]): Callback = {
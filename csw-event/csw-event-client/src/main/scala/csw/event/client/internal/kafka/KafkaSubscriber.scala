@@ -10,7 +10,7 @@ import org.apache.pekko.actor.typed.{ActorRef, ActorSystem}
 import org.apache.pekko.kafka.{ConsumerSettings, Subscription, Subscriptions, scaladsl}
 import org.apache.pekko.stream.StreamDetachedException
 import org.apache.pekko.stream.scaladsl.{Keep, Sink, Source}
-import csw.event.api.scaladsl.{EventSubscriber, EventSubscription, SubscriptionMode}
+import csw.event.api.scaladsl.{CallbackOrdering, EventSubscriber, EventSubscription, SubscriptionMode}
 import csw.event.client.internal.commons.{EventConverter, EventSubscriberUtil}
 import csw.event.client.utils.Utils
 import csw.params.events.*
@@ -29,12 +29,15 @@ import scala.util.control.NonFatal
  * and subscribing events.
  *
  * @param consumerSettings  future of settings for pekko-streams-kafka API for Apache Kafka consumer
+ * @param latestValueCache to answer `get` from, if enabled
  * @param actorSystem to be used for performing asynchronous operations
  */
 // $COVERAGE-OFF$
-private[event] class KafkaSubscriber(consumerSettings: Future[ConsumerSettings[String, Array[Byte]]])(implicit
-    actorSystem: ActorSystem[?]
-) extends EventSubscriber {
+private[event] class KafkaSubscriber(
+    consumerSettings: Future[ConsumerSettings[String, Array[Byte]]],
+    latestValueCache: Option[KafkaLatestValueCache] = None
+)(implicit actorSystem: ActorSystem[?])
+    extends EventSubscriber {
 
   import actorSystem.executionContext
 
@@ -83,6 +86,14 @@ private[event] class KafkaSubscriber(consumerSettings: Future[ConsumerSettings[S
   ): EventSubscription =
     eventSubscriberUtil.subscribeAsync(subscribe(eventKeys, every, mode), callback)
 
+  override def subscribeAsync(
+      eventKeys: Set[EventKey],
+      callback: Event => Future[?],
+      parallelism: Int,
+      ordering: CallbackOrdering
+  ): EventSubscription =
+    eventSubscriberUtil.subscribeAsync(subscribe(eventKeys), callback, parallelism, ordering)
+
   override def subscribeCallback(eventKeys: Set[EventKey], callback: Event => Unit): EventSubscription =
     eventSubscriberUtil.subscribeCallback(subscribe(eventKeys), callback)
 
@@ -113,7 +124,15 @@ private[event] class KafkaSubscriber(consumerSettings: Future[ConsumerSettings[S
 
   override def subscribeObserveEvents(): Source[Event, EventSubscription] = pSubscribe(".*.ObserveEvent.*")
 
-  override def get(eventKeys: Set[EventKey]): Future[Set[Event]] = {
+  override def get(eventKeys: Set[EventKey]): Future[Set[Event]] =
+    latestValueCache match {
+      case Some(cache) => cache.get(eventKeys)(consumerSettings)
+      case None        => getFromSubscription(eventKeys)
+    }
+
+  override def get(eventKey: EventKey): Future[Event] = get(Set(eventKey)).map(_.head)
+
+  private def getFromSubscription(eventKeys: Set[EventKey]): Future[Set[Event]] = {
     val (subscription, eventsF) = subscribe(eventKeys).take(eventKeys.size).toMat(Sink.seq)(Keep.both).run()
 
     async {
@@ -124,8 +143,6 @@ private[event] class KafkaSubscriber(consumerSettings: Future[ConsumerSettings[S
     }
   }
 
-  override def get(eventKey: EventKey): Future[Event] = get(Set(eventKey)).map(_.head)
-
   private def pSubscribe(pattern: String) = {
     val subscription = Subscriptions.topicPattern(pattern)
     getEventStream(Future.successful(subscription)).mapMaterializedValue(control =>
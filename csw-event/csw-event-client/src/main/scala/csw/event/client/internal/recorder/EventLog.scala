@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.recorder
+
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.FileChannel.MapMode
+import java.nio.file.StandardOpenOption.{CREATE_NEW, READ, WRITE}
+import java.nio.file.{Files, Path}
+
+import scala.jdk.CollectionConverters.*
+import scala.util.Using
+
+/**
+ * An append-only log of event bytes, split into segment files which are memory-mapped while they are written and read.
+ *
+ * Each segment is named after the time at which its first record was appended, which serves as a coarse time index to
+ * find the segment to start reading from. A record is laid out as `[length: Int][recordedAt: Long][bytes]`, where
+ * `recordedAt` is in nanoseconds since the epoch. The unused tail of a segment is zero filled, i.e. it reads as a record
+ * of length 0, which marks the end of the segment.
+ */
+private[event] object EventLog {
+  val HeaderSize: Int = Integer.BYTES + java.lang.Long.BYTES
+
+  private val SegmentSuffix = ".events"
+
+  def segmentName(firstRecordedAt: Long): String = f"$firstRecordedAt%020d$SegmentSuffix"
+
+  def segmentStart(segment: Path): Long = segment.getFileName.toString.stripSuffix(SegmentSuffix).toLong
+
+  // segments in the order in which they were written, the zero padded names sort by time
+  def segments(directory: Path): List[Path] =
+    Using.resource(Files.list(directory)) { paths =>
+      paths.iterator().asScala.filter(_.getFileName.toString.endsWith(SegmentSuffix)).toList.sortBy(_.getFileName.toString)
+    }
+
+  /**
+   * Segments which can contain records appended at or after `from`, i.e. the last one started before it and all later ones
+   */
+  def segmentsFrom(directory: Path, from: Long): List[Path] = {
+    val all = segments(directory)
+    all.drop(Math.max(0, all.lastIndexWhere(segmentStart(_) <= from)))
+  }
+
+  /**
+   * Records of the given segment, the file is mapped when the iterator is first used
+   */
+  def records(segment: Path): Iterator[(Long, Array[Byte])] =
+    new Iterator[(Long, Array[Byte])] {
+      // the mapping stays valid after the channel is closed
+      private lazy val buffer = Using.resource(FileChannel.open(segment, READ))(c => c.map(MapMode.READ_ONLY, 0, c.size()))
+
+      override def hasNext: Boolean = buffer.remaining() >= HeaderSize && buffer.getInt(buffer.position()) > 0
+
+      override def next(): (Long, Array[Byte]) = {
+        if (!hasNext) throw new NoSuchElementException(s"No more records in segment $segment")
+        val bytes      = new Array[Byte](buffer.getInt())
+        val recordedAt = buffer.getLong()
+        buffer.get(bytes)
+        (recordedAt, bytes)
+      }
+    }
+
+  /**
+   * Appends records to segments of at least `segmentSize` bytes in `directory`, a new segment is started once a record
+   * does not fit in the current one. Writes reach the OS page cache as soon as they are made, hence records appended
+   * before the JVM stops abruptly are not lost.
+   */
+  class Writer(directory: Path, segmentSize: Int) {
+    require(segmentSize > HeaderSize, s"segment size should be more than $HeaderSize bytes")
+
+    private var channel: FileChannel      = scala.compiletime.uninitialized
+    private var segment: MappedByteBuffer = scala.compiletime.uninitialized
+    private var lastSegmentStart          = Long.MinValue
+    private var lastRecordedAt            = Long.MinValue
+
+    Files.createDirectories(directory)
+
+    /**
+     * @param now time of the record, taken while holding the writer so that records are appended in the order of their
+     *            times, which readers rely on. A time before the one of the previous record, e.g. as the clock was set
+     *            back, is replaced by the latter.
+     */
+    def append(bytes: Array[Byte])(now: => Long): Unit =
+      synchronized {
+        val recordedAt = Math.max(now, lastRecordedAt)
+        lastRecordedAt = recordedAt
+        val recordSize = HeaderSize + bytes.length
+        if (segment == null || segment.remaining() < recordSize) roll(recordedAt, recordSize)
+        val start = segment.position()
+        segment.position(start + Integer.BYTES)
+        segment.putLong(recordedAt).put(bytes)
+        // the length is written last, so that a reader of the segment sees either no record or a complete one
+        segment.putInt(start, bytes.length)
+      }
+
+    def close(): Unit = synchronized(closeSegment())
+
+    private def roll(recordedAt: Long, recordSize: Int): Unit = {
+      closeSegment()
+      // two segments can not be named after the same time
+      lastSegmentStart = Math.max(recordedAt, lastSegmentStart + 1)
+      channel = FileChannel.open(directory.resolve(segmentName(lastSegmentStart)), CREATE_NEW, READ, WRITE)
+      segment = channel.map(MapMode.READ_WRITE, 0, Math.max(segmentSize, recordSize))
+    }
+
+    private def closeSegment(): Unit =
+      if (segment != null) {
+        segment.force()
+        channel.close()
+        segment = null
+        channel = null
+      }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import java.util.concurrent.ConcurrentHashMap
+
+import csw.params.core.generics.KeyType.StringKey
+import csw.params.core.generics.{Key, Parameter}
+import csw.params.core.models.Id
+import csw.params.events.{Event, EventKey, ObserveEvent, SystemEvent}
+
+/**
+ * Delta encoding of published events, for events with many parameters of which only a few change from one publish to the
+ * next.
+ *
+ * A publisher in delta mode publishes a full event, the keyframe, every `keyframeInterval` publishes of an event key. In
+ * between, it publishes deltas which carry only the parameters which were added or changed since the keyframe, and the
+ * names of those which were removed. A delta is an event itself, whose id is `<id of the event>~delta~<id of the keyframe>`.
+ * The value set for the event key always is the full event, hence `get` is not affected by delta encoding.
+ *
+ * Subscribers rebuild full events from the keyframe they last received and the deltas. A delta whose keyframe was not
+ * received, e.g. as the subscription started after it, can not be rebuilt and is dropped.
+ */
+private[event] object EventDeltas {
+
+  private val DeltaIdSeparator = "~delta~"
+
+  private val RemovedKey: Key[String] = StringKey.make("__removed")
+
+  /**
+   * Stands for a delta which could not be rebuilt, and hence is not delivered to subscribers
+   */
+  val Unresolved: Event = Event.badEvent()
+
+  // a keyframe is the base of deltas only once it was published, as subscribers may not have received it otherwise
+  private case class Keyframe(id: String, params: Map[String, Parameter[?]], deltas: Int, published: Boolean)
+
+  class Encoder(keyframeInterval: Int) {
+    private val keyframes = new ConcurrentHashMap[EventKey, Keyframe]()
+
+    /**
+     * @return the event itself if it is to be published as a keyframe, otherwise its delta from the last keyframe
+     */
+    def encode(event: Event): Event = {
+      var message = event
+      // events of a key published concurrently are encoded one after the other
+      keyframes.compute(
+        event.eventKey,
+        (_, keyframe) =>
+          if (keyframe == null || !keyframe.published || keyframe.deltas + 1 >= keyframeInterval) keyframeOf(event)
+          else {
+            val changed = event.paramSet.filterNot(param => keyframe.params.get(param.keyName).contains(param))
+            val removed = keyframe.params.keySet -- event.paramSet.iterator.map(_.keyName)
+            // a delta which does not save much is not worth rebuilding the event on every subscriber
+            if (changed.size + removed.size > event.paramSet.size / 2) keyframeOf(event)
+            else {
+              val deltaParams = if (removed.isEmpty) changed else changed + RemovedKey.setAll(removed.toArray)
+              message = withIdAndParams(event, Id(s"${event.eventId.id}$DeltaIdSeparator${keyframe.id}"), deltaParams)
+              keyframe.copy(deltas = keyframe.deltas + 1)
+            }
+          }
+      )
+      message
+    }
+
+    /**
+     * Makes a keyframe the base of the deltas which follow it, once redis accepted its PUBLISH. Until then, and if it failed,
+     * events of its key are published as keyframes.
+     */
+    def published(message: Event): Unit =
+      if (!isDelta(message))
+        keyframes.computeIfPresent(
+          message.eventKey,
+          (_, keyframe) => if (keyframe.id == message.eventId.id) keyframe.copy(published = true) else keyframe
+        )
+
+    private def keyframeOf(event: Event): Keyframe =
+      Keyframe(event.eventId.id, event.paramSet.iterator.map(p => p.keyName -> p).toMap, 0, published = false)
+  }
+
+  /**
+   * Rebuilds full events from deltas. Events which are not deltas are kept as keyframes of their event key, of every key if
+   * `allKeys` is set and otherwise only of the keys which were received as deltas before. Keyframes of the keys received
+   * least recently are dropped once `maxKeyframes` are kept, their deltas are not rebuilt until the next keyframe.
+   */
+  class Decoder(maxKeyframes: Int, allKeys: Boolean) {
+    // None for a key received as a delta whose keyframe was not received yet
+    private val keyframes = new java.util.LinkedHashMap[EventKey, Option[Event]](16, 0.75f, true) {
+      override def removeEldestEntry(eldest: java.util.Map.Entry[EventKey, Option[Event]]): Boolean = size() > maxKeyframes
+    }
+
+    /**
+     * @return the event itself if it is not a delta, the rebuilt event for a delta, or [[Unresolved]] if the delta can not
+     *         be rebuilt
+     */
+    def decode(event: Event): Event = {
+      val id        = event.eventId.id
+      val separator = id.indexOf(DeltaIdSeparator)
+      if (separator < 0) {
+        keyframes.synchronized {
+          if (allKeys || keyframes.containsKey(event.eventKey)) keyframes.put(event.eventKey, Some(event))
+        }
+        event
+      }
+      else {
+        val keyframe = keyframes.synchronized {
+          val keyframe = keyframes.get(event.eventKey)
+          if (keyframe == null) keyframes.put(event.eventKey, None)
+          Option(keyframe).flatten
+        }
+        keyframe.filter(_.eventId.id == id.substring(separator + DeltaIdSeparator.length)).fold(Unresolved) { keyframe =>
+          val removed  = event.get(RemovedKey).map(_.values.toSet).getOrElse(Set.empty[String])
+          val changed  = event.paramSet.filterNot(_.keyName == RemovedKey.keyName)
+          val replaced = changed.map(_.keyName) ++ removed
+          val params   = keyframe.paramSet.filterNot(param => replaced.contains(param.keyName)) ++ changed
+          withIdAndParams(event, Id(id.substring(0, separator)), params)
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the event was published as a delta
+   */
+  def isDelta(event: Event): Boolean = event.eventId.id.contains(DeltaIdSeparator)
+
+  private def withIdAndParams(event: Event, eventId: Id, paramSet: Set[Parameter[?]]): Event =
+    event match {
+      case event: SystemEvent  => event.copy(eventId = eventId, paramSet = paramSet)
+      case event: ObserveEvent => event.copy(eventId = eventId, paramSet = paramSet)
+    }
+}
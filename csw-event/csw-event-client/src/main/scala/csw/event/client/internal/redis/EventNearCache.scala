@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import java.util.concurrent.atomic.LongAdder
+
+import org.apache.pekko.actor.typed.ActorSystem
+import org.apache.pekko.stream.scaladsl.{Keep, Sink}
+import csw.event.client.models.NearCacheMetrics
+import csw.params.events.{Event, EventKey}
+import romaine.reactive.{RedisMultiplexedSubscriptionApi, RedisSubscription}
+
+import scala.concurrent.Future
+import scala.concurrent.duration.FiniteDuration
+import scala.util.Success
+
+/**
+ * Keeps the events read with `get`, so that reading them again is answered without a round trip to Redis.
+ *
+ * An event key is cached on its first read. Before its value is fetched, the key is subscribed on the pub/sub connection
+ * shared by the subscribers of the event service, hence every event published for it afterwards replaces the cached one.
+ * Subscriptions of the connection are ref-counted per key, so keys which the component already subscribes to cost no
+ * additional subscription on Redis. A cached key which receives a delta that can not be rebuilt, or whose subscription
+ * fails, is fetched again on its next read.
+ *
+ * At most `maxEntries` keys are cached, and a key which is not read for `expireAfterAccess` is evicted along with its
+ * subscription, the least recently read keys first.
+ *
+ * @param maxEntries maximum number of cached event keys
+ * @param expireAfterAccess how long a cached event key which is not read is kept
+ * @param subscriptionApi provides the pub/sub connection shared by all subscribers of the event service
+ * @param actorSystem to run the subscriptions of the cached keys
+ */
+private[event] class EventNearCache(
+    maxEntries: Int,
+    expireAfterAccess: FiniteDuration,
+    subscriptionApi: () => RedisMultiplexedSubscriptionApi[String, Event]
+)(implicit actorSystem: ActorSystem[?]) {
+
+  import actorSystem.executionContext
+
+  private class Entry(val eventKey: EventKey) {
+    // the event is either fetched or received on the subscription, whichever is newer. It is updated while holding the
+    // entry, and the version counts the events received on the subscription.
+    @volatile var event: Option[Event]  = None
+    var version: Long                   = 0
+    @volatile var lastReadAt: Long      = System.nanoTime()
+    var subscription: RedisSubscription = scala.compiletime.uninitialized
+  }
+
+  // ordered by last read, the least recently read entry first
+  private val entries = new java.util.LinkedHashMap[EventKey, Entry](16, 0.75f, true)
+
+  private val hits      = new LongAdder
+  private val misses    = new LongAdder
+  private val evictions = new LongAdder
+
+  /**
+   * @param fetch reads the event from Redis, used when the event key is not cached
+   */
+  def get(eventKey: EventKey)(fetch: => Future[Event]): Future[Event] =
+    getAll(Set(eventKey))(_ => fetch.map(Set(_))).map(_.head)
+
+  /**
+   * @param fetch reads the events of the given keys from Redis at once, used for the event keys which are not cached
+   */
+  def getAll(eventKeys: Set[EventKey])(fetch: Set[EventKey] => Future[Set[Event]]): Future[Set[Event]] = {
+    val now  = System.nanoTime()
+    val read = synchronized {
+      evictExpired(now)
+      eventKeys.toList.map(entry(_, now))
+    }
+    val (cached, missing) = read.partitionMap(entry => entry.event.toLeft(entry))
+
+    hits.add(cached.size)
+    misses.add(missing.size)
+    if (missing.isEmpty) Future.successful(cached.toSet)
+    else
+      // without a subscription the fetched event could not be kept fresh, hence it is not cached
+      Future
+        .traverse(missing)(entry => entry.subscription.ready().transform(ready => Success(entry -> ready.isSuccess)))
+        .flatMap { subscribed =>
+          val versions = subscribed.collect { case (entry, true) => entry.eventKey -> entry.synchronized(entry.version) }.toMap
+          fetch(missing.map(_.eventKey).toSet).map { events =>
+            val fetched = events.map(event => event.eventKey -> event).toMap
+            missing.foreach { entry =>
+              for {
+                version <- versions.get(entry.eventKey)
+                event   <- fetched.get(entry.eventKey)
+              } refresh(entry, version, event)
+            }
+            cached.toSet ++ events
+          }
+        }
+  }
+
+  def metrics: NearCacheMetrics = NearCacheMetrics(synchronized(entries.size()), hits.sum(), misses.sum(), evictions.sum())
+
+  // events received on the subscription replace the cached event, a delta which can not be rebuilt discards it instead
+  private def subscribe(entry: Entry): RedisSubscription = {
+    val (subscription, done) = subscriptionApi()
+      .subscribe(List(entry.eventKey.key))
+      .toMat(Sink.foreach { result =>
+        entry.synchronized {
+          entry.version += 1
+          entry.event = if (result.value eq EventDeltas.Unresolved) None else Some(result.value)
+        }
+      })(Keep.both)
+      .run()
+
+    done.onComplete(_ => synchronized(entries.remove(entry.eventKey, entry)))
+    subscription
+  }
+
+  private def entry(eventKey: EventKey, now: Long): Entry = {
+    val existing = entries.get(eventKey)
+    if (existing != null) {
+      existing.lastReadAt = now
+      existing
+    }
+    else {
+      val entry = new Entry(eventKey)
+      entry.subscription = subscribe(entry)
+      entries.put(eventKey, entry)
+      if (entries.size() > maxEntries) evict(entries.keySet().iterator().next())
+      entry
+    }
+  }
+
+  // an event received while the fetch was in flight, or a newer event cached by a concurrent read, is kept rather than
+  // replaced by the fetched one
+  private def refresh(entry: Entry, version: Long, fetched: Event): Unit =
+    entry.synchronized {
+      val newest = entry.event.forall(cached => !fetched.eventTime.value.isBefore(cached.eventTime.value))
+      if (entry.version == version && newest) entry.event = Some(fetched)
+    }
+
+  private def evictExpired(now: Long): Unit = {
+    val iterator = entries.values().iterator()
+    var expired  = true
+    while (expired && iterator.hasNext) {
+      val entry = iterator.next()
+      expired = now - entry.lastReadAt > expireAfterAccess.toNanos
+      if (expired) {
+        iterator.remove()
+        unsubscribe(entry)
+      }
+    }
+  }
+
+  private def evict(eventKey: EventKey): Unit = {
+    val entry = entries.remove(eventKey)
+    if (entry != null) unsubscribe(entry)
+  }
+
+  private def unsubscribe(entry: Entry): Unit = {
+    evictions.increment()
+    entry.subscription.unsubscribe()
+  }
+}
@@ -9,6 +9,7 @@ import java.nio.ByteBuffer
 
 import csw.event.client.internal.commons.EventConverter
 import csw.params.events.{Event, EventKey}
+import io.netty.buffer.{ByteBuf, ByteBufOutputStream}
 import romaine.codec.RomaineCodec
 
 /**
@@ -16,10 +17,36 @@ import romaine.codec.RomaineCodec
  */
 private[event] object EventRomaineCodecs {
 
+  // the same few event keys are seen again and again, hence each of them is parsed and encoded once
   implicit val eventKeyRomaineCodec: RomaineCodec[EventKey] =
-    RomaineCodec.stringCodec.bimap(_.key, EventKey.apply)
+    RomaineCodec.interning(RomaineCodec.stringCodec.bimap(_.key, EventKey.apply))
 
-  implicit val eventRomaineCodec: RomaineCodec[Event] =
-    RomaineCodec.byteBufferCodec.bimap[Event](EventConverter.toBytes[ByteBuffer], EventConverter.toEvent)
+  // channels of published and received events, which are event keys
+  val channelRomaineCodec: RomaineCodec[String] = RomaineCodec.interning(RomaineCodec.stringCodec)
 
+  // events are decoded straight from the buffer of the connection and encoded straight into its pooled buffers,
+  // hence no intermediate buffer is allocated per event on either path
+  implicit val eventRomaineCodec: RomaineCodec[Event] = new RomaineCodec[Event] {
+    override def toBytes(event: Event): ByteBuffer        = EventConverter.toBytes[ByteBuffer](event)
+    override def fromBytes(byteBuffer: ByteBuffer): Event = EventConverter.toEvent(byteBuffer)
+    override def writeBytes(event: Event, target: ByteBuf): Unit =
+      EventConverter.writeBytes(event, new ByteBufOutputStream(target))
+  }
+
+  // parameters of received events are decoded only when accessed, see LazyParamSet
+  val lazyEventRomaineCodec: RomaineCodec[Event] = new RomaineCodec[Event] {
+    override def toBytes(event: Event): ByteBuffer                = eventRomaineCodec.toBytes(event)
+    override def fromBytes(byteBuffer: ByteBuffer): Event         = EventConverter.toLazyEvent(copyBytes(byteBuffer))
+    override def writeBytes(event: Event, target: ByteBuf): Unit = eventRomaineCodec.writeBytes(event, target)
+  }
+
+  // copies the received bytes out of the connection's buffer, so that they can be decoded later on another thread
+  implicit val eventBytesRomaineCodec: RomaineCodec[Array[Byte]] =
+    RomaineCodec.byteBufferCodec.bimap[Array[Byte]](ByteBuffer.wrap, copyBytes)
+
+  private def copyBytes(byteBuffer: ByteBuffer): Array[Byte] = {
+    val bytes = new Array[Byte](byteBuffer.remaining())
+    byteBuffer.get(bytes)
+    bytes
+  }
 }
@@ -6,7 +6,8 @@
 package csw.event.client.internal.redis
 
 import org.apache.pekko.actor.typed.ActorSystem
-import csw.event.api.scaladsl.EventService
+import csw.event.api.scaladsl.{EventService, PublishOverflowPolicy}
+import csw.event.client.internal.commons.{EventMetrics, Settings}
 import csw.event.client.internal.commons.serviceresolver.EventServiceResolver
 import io.lettuce.core.{RedisClient, RedisURI}
 
@@ -17,22 +18,48 @@ import scala.concurrent.Future
  * and [[csw.event.api.scaladsl.EventSubscriber]] backed by Redis
  *
  * @param eventServiceResolver to get the connection information of event service
- * @param masterId the Id used by Redis Sentinel to identify the master
+ * @param settings event service settings, including the Id used by Redis Sentinel to identify the master
  * @param redisClient the client instance of [[io.lettuce.core.RedisClient]]
+ * @param subscriptionHub holds the pub/sub connection shared by subscribers of all event services for the same event server
+ * @param metrics records latencies and drops of the events published through the event service
+ * @param failover follows the Redis master of the event server as Sentinel switches to a new one
  * @param actorSystem provides Materializer, ExecutionContext, etc.
  */
-private[event] class RedisEventService(eventServiceResolver: EventServiceResolver, masterId: String, redisClient: RedisClient)(
-    implicit val actorSystem: ActorSystem[?]
-) extends EventService {
+private[event] class RedisEventService(
+    eventServiceResolver: EventServiceResolver,
+    settings: Settings,
+    redisClient: RedisClient,
+    subscriptionHub: RedisSubscriptionHub,
+    metrics: EventMetrics,
+    failover: SentinelFailover
+)(implicit val actorSystem: ActorSystem[?])
+    extends EventService {
 
   import actorSystem.executionContext
 
-  override def makeNewPublisher(): RedisPublisher = new RedisPublisher(redisURI(), redisClient)
+  override def makeNewPublisher(): RedisPublisher = makeNewPublisher(settings.publishOverflowPolicy)
 
-  override def makeNewSubscriber(): RedisSubscriber = new RedisSubscriber(redisURI(), redisClient)
+  override def makeNewPublisher(overflowPolicy: PublishOverflowPolicy): RedisPublisher =
+    new RedisPublisher(redisURI(), redisClient, settings, metrics, failover, overflowPolicy)
+
+  override def makeNewSubscriber(): RedisSubscriber =
+    new RedisSubscriber(redisURI(), redisClient, settings, () => subscriptionApi(), metrics, failover, nearCache)
+
+  failover.watch(eventServiceResolver.uri().map(uri => RedisURI.create(uri.getHost, uri.getPort)))
+
+  private def subscriptionApi() = subscriptionHub.subscriptionApi(redisURI())
+
+  // shared by all subscribers of the event service
+  private lazy val nearCache: Option[EventNearCache] =
+    Option.when(settings.nearCacheEnabled) {
+      val nearCache =
+        new EventNearCache(settings.nearCacheMaxEntries, settings.nearCacheExpireAfterAccess, () => subscriptionApi())
+      metrics.addNearCache(() => nearCache.metrics)
+      nearCache
+    }
 
   // resolve event service every time before creating a new publisher or subscriber
   private def redisURI(): Future[RedisURI] =
-    eventServiceResolver.uri().map(uri => RedisURI.Builder.sentinel(uri.getHost, uri.getPort, masterId).build())
+    eventServiceResolver.uri().map(uri => RedisURI.Builder.sentinel(uri.getHost, uri.getPort, settings.masterId).build())
 
 }
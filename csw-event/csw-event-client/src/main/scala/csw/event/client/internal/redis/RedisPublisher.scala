@@ -5,13 +5,13 @@
 
 package csw.event.client.internal.redis
 
-import org.apache.pekko.Done
 import org.apache.pekko.actor.Cancellable
 import org.apache.pekko.actor.typed.ActorSystem
-import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.stream.scaladsl.{Flow, Source}
+import org.apache.pekko.{Done, NotUsed}
 import csw.event.api.exceptions.PublishFailure
-import csw.event.api.scaladsl.EventPublisher
-import csw.event.client.internal.commons.EventPublisherUtil
+import csw.event.api.scaladsl.{EventPublisher, PublishOverflowPolicy}
+import csw.event.client.internal.commons.{EventMetrics, EventPublisherUtil, Settings}
 import csw.params.events.Event
 import csw.time.core.models.TMTTime
 import io.lettuce.core.{RedisClient, RedisURI}
@@ -19,9 +19,11 @@ import romaine.RomaineFactory
 import romaine.async.RedisAsyncApi
 
 import cps.compat.FutureAsync.*
+import scala.collection.immutable
 import scala.concurrent.duration.{DurationInt, FiniteDuration}
 import scala.concurrent.{Await, Future}
 import scala.util.control.NonFatal
+import scala.util.{Failure, Success, Try}
 
 /**
  * An implementation of [[csw.event.api.scaladsl.EventPublisher]] API which uses Redis as the provider for publishing
@@ -29,24 +31,40 @@ import scala.util.control.NonFatal
  *
  * @param redisURI    future containing connection details for the Redis/Sentinel connections.
  * @param redisClient redis client available from lettuce
+ * @param settings    event service settings which determine how events are queued and whether these are published in
+ *                    pipelined batches, concurrently per event key or as deltas
+ * @param metrics     records the round trip of every published event and the events dropped by the publish queue
+ * @param failover    follows the Redis master as Sentinel switches to a new one, publishing is retried in the meantime
+ * @param overflowPolicy what the publish queue does with events published while it is full
  * @param actorSystem provides Materializer, executionContext, etc
  */
-private[event] class RedisPublisher(redisURI: Future[RedisURI], redisClient: RedisClient)(implicit
-    actorSystem: ActorSystem[?]
-) extends EventPublisher {
+private[event] class RedisPublisher(
+    redisURI: Future[RedisURI],
+    redisClient: RedisClient,
+    settings: Settings,
+    metrics: EventMetrics,
+    failover: SentinelFailover,
+    overflowPolicy: PublishOverflowPolicy
+)(implicit actorSystem: ActorSystem[?])
+    extends EventPublisher {
 
   import actorSystem.executionContext
 
   // inorder to preserve the order of publishing events, the parallelism level is maintained to 1
+  // events of different keys are published concurrently only as per settings.keyParallelism, which keeps order per key
   private val parallelism                         = 1
   private val defaultInitialDelay: FiniteDuration = 0.millis
-  private val eventPublisherUtil                  = new EventPublisherUtil()
+  private val eventPublisherUtil                  = new EventPublisherUtil(settings, metrics, overflowPolicy)
   private val romaineFactory                      = new RomaineFactory(redisClient)
   import EventRomaineCodecs._
 
-  private val asyncApi: RedisAsyncApi[String, Event] = romaineFactory.redisAsyncApi(redisURI)
+  private val connection = failover.connection[String, Event] { () =>
+    romaineFactory.redisAsyncApi[String, Event](redisURI)(using channelRomaineCodec, eventRomaineCodec)
+  }
 
-  private val streamTermination: Future[Done] = eventPublisherUtil.streamTermination(publishInternal)
+  private val streamTermination: Future[Done] =
+    if (settings.pipeliningEnabled) eventPublisherUtil.batchedStreamTermination(batching, publishBatch)
+    else eventPublisherUtil.streamTermination(publishInternal, parallelism, settings.keyParallelism, Some(publishBatch))
 
   // This blocks main thread and publish dummy initialization event.
   // We have observed higher latencies for few initial events with [[EventPublisher.publish(event: Event)]] API when used for periodic publish.
@@ -55,22 +73,81 @@ private[event] class RedisPublisher(redisURI: Future[RedisURI], redisClient: Red
 
   override def publish(event: Event): Future[Done] = eventPublisherUtil.publish(event, streamTermination.isCompleted)
 
-  private def publishInternal(event: Event): Future[Done] =
-    async {
-      await(asyncApi.publish(event.eventKey.key, event))
-      set(event, asyncApi) // set will run independent of publish
-      Done
+  // all events are queued as a single entry of the publish queue, which is sent as one pipelined batch, whether or not
+  // pipelining is enabled, in order with the events published before and after them
+  override def publishAll(events: immutable.Seq[Event]): Future[List[PublishFailure]] =
+    eventPublisherUtil.publishAll(events, streamTermination.isCompleted)
+
+  private val deltaEncoder = Option.when(settings.deltaEncodingEnabled)(new EventDeltas.Encoder(settings.keyframeInterval))
+
+  // the message published for the event, which is a delta of it in delta mode
+  private def message(event: Event): Event = deltaEncoder.fold(event)(_.encode(event))
+
+  // the message is made once, so that retries do not count as publishes of the delta encoder. A PUBLISH which reached the
+  // master just before the connection was lost is retried as well, hence the event may be published twice during a failover.
+  private def publishInternal(event: Event): Future[Done] = {
+    val published = message(event)
+    connection.retried { asyncApi =>
+      async {
+        val sentAt = System.nanoTime()
+        await(asyncApi.publish(event.eventKey.key, published))
+        deltaEncoder.foreach(_.published(published))
+        metrics.recordPublished(event, sentAt)
+        set(event, asyncApi) // set will run independent of publish
+        Done
+      }
     } recover { case NonFatal(ex) =>
-      val failure = PublishFailure(event, ex)
-      eventPublisherUtil.logError(failure)
-      throw failure
+      throw publishFailure(event, ex)
     }
+  }
+
+  // all events of a batch are sent to redis with a single flush, in the order in which they were published.
+  // The round trip of every event of a batch hence is that of the whole batch. A batch is sent again only if all of its
+  // events failed as the master was unavailable, so that events which redis replied to are not published twice. Events
+  // which reached the master just before the connection was lost may still be published twice, as for single events.
+  private def publishBatch(events: immutable.Seq[Event]): Future[immutable.Seq[Try[Done]]] = {
+    val entries = events.map(event => (event.eventKey.key, message(event), event)).toList
+    connection
+      .retried { asyncApi =>
+        val sentAt = System.nanoTime()
+        asyncApi.publishAndSet(entries).flatMap { results =>
+          val unavailable = results.collect { case Failure(ex) if SentinelFailover.isMasterUnavailable(ex) => ex }
+          if (unavailable.nonEmpty && unavailable.size == results.size) Future.failed(unavailable.head)
+          else {
+            results.zip(entries).foreach {
+              case (Success(_), (_, published, event)) =>
+                deltaEncoder.foreach(_.published(published))
+                metrics.recordPublished(event, sentAt)
+              case _ =>
+            }
+            Future.successful(results)
+          }
+        }
+      }
+      .map(_.zip(events).map {
+        case (Success(_), _)      => Success(Done)
+        case (Failure(ex), event) => Failure(publishFailure(event, ex))
+      })
+      .recover { case NonFatal(ex) => events.map(event => Failure(publishFailure(event, ex))) }
+  }
 
-  override def publish[Mat](source: Source[Event, Mat]): Mat =
-    eventPublisherUtil.publishFromSource(source, parallelism, publishInternal, None)
+  private def batching[T]: Flow[T, immutable.Seq[T], NotUsed] =
+    eventPublisherUtil.batching[T](settings.maxBatchSize, settings.batchLinger)
+
+  private def publishFailure(event: Event, ex: Throwable): PublishFailure = {
+    val failure = PublishFailure(event, ex)
+    eventPublisherUtil.logError(failure)
+    failure
+  }
+
+  override def publish[Mat](source: Source[Event, Mat]): Mat = publishFromSource(source, None)
 
   override def publish[Mat](source: Source[Event, Mat], onError: PublishFailure => Unit): Mat =
-    eventPublisherUtil.publishFromSource(source, parallelism, publishInternal, Some(onError))
+    publishFromSource(source, Some(onError))
+
+  private def publishFromSource[Mat](source: Source[Event, Mat], maybeOnError: Option[PublishFailure => Unit]): Mat =
+    if (settings.pipeliningEnabled) eventPublisherUtil.publishBatchesFromSource(source, batching, publishBatch, maybeOnError)
+    else eventPublisherUtil.publishFromSource(source, parallelism, publishInternal, maybeOnError, settings.keyParallelism)
 
   override def publish(eventGenerator: => Option[Event], every: FiniteDuration): Cancellable =
     publish(eventPublisherUtil.eventSource(Future.successful(eventGenerator), parallelism, defaultInitialDelay, every))
@@ -115,7 +192,7 @@ private[event] class RedisPublisher(redisURI: Future[RedisURI], redisClient: Red
 
   override def shutdown(): Future[Done] = {
     eventPublisherUtil.shutdown()
-    asyncApi.quit().map(_ => Done)
+    connection.close()
   }
 
   private def set(event: Event, commands: RedisAsyncApi[String, Event]): Future[Done] =
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import org.apache.pekko.actor.typed.ActorSystem
+import csw.event.api.scaladsl.{EventService, PublishOverflowPolicy}
+import csw.event.client.internal.commons.{EventMetrics, Settings}
+import csw.event.client.internal.commons.serviceresolver.EventServiceResolver
+import io.lettuce.core.{RedisClient, RedisURI}
+
+import scala.concurrent.Future
+
+/**
+ * Implementation of [[csw.event.api.scaladsl.EventService]] which provides handle to [[csw.event.api.scaladsl.EventPublisher]]
+ * and [[csw.event.api.scaladsl.EventSubscriber]] backed by Redis streams
+ *
+ * @param eventServiceResolver to get the connection information of event service
+ * @param settings event service settings, including how many events are kept in the stream of every event key
+ * @param redisClient the client instance of [[io.lettuce.core.RedisClient]]
+ * @param metrics records the publish queues of publishers
+ * @param actorSystem provides Materializer, ExecutionContext, etc.
+ */
+private[event] class RedisStreamsEventService(
+    eventServiceResolver: EventServiceResolver,
+    settings: Settings,
+    redisClient: RedisClient,
+    metrics: EventMetrics
+)(implicit actorSystem: ActorSystem[?])
+    extends EventService {
+
+  import actorSystem.executionContext
+
+  override def makeNewPublisher(): RedisStreamsPublisher = makeNewPublisher(settings.publishOverflowPolicy)
+
+  override def makeNewPublisher(overflowPolicy: PublishOverflowPolicy): RedisStreamsPublisher =
+    new RedisStreamsPublisher(redisURI(), redisClient, settings, metrics, overflowPolicy)
+
+  override def makeNewSubscriber(): RedisStreamsSubscriber = new RedisStreamsSubscriber(() => redisURI(), redisClient, settings)
+
+  // resolve event service every time before creating a new publisher or subscriber
+  private def redisURI(): Future[RedisURI] =
+    eventServiceResolver.uri().map(uri => RedisURI.Builder.sentinel(uri.getHost, uri.getPort, settings.masterId).build())
+}
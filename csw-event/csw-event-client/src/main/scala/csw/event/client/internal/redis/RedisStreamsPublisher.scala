@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import org.apache.pekko.Done
+import org.apache.pekko.actor.Cancellable
+import org.apache.pekko.actor.typed.ActorSystem
+import org.apache.pekko.stream.scaladsl.Source
+import csw.event.api.exceptions.PublishFailure
+import csw.event.api.scaladsl.{EventPublisher, PublishOverflowPolicy}
+import csw.event.client.internal.commons.{EventMetrics, EventPublisherUtil, Settings}
+import csw.params.events.{Event, EventKey}
+import csw.time.core.models.TMTTime
+import io.lettuce.core.{RedisClient, RedisURI}
+import romaine.RomaineFactory
+import romaine.async.RedisAsyncApi
+
+import scala.concurrent.Future
+import scala.concurrent.duration.{DurationInt, FiniteDuration}
+import scala.util.control.NonFatal
+
+/**
+ * An implementation of [[csw.event.api.scaladsl.EventPublisher]] API which appends events to the Redis stream of their event
+ * key, which keeps about the last `settings.streamMaxLength` events of the key.
+ *
+ * @param redisURI    future containing connection details for the Redis/Sentinel connections.
+ * @param redisClient redis client available from lettuce
+ * @param settings    event service settings which determine how events are queued and how many are kept per event key
+ * @param metrics     records the publish queue
+ * @param overflowPolicy what the publish queue does with events published while it is full
+ * @param actorSystem provides Materializer, executionContext, etc
+ */
+private[event] class RedisStreamsPublisher(
+    redisURI: Future[RedisURI],
+    redisClient: RedisClient,
+    settings: Settings,
+    metrics: EventMetrics,
+    overflowPolicy: PublishOverflowPolicy
+)(implicit actorSystem: ActorSystem[?])
+    extends EventPublisher {
+
+  import EventRomaineCodecs._
+  import RedisStreamsPublisher.{EventField, streamKey}
+  import actorSystem.executionContext
+
+  // inorder to preserve the order of publishing events, the parallelism level is maintained to 1
+  private val parallelism                         = 1
+  private val defaultInitialDelay: FiniteDuration = 0.millis
+  private val eventPublisherUtil                  = new EventPublisherUtil(settings, metrics, overflowPolicy)
+  private val romaineFactory                      = new RomaineFactory(redisClient)
+
+  private val asyncApi: RedisAsyncApi[String, Event] = romaineFactory.redisAsyncApi(redisURI)
+
+  private val streamTermination: Future[Done] =
+    eventPublisherUtil.streamTermination(publishInternal, parallelism, settings.keyParallelism)
+
+  override def publish(event: Event): Future[Done] = eventPublisherUtil.publish(event, streamTermination.isCompleted)
+
+  private def publishInternal(event: Event): Future[Done] =
+    asyncApi
+      .xadd(streamKey(event.eventKey), Map(EventField -> event), settings.streamMaxLength)
+      .map(_ => Done)
+      .recover { case NonFatal(ex) =>
+        val failure = PublishFailure(event, ex)
+        eventPublisherUtil.logError(failure)
+        throw failure
+      }
+
+  override def publish[Mat](source: Source[Event, Mat]): Mat =
+    eventPublisherUtil.publishFromSource(source, parallelism, publishInternal, None, settings.keyParallelism)
+
+  override def publish[Mat](source: Source[Event, Mat], onError: PublishFailure => Unit): Mat =
+    eventPublisherUtil.publishFromSource(source, parallelism, publishInternal, Some(onError), settings.keyParallelism)
+
+  override def publish(eventGenerator: => Option[Event], every: FiniteDuration): Cancellable =
+    publish(eventPublisherUtil.eventSource(Future.successful(eventGenerator), parallelism, defaultInitialDelay, every))
+
+  override def publish(eventGenerator: => Option[Event], startTime: TMTTime, every: FiniteDuration): Cancellable =
+    publish(eventPublisherUtil.eventSource(Future.successful(eventGenerator), parallelism, startTime.durationFromNow, every))
+
+  override def publish(eventGenerator: => Option[Event], every: FiniteDuration, onError: PublishFailure => Unit): Cancellable =
+    publish(eventPublisherUtil.eventSource(Future.successful(eventGenerator), parallelism, defaultInitialDelay, every), onError)
+
+  override def publish(
+      eventGenerator: => Option[Event],
+      startTime: TMTTime,
+      every: FiniteDuration,
+      onError: PublishFailure => Unit
+  ): Cancellable =
+    publish(
+      eventPublisherUtil.eventSource(Future.successful(eventGenerator), parallelism, startTime.durationFromNow, every),
+      onError
+    )
+
+  override def publishAsync(eventGenerator: => Future[Option[Event]], every: FiniteDuration): Cancellable =
+    publish(eventPublisherUtil.eventSource(eventGenerator, parallelism, defaultInitialDelay, every))
+
+  override def publishAsync(eventGenerator: => Future[Option[Event]], startTime: TMTTime, every: FiniteDuration): Cancellable =
+    publish(eventPublisherUtil.eventSource(eventGenerator, parallelism, startTime.durationFromNow, every))
+
+  override def publishAsync(
+      eventGenerator: => Future[Option[Event]],
+      every: FiniteDuration,
+      onError: PublishFailure => Unit
+  ): Cancellable =
+    publish(eventPublisherUtil.eventSource(eventGenerator, parallelism, defaultInitialDelay, every), onError)
+
+  override def publishAsync(
+      eventGenerator: => Future[Option[Event]],
+      startTime: TMTTime,
+      every: FiniteDuration,
+      onError: PublishFailure => Unit
+  ): Cancellable =
+    publish(eventPublisherUtil.eventSource(eventGenerator, parallelism, startTime.durationFromNow, every), onError)
+
+  override def shutdown(): Future[Done] = {
+    eventPublisherUtil.shutdown()
+    asyncApi.quit().map(_ => Done)
+  }
+}
+
+private[event] object RedisStreamsPublisher {
+
+  // every entry of the stream of an event key holds a single event, in this field
+  val EventField = "event"
+
+  // streams are kept apart from the keys of the event store which only keeps the latest event, should both use the same server
+  val StreamKeyPrefix = "events:"
+
+  def streamKey(eventKey: EventKey): String = s"$StreamKeyPrefix${eventKey.key}"
+}
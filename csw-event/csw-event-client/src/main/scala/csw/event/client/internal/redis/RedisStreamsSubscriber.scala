@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import org.apache.pekko.actor.typed.{ActorRef, ActorSystem}
+import org.apache.pekko.pattern.after
+import org.apache.pekko.stream.KillSwitches
+import org.apache.pekko.stream.scaladsl.{Keep, Source}
+import org.apache.pekko.{Done, NotUsed}
+import csw.event.api.exceptions.EventServerNotAvailable
+import csw.event.api.scaladsl.{CallbackOrdering, EventSubscription, SubscriptionMode}
+import csw.event.client.internal.commons.{EventServiceLogger, EventSubscriberUtil, Settings}
+import csw.event.client.streams.{EventStreamSubscriber, StreamedEvent}
+import csw.params.events.*
+import csw.prefix.models.Subsystem
+import io.lettuce.core.{RedisClient, RedisURI}
+import romaine.async.{RedisAsyncApi, RedisAsyncApiPool}
+import romaine.exceptions.RedisServerNotAvailable
+import romaine.{RedisStreamEntry, RomaineFactory}
+
+import scala.concurrent.Future
+import scala.concurrent.duration.FiniteDuration
+import scala.util.control.NonFatal
+
+/**
+ * An implementation of [[csw.event.api.scaladsl.EventSubscriber]] API which reads events from the Redis streams of their
+ * event keys.
+ *
+ * A subscription follows the streams with blocking reads from the id of the last event it received. A subscription which
+ * loses its connection to Redis hence resumes where it left off once the connection is back, and receives the events
+ * published in the meantime, as long as they are still in the history of their event key.
+ *
+ * @param redisURI    resolves connection details for the Redis/Sentinel connections
+ * @param redisClient redis client available from lettuce
+ * @param settings    event service settings, including how events are read from the streams
+ * @param actorSystem to be used for performing asynchronous operations
+ */
+private[event] class RedisStreamsSubscriber(redisURI: () => Future[RedisURI], redisClient: RedisClient, settings: Settings)(
+    implicit actorSystem: ActorSystem[?]
+) extends EventStreamSubscriber {
+
+  import EventRomaineCodecs._
+  import RedisStreamsPublisher.{EventField, StreamKeyPrefix, streamKey}
+  import actorSystem.executionContext
+
+  private val log                 = EventServiceLogger.getLogger
+  private val eventSubscriberUtil = new EventSubscriberUtil()
+  private val romaineFactory      = new RomaineFactory(redisClient)
+
+  private val asyncApi: RedisAsyncApi[String, Event] = romaineFactory.redisAsyncApi(redisURI())
+
+  private lazy val readPool: Option[RedisAsyncApiPool[String, Event]] =
+    Option.when(settings.streamReadConnections > 0)(romaineFactory.redisAsyncApiPool(redisURI(), settings.streamReadConnections))
+
+  override def subscribe(eventKeys: Set[EventKey]): Source[Event, EventSubscription] = {
+    log.info(s"Subscribing to event keys: $eventKeys")
+
+    // streams are followed from the latest events, which are received first
+    val latestF = Future.traverse(eventKeys.toList)(latest)
+    streamed(latestF.map(_.map(latest => latest.event.eventKey -> latest.id).toMap), Source.future(latestF).mapConcat(identity))
+      .map(_.event)
+  }
+
+  override def subscribeFrom(positions: Map[EventKey, String]): Source[StreamedEvent, EventSubscription] = {
+    log.info(s"Subscribing to event keys from: $positions")
+
+    // `$` is resolved to the latest event, so that a read which is retried does not miss events published before it
+    val positionsF = Future.traverse(positions.toList) {
+      case (eventKey, "$") => latest(eventKey).map(eventKey -> _.id)
+      case position        => Future.successful(position)
+    }
+    streamed(positionsF.map(_.toMap), Source.empty)
+  }
+
+  override def history(eventKey: EventKey, after: Option[String], count: Int): Future[List[StreamedEvent]] =
+    recoverWithError(asyncApi.xrange(streamKey(eventKey), after.fold("-")(nextId), "+", count)).map(_.flatMap(streamedEvent))
+
+  override def subscribe(
+      eventKeys: Set[EventKey],
+      every: FiniteDuration,
+      mode: SubscriptionMode
+  ): Source[Event, EventSubscription] = subscribe(eventKeys).via(eventSubscriberUtil.subscriptionModeStage(every, mode))
+
+  override def subscribeAsync(eventKeys: Set[EventKey], callback: Event => Future[?]): EventSubscription =
+    eventSubscriberUtil.subscribeAsync(subscribe(eventKeys), callback)
+
+  override def subscribeAsync(
+      eventKeys: Set[EventKey],
+      callback: Event => Future[?],
+      every: FiniteDuration,
+      mode: SubscriptionMode
+  ): EventSubscription = eventSubscriberUtil.subscribeAsync(subscribe(eventKeys, every, mode), callback)
+
+  override def subscribeAsync(
+      eventKeys: Set[EventKey],
+      callback: Event => Future[?],
+      parallelism: Int,
+      ordering: CallbackOrdering
+  ): EventSubscription =
+    eventSubscriberUtil.subscribeAsync(subscribe(eventKeys), callback, parallelism, ordering)
+
+  override def subscribeCallback(eventKeys: Set[EventKey], callback: Event => Unit): EventSubscription =
+    eventSubscriberUtil.subscribeCallback(subscribe(eventKeys), callback)
+
+  override def subscribeCallback(
+      eventKeys: Set[EventKey],
+      callback: Event => Unit,
+      every: FiniteDuration,
+      mode: SubscriptionMode
+  ): EventSubscription = eventSubscriberUtil.subscribeCallback(subscribe(eventKeys, every, mode), callback)
+
+  override def subscribeActorRef(eventKeys: Set[EventKey], actorRef: ActorRef[Event]): EventSubscription =
+    subscribeCallback(eventKeys, eventSubscriberUtil.actorCallback(actorRef))
+
+  override def subscribeActorRef(
+      eventKeys: Set[EventKey],
+      actorRef: ActorRef[Event],
+      every: FiniteDuration,
+      mode: SubscriptionMode
+  ): EventSubscription = subscribeCallback(eventKeys, eventSubscriberUtil.actorCallback(actorRef), every, mode)
+
+  // streams can not be subscribed by pattern, hence the event keys matching the pattern are looked up when subscribing
+  override def pSubscribe(subsystem: Subsystem, pattern: String): Source[Event, EventSubscription] =
+    pSubscribe(s"${subsystem.name}.$pattern")
+
+  override def pSubscribeCallback(subsystem: Subsystem, pattern: String, callback: Event => Unit): EventSubscription =
+    eventSubscriberUtil.pSubscribe(pSubscribe(subsystem, pattern), callback)
+
+  override def subscribeObserveEvents(): Source[Event, EventSubscription] = pSubscribe("*.ObserveEvent.*")
+
+  override def get(eventKeys: Set[EventKey]): Future[Set[Event]] = Future.traverse(eventKeys)(get)
+
+  override def get(eventKey: EventKey): Future[Event] = latest(eventKey).map(_.event)
+
+  private def pSubscribe(pattern: String): Source[Event, EventSubscription] = {
+    log.info(s"Subscribing to event key pattern: $pattern")
+
+    // streams are found with SCAN, which does not block redis however many streams it holds
+    val eventKeysF = recoverWithError(asyncApi.scan(s"$StreamKeyPrefix$pattern").runFold(Set.empty[String])(_ + _))
+      .map(_.toList.map(key => EventKey(key.stripPrefix(StreamKeyPrefix))))
+    Source
+      .futureSource(eventKeysF.map(eventKeys => subscribeFrom(eventKeys.map(_ -> "$").toMap).map(_.event)))
+      .mapMaterializedValue { subscriptionF =>
+        new EventSubscription {
+          override def unsubscribe(): Future[Done] = subscriptionF.flatMap(_.unsubscribe())
+          override def ready(): Future[Done]       = subscriptionF.flatMap(_.ready())
+        }
+      }
+  }
+
+  // the latest event of the event key, or an invalid event positioned before any event if nothing was published yet
+  private def latest(eventKey: EventKey): Future[StreamedEvent] =
+    recoverWithError(asyncApi.xrevrange(streamKey(eventKey), "-", "+", 1))
+      .map(_.flatMap(streamedEvent).headOption.getOrElse(StreamedEvent("0", Event.invalidEvent(eventKey))))
+
+  private def streamed(
+      positionsF: Future[Map[EventKey, String]],
+      initial: Source[StreamedEvent, NotUsed]
+  ): Source[StreamedEvent, EventSubscription] = {
+    val positions = positionsF.map(_.map { case (eventKey, id) => streamKey(eventKey) -> id })
+
+    initial
+      .concat(Source.fromMaterializer((_, _) => follow(positions)))
+      .viaMat(KillSwitches.single)(Keep.right)
+      .watchTermination()(Keep.both)
+      .mapMaterializedValue { case (killSwitch, terminationSignal) =>
+        new EventSubscription {
+          override def unsubscribe(): Future[Done] = {
+            log.info("Unsubscribing from event streams")
+            killSwitch.shutdown()
+            terminationSignal.recover { case NonFatal(_) => Done }
+          }
+          override def ready(): Future[Done] = recoverWithError(positionsF).map(_ => Done)
+        }
+      }
+  }
+
+  // blocking reads hold up their connection, hence every materialization of a subscription reads over a connection of its
+  // own, which is taken once it is materialized and given back once it terminates. The connection is leased from a bounded
+  // pool when read-connections is set, and made for the subscription otherwise.
+  private def follow(positionsF: Future[Map[String, String]]): Source[StreamedEvent, NotUsed] = {
+    val (readApiF, giveBack) = readPool match {
+      case Some(pool) =>
+        val leaseF = recoverWithError(pool.lease())
+        (leaseF.map(_.api), () => leaseF.flatMap(_.release()))
+      case None =>
+        val readApi: RedisAsyncApi[String, Event] = romaineFactory.dedicatedRedisAsyncApi(redisURI())
+        (Future.successful(readApi), () => readApi.quit())
+    }
+
+    Source
+      .futureSource(readApiF.zip(positionsF).map { case (readApi, positions) => read(readApi, positions) })
+      .watchTermination() { (_, terminated) =>
+        terminated.onComplete(_ => giveBack())
+        NotUsed
+      }
+  }
+
+  // a read which fails, e.g. as the connection is lost, is retried from the last received events, hence none is missed
+  private def read(readApi: RedisAsyncApi[String, Event], positions: Map[String, String]): Source[StreamedEvent, NotUsed] =
+    if (positions.isEmpty) Source.never[StreamedEvent]
+    else
+      Source
+        .unfoldAsync(positions) { positions =>
+          readApi
+            .xread(positions.toList, settings.streamReadCount, settings.streamReadBlock)
+            .map { entries =>
+              val nextPositions = entries.foldLeft(positions)((acc, entry) => acc.updated(entry.key, entry.id))
+              Some((nextPositions, entries.flatMap(streamedEvent)))
+            }
+            .recoverWith { case NonFatal(ex) =>
+              log.warn(s"Reading event streams failed, retrying from the last received events: ${ex.getMessage}")
+              after(settings.streamReadBlock)(Future.successful(Some((positions, Nil))))
+            }
+        }
+        .mapConcat(identity)
+
+  // the smallest id greater than the given one, ids are `<milliseconds>-<sequence number>`
+  private def nextId(id: String): String =
+    id.split('-') match {
+      case Array(millis, sequence) => s"$millis-${sequence.toLong + 1}"
+      case _                       => s"${id.toLong + 1}"
+    }
+
+  private def streamedEvent(entry: RedisStreamEntry[String, Event]): Option[StreamedEvent] =
+    entry.body.get(EventField).map(StreamedEvent(entry.id, _))
+
+  private def recoverWithError[T](f: Future[T]) =
+    f.recover {
+      case RedisServerNotAvailable(ex) => throw EventServerNotAvailable(ex)
+    }
+}
@@ -9,17 +9,15 @@ import org.apache.pekko.actor.typed.{ActorRef, ActorSystem}
 import org.apache.pekko.stream.scaladsl.{Keep, Source}
 import org.apache.pekko.{Done, NotUsed}
 import csw.event.api.exceptions.EventServerNotAvailable
-import csw.event.api.scaladsl.{EventSubscriber, EventSubscription, SubscriptionMode}
-import csw.event.client.internal.commons.{EventServiceLogger, EventSubscriberUtil}
+import csw.event.api.scaladsl.{CallbackOrdering, EventSubscriber, EventSubscription, SubscriptionMode}
+import csw.event.client.internal.commons.{EventConverter, EventMetrics, EventServiceLogger, EventSubscriberUtil, Settings}
 import csw.params.events.*
 import csw.prefix.models.Subsystem
 import io.lettuce.core.{RedisClient, RedisURI}
-import reactor.core.publisher.FluxSink.OverflowStrategy
-import romaine.RomaineFactory
+import romaine.{RedisResult, RomaineFactory}
 import romaine.async.RedisAsyncApi
-import romaine.codec.RomaineCodec
 import romaine.exceptions.RedisServerNotAvailable
-import romaine.reactive.{RedisSubscription, RedisSubscriptionApi}
+import romaine.reactive.{RedisMultiplexedSubscriptionApi, RedisSubscription}
 
 import cps.compat.FutureAsync.*
 import scala.concurrent.Future
@@ -29,34 +27,47 @@ import scala.concurrent.duration.FiniteDuration
  * An implementation of [[csw.event.api.scaladsl.EventSubscriber]] API which uses Redis as the provider for publishing
  * and subscribing events.
  *
- * @param redisURI    future containing connection details for the Redis/Sentinel connections.
- * @param redisClient redis client available from lettuce
- * @param actorSystem to be used for performing asynchronous operations
+ * @param redisURI        future containing connection details for the Redis/Sentinel connections.
+ * @param redisClient     redis client available from lettuce
+ * @param settings        event service settings, including how received events are decoded
+ * @param subscriptionApi provides the pub/sub connection shared by all subscribers of the event service
+ * @param metrics         records how long the callbacks of subscriptions made with `subscribeAsync` take
+ * @param failover        replaces the connection used by `get` as soon as Sentinel switches to a new Redis master
+ * @param nearCache       answers `get` of recently read event keys without a round trip to Redis, if enabled
+ * @param actorSystem     to be used for performing asynchronous operations
  */
-private[event] class RedisSubscriber(redisURI: Future[RedisURI], redisClient: RedisClient)(implicit
-    actorSystem: ActorSystem[?]
-) extends EventSubscriber {
+private[event] class RedisSubscriber(
+    redisURI: Future[RedisURI],
+    redisClient: RedisClient,
+    settings: Settings,
+    subscriptionApi: () => RedisMultiplexedSubscriptionApi[String, Event],
+    metrics: EventMetrics,
+    failover: SentinelFailover,
+    nearCache: Option[EventNearCache] = None
+)(implicit actorSystem: ActorSystem[?])
+    extends EventSubscriber {
 
   import EventRomaineCodecs._
   import actorSystem.executionContext
 
   private val log                 = EventServiceLogger.getLogger
-  private val eventSubscriberUtil = new EventSubscriberUtil()
+  private val eventSubscriberUtil = new EventSubscriberUtil(metrics.recordCallback)
 
   private val romaineFactory = new RomaineFactory(redisClient)
 
-  private val asyncApi: RedisAsyncApi[EventKey, Event] = romaineFactory.redisAsyncApi[EventKey, Event](redisURI)
+  // values are fetched as raw bytes and decoded off the IO thread
+  private val connection = failover.connection(() => romaineFactory.redisAsyncApi[EventKey, Array[Byte]](redisURI))
 
-  private def subscriptionApi[T: RomaineCodec](): RedisSubscriptionApi[T, Event] =
-    romaineFactory.redisSubscriptionApi[T, Event](redisURI)
+  private def asyncApi: RedisAsyncApi[EventKey, Array[Byte]] = connection.api
+
+  private val decodeParallelism = Runtime.getRuntime.availableProcessors()
 
   override def subscribe(eventKeys: Set[EventKey]): Source[Event, EventSubscription] = {
     log.info(s"Subscribing to event keys: $eventKeys")
-    val eventSubscriptionApi: RedisSubscriptionApi[EventKey, Event] = subscriptionApi()
 
-    val latestEventStream: Source[Event, NotUsed] = Source.future(get(eventKeys)).mapConcat(identity)
+    val latestEventStream: Source[Event, NotUsed] = Source.future(fetch(eventKeys)).mapConcat(identity)
     val redisStream: Source[Event, RedisSubscription] =
-      eventSubscriptionApi.subscribe(eventKeys.toList, OverflowStrategy.LATEST).map(_.value)
+      subscriptionApi().subscribe(eventKeys.toList.map(_.key)).map(_.value)
 
     latestEventStream.concatMat(eventStream(eventKeys, redisStream))(Keep.right)
   }
@@ -77,6 +88,14 @@ private[event] class RedisSubscriber(redisURI: Future[RedisURI], redisClient: Re
       mode: SubscriptionMode
   ): EventSubscription = eventSubscriberUtil.subscribeAsync(subscribe(eventKeys, every, mode), callback)
 
+  override def subscribeAsync(
+      eventKeys: Set[EventKey],
+      callback: Event => Future[?],
+      parallelism: Int,
+      ordering: CallbackOrdering
+  ): EventSubscription =
+    eventSubscriberUtil.subscribeAsync(subscribe(eventKeys), callback, parallelism, ordering)
+
   override def subscribeCallback(eventKeys: Set[EventKey], callback: Event => Unit): EventSubscription =
     eventSubscriberUtil.subscribeCallback(subscribe(eventKeys), callback)
 
@@ -105,21 +124,39 @@ private[event] class RedisSubscriber(redisURI: Future[RedisURI], redisClient: Re
 
   override def subscribeObserveEvents(): Source[Event, EventSubscription] = pSubscribe("*.ObserveEvent.*")
 
-  override def get(eventKeys: Set[EventKey]): Future[Set[Event]] = Future.sequence(eventKeys.map(get))
+  override def get(eventKeys: Set[EventKey]): Future[Set[Event]] =
+    nearCache match {
+      case Some(cache) => cache.getAll(eventKeys)(fetch)
+      case None        => fetch(eventKeys)
+    }
 
   override def get(eventKey: EventKey): Future[Event] =
+    nearCache match {
+      case Some(cache) => cache.get(eventKey)(fetch(eventKey))
+      case None        => fetch(eventKey)
+    }
+
+  // all keys are fetched in a single MGET round trip
+  private def fetch(eventKeys: Set[EventKey]): Future[Set[Event]] =
+    if (eventKeys.isEmpty) Future.successful(Set.empty)
+    else
+      async {
+        log.info(s"Fetching event keys: $eventKeys")
+        val results = await(recoverWithError(asyncApi.mget(eventKeys.toList)))
+        await(decode(results)).toSet
+      }
+
+  private def fetch(eventKey: EventKey): Future[Event] =
     async {
       log.info(s"Fetching event key: $eventKey")
-      val event = await(recoverWithError(asyncApi.get(eventKey)))
-      event.getOrElse(Event.invalidEvent(eventKey))
+      val bytes = await(recoverWithError(asyncApi.get(eventKey)))
+      toEvent(RedisResult(eventKey, bytes))
     }
 
   private def pSubscribe(pattern: String) = {
     log.info(s"Subscribing to event key pattern: $pattern")
 
-    val patternSubscriptionApi: RedisSubscriptionApi[String, Event] = subscriptionApi()
-    val redisStream: Source[Event, RedisSubscription] =
-      patternSubscriptionApi.psubscribe(List(pattern), OverflowStrategy.LATEST).map(_.value)
+    val redisStream: Source[Event, RedisSubscription] = subscriptionApi().psubscribe(List(pattern)).map(_.value)
     eventStream(pattern, redisStream)
   }
 
@@ -127,7 +164,7 @@ private[event] class RedisSubscriber(redisURI: Future[RedisURI], redisClient: Re
       eventKeys: T,
       eventStreamF: Source[Event, RedisSubscription]
   ): Source[Event, EventSubscription] =
-    eventStreamF.mapMaterializedValue { redisSubscription =>
+    decoded(eventStreamF.filterNot(_ eq EventDeltas.Unresolved)).mapMaterializedValue { redisSubscription =>
       new EventSubscription {
         override def unsubscribe(): Future[Done] = {
           log.info(s"Unsubscribing for keys=$eventKeys")
@@ -137,6 +174,23 @@ private[event] class RedisSubscriber(redisURI: Future[RedisURI], redisClient: Re
       }
     }
 
+  // parameters of received events are decoded on up to `decodeParallelism` events at once, and delivered in order
+  private def decoded(events: Source[Event, RedisSubscription]): Source[Event, RedisSubscription] =
+    if (settings.lazyParamDecoding || settings.decodeParallelism <= 1) events
+    else events.mapAsync(settings.decodeParallelism)(event => Future(EventConverter.decodeParams(event)))
+
+  // decoding is spread over the available cores in chunks, as priming a subscription can fetch hundreds of events at once
+  private def decode(results: List[RedisResult[EventKey, Option[Array[Byte]]]]): Future[List[Event]] = {
+    val chunkSize = math.max(1, math.ceil(results.size.toDouble / decodeParallelism).toInt)
+    Future.traverse(results.grouped(chunkSize).toList)(chunk => Future(chunk.map(toEvent))).map(_.flatten)
+  }
+
+  private def toEvent(result: RedisResult[EventKey, Option[Array[Byte]]]): Event =
+    result.value.map(decodeEvent).getOrElse(Event.invalidEvent(result.key))
+
+  private def decodeEvent(bytes: Array[Byte]): Event =
+    if (settings.lazyParamDecoding) EventConverter.toLazyEvent(bytes) else EventConverter.toEvent(bytes)
+
   private def recoverWithError[T](f: Future[T]) =
     f.recover { case RedisServerNotAvailable(ex) =>
       throw EventServerNotAvailable(ex)
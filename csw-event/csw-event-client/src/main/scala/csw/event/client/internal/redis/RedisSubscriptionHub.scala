@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import java.nio.ByteBuffer
+
+import org.apache.pekko.Done
+import csw.event.client.internal.commons.{EventMetrics, Settings}
+import csw.params.events.Event
+import io.lettuce.core.{RedisClient, RedisURI}
+import io.netty.buffer.ByteBuf
+import romaine.{RedisResult, RomaineFactory}
+import romaine.codec.RomaineCodec
+import romaine.reactive.RedisMultiplexedSubscriptionApi
+
+import scala.concurrent.{ExecutionContext, Future}
+
+/**
+ * Holds the pub/sub connection shared by all subscriptions made through the event services which an
+ * [[csw.event.client.EventServiceFactory]] creates for the same event server, e.g. by all components of a container.
+ *
+ * Every event received on the connection is decoded once, rebuilt if it was published as a delta, and then delivered to
+ * all local subscriptions for its key. Values of its parameters are decoded on the IO thread of the connection, unless
+ * they are decoded lazily or by the subscriptions in parallel. The decode time and age of every received event, and the
+ * events dropped by subscriptions which fell behind, are recorded in `metrics`. Once Sentinel switched to a new master,
+ * all subscriptions are moved to a new connection to it.
+ *
+ * @param redisClient redis client available from lettuce
+ * @param settings event service settings, including how received events are buffered and decoded
+ * @param metrics records latencies and drops of received events
+ * @param failover announces switches to a new Redis master
+ * @param ec to be used for performing asynchronous operations
+ */
+private[event] class RedisSubscriptionHub(
+    redisClient: RedisClient,
+    settings: Settings,
+    metrics: EventMetrics,
+    failover: SentinelFailover
+)(implicit ec: ExecutionContext) {
+
+  import EventRomaineCodecs._
+
+  private val romaineFactory = new RomaineFactory(redisClient)
+
+  // made once deltas are expected or the first one was received, so that hubs of services which do not use delta
+  // encoding do not keep a keyframe of every event they receive
+  @volatile private var deltaDecoder: Option[EventDeltas.Decoder] =
+    Option.when(settings.deltaEncodingEnabled)(new EventDeltas.Decoder(settings.maxKeyframes, allKeys = true))
+
+  private def decoderFor(received: Event): Option[EventDeltas.Decoder] =
+    if (deltaDecoder.nonEmpty || !EventDeltas.isDelta(received)) deltaDecoder
+    else
+      synchronized {
+        if (deltaDecoder.isEmpty) deltaDecoder = Some(new EventDeltas.Decoder(settings.maxKeyframes, allKeys = false))
+        deltaDecoder
+      }
+
+  // events published as deltas are rebuilt as they are received, hence before being delivered to any subscription.
+  // With a decode parallelism, only the keys of parameters are decoded on the IO thread, see RedisSubscriber.
+  private val eventCodec: RomaineCodec[Event] = {
+    val codec = if (settings.lazyParamDecoding || settings.decodeParallelism > 1) lazyEventRomaineCodec else eventRomaineCodec
+    new RomaineCodec[Event] {
+      override def toBytes(event: Event): ByteBuffer                = codec.toBytes(event)
+      override def writeBytes(event: Event, target: ByteBuf): Unit = codec.writeBytes(event, target)
+      override def fromBytes(byteBuffer: ByteBuffer): Event = {
+        val decodingStartedAt = System.nanoTime()
+        val received          = codec.fromBytes(byteBuffer)
+        val event             = decoderFor(received).fold(received)(_.decode(received))
+        if (event eq EventDeltas.Unresolved) metrics.recordDropped(received.eventKey)
+        else if (!event.isInvalid) metrics.recordReceived(event, System.nanoTime() - decodingStartedAt)
+        event
+      }
+    }
+  }
+
+  private var sharedSubscriptionApi: Option[RedisMultiplexedSubscriptionApi[String, Event]] = None
+
+  failover.onMasterSwitch(() => synchronized(sharedSubscriptionApi).foreach(_.reconnect()))
+
+  /**
+   * A connection which could not be established is replaced on the next subscription, for which the location of the
+   * event server is resolved again using the given `redisURI`
+   */
+  def subscriptionApi(redisURI: => Future[RedisURI]): RedisMultiplexedSubscriptionApi[String, Event] =
+    synchronized {
+      sharedSubscriptionApi.filterNot(_.connectionFailed).getOrElse {
+        val api = romaineFactory.redisMultiplexedSubscriptionApi[String, Event](
+          redisURI,
+          settings.subscriptionBufferSize,
+          settings.conflateSubscriptions,
+          (dropped: RedisResult[String, Event]) => metrics.recordDropped(dropped.value.eventKey)
+        )(using channelRomaineCodec, eventCodec)
+        sharedSubscriptionApi = Some(api)
+        api
+      }
+    }
+
+  /**
+   * Completes all subscriptions and closes the shared connection. A subscription made afterwards makes a new connection.
+   */
+  def shutdown(): Future[Done] = {
+    val api = synchronized {
+      val api = sharedSubscriptionApi
+      sharedSubscriptionApi = None
+      api
+    }
+    api.fold(Future.successful(Done))(_.close())
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.redis
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import org.apache.pekko.Done
+import org.apache.pekko.actor.typed.ActorSystem
+import org.apache.pekko.pattern.after
+import org.apache.pekko.stream.scaladsl.{Keep, RestartSource, Sink}
+import org.apache.pekko.stream.{KillSwitches, RestartSettings, UniqueKillSwitch}
+import csw.event.client.internal.commons.{EventMetrics, EventServiceLogger, Settings}
+import io.lettuce.core.{RedisClient, RedisCommandExecutionException, RedisConnectionException, RedisException, RedisURI}
+import reactor.core.publisher.FluxSink.OverflowStrategy
+import romaine.RomaineFactory
+import romaine.async.RedisAsyncApi
+import romaine.exceptions.RedisServerNotAvailable
+
+import scala.concurrent.duration.{Deadline, DurationInt, DurationLong}
+import scala.concurrent.{Future, Promise}
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success}
+
+/**
+ * Follows failovers of the Redis master of an event server, as announced by Redis Sentinel on its `+sdown` and
+ * `+switch-master` channels, for all event services which an [[csw.event.client.EventServiceFactory]] creates for it.
+ *
+ * Once Sentinel switched to a new master, connections made through [[connection]] and registered listeners, e.g. the
+ * shared pub/sub connection of subscriptions, reconnect right away instead of waiting for lettuce to reconnect with a
+ * backoff. Operations run with `retried` of such a connection which fail as the master is unavailable are retried until
+ * the new master takes them, for at most `failover.publish-timeout`. Publishers keep queueing events in their bounded
+ * publish queue in the meantime, hence no event is lost as long as the failover is shorter and the queue does not overflow.
+ *
+ * Only operations which failed as the connection was lost, or which the master refused with READONLY, LOADING or MASTERDOWN,
+ * are retried, other errors fail right away. An operation which reached the master just before the connection was lost
+ * fails without its reply as well, and is hence applied again by the retry: an event can be published twice during a
+ * failover, so subscribers should tolerate receiving the same event again.
+ *
+ * The time from the master being reported down, or the first failed operation, to the switch is logged and recorded in
+ * `metrics` for every failover.
+ *
+ * @param redisClient redis client available from lettuce
+ * @param settings event service settings, including the master Id and how long operations are retried during a failover
+ * @param metrics records the duration of failovers
+ * @param actorSystem to watch Sentinel and schedule retries
+ */
+private[event] class SentinelFailover(redisClient: RedisClient, settings: Settings, metrics: EventMetrics)(implicit
+    actorSystem: ActorSystem[?]
+) {
+  import SentinelFailover._
+  import actorSystem.executionContext
+
+  private val logger         = EventServiceLogger.getLogger
+  private val romaineFactory = new RomaineFactory(redisClient)
+  private val watching       = new AtomicBoolean(false)
+  private val watchSwitch    = Promise[UniqueKillSwitch]()
+  private val masterId       = settings.masterId
+
+  @volatile private var switches: Long         = 0
+  @volatile private var switched: Promise[Done] = Promise()
+  private var listeners: List[() => Unit]       = Nil
+  private var failingSince: Option[Long]        = None
+
+  /**
+   * Subscribes to the announcements of the Sentinel at `sentinelURI`, once for all event services of the event server.
+   * The subscription is made again with a backoff whenever the connection to Sentinel fails, until [[shutdown]].
+   */
+  def watch(sentinelURI: => Future[RedisURI]): Unit =
+    if (watching.compareAndSet(false, true))
+      watchSwitch.success(
+        RestartSource
+          .withBackoff(RestartSettings(settings.failoverRetryInterval, 10.seconds, 0.2)) { () =>
+            romaineFactory
+              .redisSubscriptionApi[String, String](sentinelURI)
+              .subscribe(List(MasterDownChannel, SwitchMasterChannel), OverflowStrategy.BUFFER)
+          }
+          .viaMat(KillSwitches.single)(Keep.right)
+          .to(Sink.foreach(result => onAnnouncement(result.key, result.value)))
+          .run()
+      )
+
+  /**
+   * Stops watching Sentinel, which unsubscribes from its announcements. Connections follow the master no more afterwards.
+   */
+  def shutdown(): Unit = {
+    watching.set(true)
+    watchSwitch.future.value.flatMap(_.toOption).foreach(_.shutdown())
+  }
+
+  /**
+   * Registers a listener which is called after every switch to a new master
+   */
+  def onMasterSwitch(listener: () => Unit): Unit = synchronized(listeners ::= listener)
+
+  /**
+   * Makes a connection with `connect`, which is made again on use once the master was switched or the connection was lost
+   */
+  def connection[K, V](connect: () => RedisAsyncApi[K, V]): FailoverConnection[K, V] = new FailoverConnection(connect)
+
+  // attempts are not retried anymore once `canRetry` is false, e.g. as the connection was closed
+  private def retrying[T](attempt: () => Future[T], canRetry: => Boolean): Future[T] = {
+    val deadline = settings.failoverPublishTimeout.fromNow
+
+    def retry(firstFailure: Option[Throwable]): Future[T] =
+      attempt().transformWith {
+        case Success(result) =>
+          if (firstFailure.isDefined) masterRecovered()
+          Future.successful(result)
+        case Failure(NonFatal(ex)) if isMasterUnavailable(ex) && canRetry && deadline.hasTimeLeft() =>
+          noteFailure()
+          awaitMasterSwitch(deadline).flatMap(_ => retry(firstFailure.orElse(Some(ex))))
+        case Failure(ex) => Future.failed(firstFailure.getOrElse(ex))
+      }
+
+    retry(None)
+  }
+
+  private def awaitMasterSwitch(deadline: Deadline): Future[Done] = {
+    val retryIn = settings.failoverRetryInterval.min(deadline.timeLeft)
+    Future.firstCompletedOf(List(switched.future, after(retryIn)(Future.successful(Done))))
+  }
+
+  private def noteFailure(): Unit = synchronized(if (failingSince.isEmpty) failingSince = Some(System.nanoTime()))
+
+  // the master came back without a failover, e.g. after a restart
+  private def masterRecovered(): Unit = synchronized(failingSince = None)
+
+  // +sdown:         master <master name> <ip> <port>
+  // +switch-master: <master name> <old ip> <old port> <new ip> <new port>
+  private def onAnnouncement(channel: String, message: String): Unit =
+    message.split(' ').toList match {
+      case "master" :: `masterId` :: address if channel == MasterDownChannel =>
+        val master = address.take(2).mkString(":")
+        logger.warn(s"Master [$master] of event server is down, waiting for Sentinel to switch to a new one")
+        noteFailure()
+      case `masterId` :: oldHost :: oldPort :: newHost :: newPort :: _ if channel == SwitchMasterChannel =>
+        val duration = synchronized {
+          val since = failingSince
+          failingSince = None
+          since.map(since => (System.nanoTime() - since).nanos)
+        }
+        duration.foreach(metrics.recordFailover)
+        logger.warn(
+          s"Event server switched master from [$oldHost:$oldPort] to [$newHost:$newPort]" +
+            duration.fold("")(duration => s", ${duration.toMillis} ms after the previous master became unavailable")
+        )
+        masterSwitched()
+      case _ =>
+    }
+
+  private def masterSwitched(): Unit = {
+    val (previousSwitched, switchListeners) = synchronized {
+      val previous = switched
+      switches += 1
+      switched = Promise()
+      (previous, listeners)
+    }
+    previousSwitched.trySuccess(Done)
+    switchListeners.foreach { listener =>
+      try listener()
+      catch { case NonFatal(ex) => logger.error("Failed to reconnect to the new master of event server", ex = ex) }
+    }
+  }
+
+  /**
+   * A connection which is made again on use once the master was switched, or once it was lost. A closed connection is
+   * never made again.
+   */
+  class FailoverConnection[K, V] private[SentinelFailover] (connect: () => RedisAsyncApi[K, V]) {
+    @volatile private var current: (Long, RedisAsyncApi[K, V]) = (switches, connect())
+    @volatile private var closed                               = false
+
+    def api: RedisAsyncApi[K, V] = {
+      val (madeAt, api) = current
+      if (closed || (madeAt == switches && !api.connectionLost)) api else reconnect(api)
+    }
+
+    /**
+     * Runs `attempt` on the connection until it succeeds, fails with an error other than the master being unavailable, or
+     * `failover.publish-timeout` elapses. Attempts are retried as soon as the master is switched, or every
+     * `failover.retry-interval` in case the master comes back without a failover.
+     *
+     * @return the result of the last attempt, or the failure of the first one if the master did not become available in time
+     */
+    def retried[T](attempt: RedisAsyncApi[K, V] => Future[T]): Future[T] =
+      retrying(() => attempt(api), !closed)
+
+    def close(): Future[Done] = {
+      closed = true
+      current._2.quit().map(_ => Done)
+    }
+
+    private def reconnect(lost: RedisAsyncApi[K, V]): RedisAsyncApi[K, V] =
+      synchronized {
+        // the lost connection is given up first, so that a connection shared with other apis is made again
+        if (current._2 eq lost) {
+          lost.close()
+          current = (switches, connect())
+        }
+        current._2
+      }
+  }
+}
+
+private[event] object SentinelFailover {
+  private val MasterDownChannel   = "+sdown"
+  private val SwitchMasterChannel = "+switch-master"
+
+  // replies of a master which is a replica now, is still loading its data, or lost its replicas with min-replicas set
+  private val UnavailableReplies = List("READONLY", "LOADING", "MASTERDOWN")
+
+  // connections can not be made while there is no master, and lettuce fails commands pending on, or sent to, a lost
+  // connection with a plain RedisException. Other replies of redis, e.g. WRONGTYPE or OOM, fail the same way when retried.
+  def isMasterUnavailable(ex: Throwable): Boolean =
+    ex match {
+      case _: RedisConnectionException | _: RedisServerNotAvailable => true
+      case ex: RedisCommandExecutionException                       => Option(ex.getMessage).exists(isUnavailableReply)
+      case ex: RedisException                                       => ex.getClass == classOf[RedisException]
+      case _                                                        => false
+    }
+
+  private def isUnavailableReply(reply: String): Boolean = UnavailableReplies.exists(reply.startsWith)
+}
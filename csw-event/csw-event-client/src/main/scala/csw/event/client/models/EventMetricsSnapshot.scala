@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.models
+
+import csw.prefix.models.Subsystem
+
+import scala.concurrent.duration.FiniteDuration
+
+/**
+ * Distribution of a latency, recorded with a precision of a microsecond and 3 significant digits
+ *
+ * @param count number of recorded values
+ * @param mean mean of the recorded values
+ * @param p50 median of the recorded values
+ * @param p90 90th percentile of the recorded values
+ * @param p99 99th percentile of the recorded values
+ * @param p999 99.9th percentile of the recorded values
+ * @param max maximum of the recorded values
+ */
+case class LatencySummary(
+    count: Long,
+    mean: FiniteDuration,
+    p50: FiniteDuration,
+    p90: FiniteDuration,
+    p99: FiniteDuration,
+    p999: FiniteDuration,
+    max: FiniteDuration
+)
+
+/**
+ * Metrics of the events of one subsystem, i.e. of the event keys matching the pattern `<subsystem>.*`
+ *
+ * @param publishRoundTrip time from sending a published event to the event server until the server acknowledged it
+ * @param eventAge time from the `eventTime` of a received event until it was received, which includes the difference between
+ *                 the clocks of the publishing and the receiving host
+ * @param decodeTime time spent decoding a received event. Values of parameters which are decoded lazily or in parallel, see
+ *                   `csw-event.redis.subscriber` in the configuration, are not included.
+ * @param callbackDuration time from calling the asynchronous callback of a subscription made with `subscribeAsync` until
+ *                         its future completed
+ * @param dropped number of events which were dropped by the publish queue or by the buffer of a subscription which fell
+ *                behind, and of received deltas which could not be rebuilt
+ */
+case class SubsystemEventMetrics(
+    publishRoundTrip: LatencySummary,
+    eventAge: LatencySummary,
+    decodeTime: LatencySummary,
+    callbackDuration: LatencySummary,
+    dropped: Long
+)
+
+/**
+ * Counters of the queues of events published with `publish(event)` and `publishAll(events)`, summed over all publishers
+ *
+ * @param depth number of entries waiting to be published, the events of a `publishAll` making a single entry
+ * @param offered number of events published with `publish(event)` and `publishAll(events)`
+ * @param dropped number of events dropped by the `drop-oldest` or `drop-newest` policy
+ * @param rejected number of events rejected by the `fail-fast` policy, by the `backpressure` policy once as many events were
+ *                 waiting for room as the queue holds, or after the publisher was shutdown
+ * @param published number of events which were successfully published
+ * @param meanLatency mean time from queueing an event until it was published
+ * @param maxLatency maximum time from queueing an event until it was published
+ */
+case class PublishQueueMetrics(
+    depth: Int,
+    offered: Long,
+    dropped: Long,
+    rejected: Long,
+    published: Long,
+    meanLatency: FiniteDuration,
+    maxLatency: FiniteDuration
+)
+
+/**
+ * Hits and misses of `get` answered by the near caches of subscribers, see `csw-event.redis.subscriber.near-cache` in the
+ * configuration, summed over all event services
+ *
+ * @param size number of event keys currently cached
+ * @param hits reads answered from a cache
+ * @param misses reads which had to fetch the event from Redis
+ * @param evictions event keys removed from a cache, as it was full or they were not read for a while
+ */
+case class NearCacheMetrics(size: Int, hits: Long, misses: Long, evictions: Long)
+
+/**
+ * Metrics of the events published and received through the event services created by an
+ * [[csw.event.client.EventServiceFactory]], see [[csw.event.client.EventServiceFactory#metrics]]
+ *
+ * @param subsystems metrics of each subsystem which published or received events
+ * @param failovers time from the Redis master of an event server becoming unavailable until Sentinel switched to a new one
+ * @param publishQueues publish queues of all publishers, of those which were shutdown since as well
+ * @param nearCaches near caches of all event services which enabled it
+ */
+case class EventMetricsSnapshot(
+    subsystems: Map[Subsystem, SubsystemEventMetrics],
+    failovers: LatencySummary,
+    publishQueues: PublishQueueMetrics,
+    nearCaches: NearCacheMetrics
+)
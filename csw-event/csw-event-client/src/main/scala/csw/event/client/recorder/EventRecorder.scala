@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.recorder
+
+import java.nio.file.Path
+import java.time.Instant
+
+import org.apache.pekko.actor.typed.ActorSystem
+import org.apache.pekko.stream.scaladsl.{Keep, Sink, Source}
+import csw.event.api.scaladsl.{EventSubscriber, EventSubscription}
+import csw.event.client.internal.commons.EventConverter
+import csw.event.client.internal.recorder.EventLog
+import csw.params.events.{Event, EventKey}
+import csw.prefix.models.Subsystem
+
+/**
+ * Records events, as they are received by subscriptions, into an append-only log of memory-mapped segment files in
+ * `directory`, from where an [[csw.event.client.recorder.EventReplayer]] can replay them.
+ *
+ * Unlike the event server, which keeps only the latest event of every event key, the log keeps every received event along
+ * with the time at which it was received.
+ *
+ * @param directory where segments of the log are written, it is created if it does not exist
+ * @param segmentSize size in bytes of each segment file
+ * @param actorSystem to run the recording streams
+ */
+class EventRecorder(directory: Path, segmentSize: Int = EventRecorder.DefaultSegmentSize)(implicit actorSystem: ActorSystem[?]) {
+
+  private val writer = new EventLog.Writer(directory, segmentSize)
+
+  /**
+   * Records events of the given event keys until the returned subscription is unsubscribed
+   *
+   * @param subscriber to subscribe to the event keys with
+   * @param eventKeys a set of [[csw.params.events.EventKey]] to record events of
+   * @return an [[csw.event.api.scaladsl.EventSubscription]] which can be used to stop recording
+   */
+  def record(subscriber: EventSubscriber, eventKeys: Set[EventKey]): EventSubscription =
+    record(subscriber.subscribe(eventKeys))
+
+  /**
+   * Records events of the keys matching the given pattern until the returned subscription is unsubscribed
+   *
+   * @param subscriber to subscribe to the pattern with
+   * @param subsystem a valid [[csw.prefix.models.Subsystem]] which represents the source of the events
+   * @param pattern the subscription pattern, as accepted by [[csw.event.api.scaladsl.EventSubscriber#pSubscribe]]
+   * @return an [[csw.event.api.scaladsl.EventSubscription]] which can be used to stop recording
+   */
+  def record(subscriber: EventSubscriber, subsystem: Subsystem, pattern: String): EventSubscription =
+    record(subscriber.pSubscribe(subsystem, pattern))
+
+  /**
+   * Writes out the segment being recorded into. Subscriptions are expected to be unsubscribed before, events received
+   * by these afterwards are recorded into a new segment.
+   */
+  def close(): Unit = writer.close()
+
+  private def record(events: Source[Event, EventSubscription]): EventSubscription =
+    events.filterNot(_.isInvalid).toMat(Sink.foreach(append))(Keep.left).run()
+
+  private def append(event: Event): Unit =
+    writer.append(EventConverter.toBytes[Array[Byte]](event))(EventRecorder.epochNanos(Instant.now()))
+}
+
+object EventRecorder {
+
+  /**
+   * Default size of segment files, 64 MiB
+   */
+  val DefaultSegmentSize: Int = 64 * 1024 * 1024
+
+  private[recorder] def epochNanos(instant: Instant): Long = instant.getEpochSecond * 1_000_000_000L + instant.getNano
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.recorder
+
+import java.nio.file.Path
+import java.time.Instant
+
+import org.apache.pekko.actor.typed.ActorSystem
+import org.apache.pekko.pattern.after
+import org.apache.pekko.stream.scaladsl.{Sink, Source}
+import org.apache.pekko.{Done, NotUsed}
+import csw.event.api.scaladsl.EventPublisher
+import csw.event.client.internal.commons.EventConverter
+import csw.event.client.internal.recorder.EventLog
+import csw.params.events.Event
+import csw.time.core.models.UTCTime
+
+import scala.concurrent.Future
+import scala.concurrent.duration.DurationLong
+
+/**
+ * An event recorded by an [[csw.event.client.recorder.EventRecorder]]
+ *
+ * @param recordedAt time at which the event was received by the recorder
+ * @param event the recorded event
+ */
+case class RecordedEvent(recordedAt: UTCTime, event: Event)
+
+/**
+ * Reads events recorded by an [[csw.event.client.recorder.EventRecorder]] into `directory`, e.g. to republish them for a
+ * post-mortem analysis of what happened during a night.
+ *
+ * @param directory where the segments of the log were written
+ * @param actorSystem to schedule the replay of events at their recorded pace
+ */
+class EventReplayer(directory: Path)(implicit actorSystem: ActorSystem[?]) {
+
+  /**
+   * Events recorded between the given times, both inclusive, in the order in which they were recorded
+   *
+   * @param from time from which events are read, all recorded events are read if not provided
+   * @param to time until which events are read, all recorded events are read if not provided
+   * @return a Source of recorded events
+   */
+  def events(from: Option[UTCTime] = None, to: Option[UTCTime] = None): Source[RecordedEvent, NotUsed] = {
+    val fromNanos = from.map(time => EventRecorder.epochNanos(time.value)).getOrElse(Long.MinValue)
+    val toNanos   = to.map(time => EventRecorder.epochNanos(time.value)).getOrElse(Long.MaxValue)
+
+    Source
+      .lazySource(() => Source(EventLog.segmentsFrom(directory, fromNanos)))
+      .flatMapConcat(segment => Source.fromIterator(() => EventLog.records(segment)))
+      .dropWhile { case (recordedAt, _) => recordedAt < fromNanos }
+      .takeWhile { case (recordedAt, _) => recordedAt <= toNanos }
+      .map { case (recordedAt, bytes) => RecordedEvent(UTCTime(toInstant(recordedAt)), EventConverter.toEvent(bytes)) }
+      .mapMaterializedValue(_ => NotUsed)
+  }
+
+  /**
+   * Republishes the events recorded between the given times using `publisher`, one after the other in the order in which
+   * they were recorded
+   *
+   * @param publisher to publish the events with
+   * @param speed pace of the replay relative to the recorded pace, e.g. 2 replays events twice as fast as they were recorded.
+   *              With `Double.PositiveInfinity` events are republished as fast as the publisher can publish them.
+   * @param from time from which events are replayed, all recorded events are replayed if not provided
+   * @param to time until which events are replayed, all recorded events are replayed if not provided
+   * @return a future which completes once all the events are republished, or fails with the
+   *         [[csw.event.api.exceptions.PublishFailure]] of the first event which could not be republished
+   */
+  def replay(
+      publisher: EventPublisher,
+      speed: Double = 1,
+      from: Option[UTCTime] = None,
+      to: Option[UTCTime] = None
+  ): Future[Done] = {
+    require(speed > 0, "speed of the replay should be positive")
+    paced(events(from, to), speed).mapAsync(1)(recorded => publisher.publish(recorded.event)).runWith(Sink.ignore)
+  }
+
+  // delays every event so that it is published after the same time, scaled by speed, which passed since the first one
+  private def paced(events: Source[RecordedEvent, NotUsed], speed: Double): Source[RecordedEvent, NotUsed] =
+    if (speed.isPosInfinity) events
+    else
+      Source.lazySource { () =>
+        var started         = false
+        var firstRecordedAt = 0L
+        var startedAt       = 0L
+        events.mapAsync(1) { recorded =>
+          val recordedAt = EventRecorder.epochNanos(recorded.recordedAt.value)
+          if (!started) {
+            started = true
+            firstRecordedAt = recordedAt
+            startedAt = System.nanoTime()
+          }
+          val delay = ((recordedAt - firstRecordedAt) / speed).toLong - (System.nanoTime() - startedAt)
+          if (delay <= 0) Future.successful(recorded) else after(delay.nanos)(Future.successful(recorded))
+        }
+      }.mapMaterializedValue(_ => NotUsed)
+
+  private def toInstant(epochNanos: Long): Instant =
+    Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L))
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.streams
+
+import org.apache.pekko.stream.scaladsl.Source
+import csw.event.api.scaladsl.{EventSubscriber, EventSubscription}
+import csw.params.events.{Event, EventKey}
+
+import scala.concurrent.Future
+
+/**
+ * An event read from the stream of its event key, along with the id of its entry in the stream
+ *
+ * @param id id of the entry, which orders the events of an event key, e.g. `1700000000000-0`
+ * @param event the event
+ */
+case class StreamedEvent(id: String, event: Event)
+
+/**
+ * An [[csw.event.api.scaladsl.EventSubscriber]] of an event service backed by
+ * [[csw.event.client.models.EventStores.RedisStreamsStore]], which keeps a bounded history of the events of every event
+ * key. Subscribers created by such an event service can be matched against this type to read that history.
+ */
+trait EventStreamSubscriber extends EventSubscriber {
+
+  /**
+   * Subscribes to events published after the given positions, e.g. to resume after the last event seen before a restart.
+   * Events still in the history of their event key are received even if they were published before the subscription.
+   *
+   * @param positions event keys to subscribe to, along with the id of the entry after which their events are received.
+   *                  `0` receives all events in the history of the event key, and `$` only events published from now on.
+   * @return a [[org.apache.pekko.stream.scaladsl.Source]] of events along with their ids. The materialized value of the
+   *         source provides an [[csw.event.api.scaladsl.EventSubscription]] which can be used to unsubscribe.
+   */
+  def subscribeFrom(positions: Map[EventKey, String]): Source[StreamedEvent, EventSubscription]
+
+  /**
+   * A page of the history of the given event key, oldest events first
+   *
+   * @param eventKey event key to read the history of
+   * @param after id of the entry after which events are read, the oldest events in the history are read if not provided.
+   *              The id of the last event of a page reads the next page.
+   * @param count maximum number of events read
+   * @return a future which completes with the events, an empty list once the end of the history is reached
+   */
+  def history(eventKey: EventKey, after: Option[String] = None, count: Int = 100): Future[List[StreamedEvent]]
+}
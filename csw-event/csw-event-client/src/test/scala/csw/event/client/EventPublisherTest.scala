@@ -11,7 +11,10 @@ import org.apache.pekko.stream.scaladsl.{Keep, Sink, Source}
 import csw.event.client.helpers.TestFutureExt.given
 import scala.language.implicitConversions
 
-import csw.event.client.helpers.Utils.{makeDistinctEvent, makeEvent, makeEventWithPrefix}
+import csw.event.api.exceptions.PublishFailure
+import csw.event.api.scaladsl.{PublishOverflowPolicies, PublishOverflowPolicy}
+import csw.event.client.helpers.Utils.{makeDistinctEvent, makeEvent, makeEventForPrefixAndKeyName, makeEventWithPrefix}
+import csw.event.client.internal.commons.EventMetrics
 import csw.event.client.internal.redis.{InitializationEvent, RedisTestProps}
 //import csw.event.client.internal.kafka.KafkaTestProps
 import csw.event.client.internal.wiring.*
@@ -29,7 +32,7 @@ import org.testng.annotations.*
 import scala.collection.{immutable, mutable}
 import scala.concurrent.Future
 import scala.concurrent.duration.DurationLong
-import scala.util.Random
+import scala.util.{Failure, Random, Success}
 
 //DEOPSCSW-331: Event Service Accessible to all CSW component builders
 //DEOPSCSW-334: Publish an event
@@ -43,7 +46,7 @@ class EventPublisherTest extends TestNGSuite with Matchers with Eventually /*wit
 
   implicit val patience: PatienceConfig = PatienceConfig(5.seconds, 10.millis)
 
-  var redisTestProps: BaseProperties = scala.compiletime.uninitialized
+  var redisTestProps: RedisTestProps = scala.compiletime.uninitialized
 //  var kafkaTestProps: BaseProperties = _
 
   @BeforeSuite
@@ -230,6 +233,177 @@ class EventPublisherTest extends TestNGSuite with Matchers with Eventually /*wit
     testProbe.expectMessage(event5)
   }
 
+  @Test
+  def should_maintain_ordering_while_publishing_in_pipelined_batches(): Unit = {
+    import redisTestProps.*
+
+    val prefix                       = Prefix("csw.pipelined.prefix")
+    val events: immutable.Seq[Event] = for (i <- 1 to 50) yield makeEventWithPrefix(i, prefix)
+    val eventKey: EventKey           = events.head.eventKey
+    val testProbe                    = TestProbe[Event]()
+
+    val subscription = subscriber
+      .subscribe(Set(eventKey))
+      .toMat(Sink.foreach[Event](testProbe.ref ! _))(Keep.left)
+      .run()
+
+    subscription.ready().await
+    Thread.sleep(500)
+
+    testProbe.expectMessage(Event.invalidEvent(eventKey))
+
+    val (singleEvents, streamedEvents) = events.splitAt(25)
+
+    singleEvents.foreach(pipelinedPublisher.publish)
+    singleEvents.foreach(testProbe.expectMessage(_))
+
+    pipelinedPublisher.publish(Source(streamedEvents))
+    streamedEvents.foreach(testProbe.expectMessage(_))
+
+    eventually(subscriber.get(eventKey).await shouldBe events.last)
+  }
+
+  @Test
+  def should_publish_all_events_of_a_snapshot_at_once(): Unit = {
+    import redisTestProps.*
+
+    val prefix                       = Prefix("csw.snapshot.prefix")
+    val events: immutable.Seq[Event] = for (i <- 1 to 200) yield makeEventForPrefixAndKeyName(prefix, EventName(s"key$i"), i)
+    val testProbe                    = TestProbe[Event]()
+
+    val subscription = subscriber
+      .pSubscribe(Subsystem.CSW, "snapshot.prefix.*")
+      .toMat(Sink.foreach[Event](testProbe.ref ! _))(Keep.left)
+      .run()
+
+    subscription.ready().await
+    Thread.sleep(500)
+
+    publisher.publishAll(events).await shouldBe empty
+
+    testProbe.receiveMessages(events.size) shouldBe events
+    subscriber.get(events.map(_.eventKey).toSet).await shouldBe events.toSet
+
+    subscription.unsubscribe().await
+  }
+
+  @Test
+  def should_publish_events_of_publish_all_in_order_with_events_published_one_by_one(): Unit = {
+    import redisTestProps.*
+
+    val lanePublisher = eventServiceWith("csw-event.redis.publisher.key-parallelism = 8").makeNewPublisher()
+
+    val publishers =
+      List(("default", publisher, subscriber), ("lanes", lanePublisher, subscriber), ("delta", deltaPublisher, deltaSubscriber))
+
+    publishers.foreach { case (name, mixedPublisher, mixedSubscriber) =>
+      val events    = (1 to 30).map(i => makeEventWithPrefix(i, Prefix(s"csw.mixed.$name")))
+      val testProbe = TestProbe[Event]()
+
+      val subscription =
+        mixedSubscriber.subscribe(Set(events.head.eventKey)).toMat(Sink.foreach(testProbe.ref ! _))(Keep.left).run()
+      subscription.ready().await
+      testProbe.expectMessageType[Event] // latest event of the key published by an earlier run, if any
+
+      // events published one by one are still queued when the ones of publishAll are queued behind them, and the other way round
+      val (first, rest)  = events.splitAt(10)
+      val (all, last)    = rest.splitAt(10)
+      val publishedFirst = first.map(mixedPublisher.publish)
+      val publishedAll   = mixedPublisher.publishAll(all)
+      val publishedLast  = last.map(mixedPublisher.publish)
+      publishedFirst.foreach(_.await)
+      publishedAll.await shouldBe empty
+      publishedLast.foreach(_.await)
+
+      // deltas are only rebuilt from messages received in the order in which they were encoded
+      testProbe.receiveMessages(events.size) shouldBe events
+      subscriber.get(events.head.eventKey).await shouldBe events.last
+
+      // the value set by publishAll is not overwritten by the one of an event published before, which was still queued
+      val stale = mixedPublisher.publish(events(1))
+      mixedPublisher.publishAll(List(events.head)).await shouldBe empty
+      stale.await
+      subscriber.get(events.head.eventKey).await shouldBe events.head
+
+      subscription.unsubscribe().await
+    }
+
+    lanePublisher.shutdown().await
+  }
+
+  @Test
+  def should_maintain_ordering_per_event_key_while_publishing_keys_concurrently(): Unit = {
+    import redisTestProps.*
+
+    val publisher = eventServiceWith("csw-event.redis.publisher.key-parallelism = 8").makeNewPublisher()
+
+    val prefixes                     = (1 to 4).map(i => Prefix(s"csw.lane$i.prefix"))
+    val events: immutable.Seq[Event] = for (i <- 1 to 30; prefix <- prefixes) yield makeEventWithPrefix(i, prefix)
+    val eventKeys                    = prefixes.map(prefix => events.find(_.source == prefix).get.eventKey).toSet
+    val testProbe                    = TestProbe[Event]()
+
+    val subscription = subscriber
+      .subscribe(eventKeys)
+      .toMat(Sink.foreach[Event](testProbe.ref ! _))(Keep.left)
+      .run()
+
+    subscription.ready().await
+    testProbe.receiveMessages(eventKeys.size).foreach(_.isInvalid shouldBe true)
+
+    publisher.publish(Source(events))
+
+    val received = testProbe.receiveMessages(events.size)
+    eventKeys.foreach(eventKey => received.filter(_.eventKey == eventKey) shouldBe events.filter(_.eventKey == eventKey))
+
+    publisher.shutdown().await
+  }
+
+  @Test
+  def should_fail_events_published_while_publish_queue_is_full_with_fail_fast_policy(): Unit =
+    shouldRejectEventsOnceQueueIsFull("fail-fast")
+
+  @Test
+  def should_fail_events_published_while_publish_queue_and_waiting_events_are_full_with_backpressure_policy(): Unit =
+    shouldRejectEventsOnceQueueIsFull("backpressure")
+
+  // the configured policy drops events rather than rejecting them, hence only the policy of the publisher rejects these
+  @Test
+  def should_fail_events_published_while_publish_queue_is_full_with_fail_fast_policy_of_the_publisher(): Unit =
+    shouldRejectEventsOnceQueueIsFull("drop-oldest", Some(PublishOverflowPolicies.FailFast))
+
+  private def shouldRejectEventsOnceQueueIsFull(
+      overflowPolicy: String,
+      publisherPolicy: Option[PublishOverflowPolicy] = None
+  ): Unit = {
+    import redisTestProps.*
+
+    val eventMetrics = new EventMetrics
+    val eventService = eventServiceWith(
+      s"""
+        |csw-event.publisher.queue.size = 1
+        |csw-event.publisher.queue.overflow-policy = $overflowPolicy
+        |""".stripMargin,
+      eventMetrics
+    )
+    val publisher = publisherPolicy.fold(eventService.makeNewPublisher())(eventService.makeNewPublisher)
+
+    val events: immutable.Seq[Event] = for (i <- 1 to 100) yield makeEventWithPrefix(i, Prefix("csw.publish.queue"))
+
+    val results  = Future.sequence(events.map(event => publisher.publish(event).transform(Success(_)))).await
+    val failures = results.collect { case Failure(failure: PublishFailure) => failure }
+
+    failures should not be empty
+    eventually {
+      val metrics = eventMetrics.snapshot().publishQueues
+      metrics.depth shouldBe 0
+      metrics.rejected shouldBe failures.size
+      // including the initialization event published while creating the publisher
+      metrics.published shouldBe events.size - failures.size + 1
+    }
+
+    publisher.shutdown().await
+  }
+
   // DEOPSCSW-515: Include Start Time in API
   // DEOPSCSW-516: Optionally Publish - API Change
   @Test(dataProvider = "event-service-provider")
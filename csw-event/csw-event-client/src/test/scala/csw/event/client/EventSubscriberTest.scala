@@ -9,16 +9,19 @@ import org.apache.pekko.actor.testkit.typed.scaladsl.{TestInbox, TestProbe}
 import org.apache.pekko.actor.typed.ActorSystem
 import org.apache.pekko.actor.typed.scaladsl.Behaviors
 import org.apache.pekko.stream.scaladsl.{Keep, Sink}
-import csw.event.api.scaladsl.SubscriptionModes
+import csw.event.api.scaladsl.{CallbackOrderings, SubscriptionModes}
 import csw.event.client.helpers.TestFutureExt.given
 import scala.language.implicitConversions
 
 import csw.event.client.helpers.Utils.*
 import csw.prefix.models.{Prefix, Subsystem}
 //import csw.event.client.internal.kafka.KafkaTestProps
+import csw.event.client.internal.commons.EventMetrics
 import csw.event.client.internal.redis.RedisTestProps
+import csw.event.client.streams.EventStreamSubscriber
 import csw.event.client.internal.wiring.BaseProperties
-import csw.params.core.models.ObsId
+import csw.params.core.generics.KeyType.{IntArrayKey, IntKey, StringKey}
+import csw.params.core.models.{ArrayData, ObsId}
 import csw.params.events.{Event, EventKey, EventName, IRDetectorEvent, OpticalDetectorEvent, SystemEvent, WFSDetectorEvent}
 import org.scalatest.concurrent.Eventually
 import org.scalatestplus.testng.TestNGSuite
@@ -68,6 +71,8 @@ class EventSubscriberTest extends TestNGSuite with Matchers with Eventually {
   @DataProvider(name = "redis-provider")
   def redisPubSubProvider: Array[Array[BaseProperties]] = Array(Array(redisTestProps))
 
+  private val NearCacheConfig = "csw-event.redis.subscriber.near-cache.enabled = true"
+
   val events: immutable.Seq[Event]                  = for (i <- 1 to 3500) yield makeEvent(i)
   def events(name: EventName): immutable.Seq[Event] = for (i <- 1 to 3500) yield makeEventForKeyName(name, i)
 
@@ -432,6 +437,332 @@ class EventSubscriberTest extends TestNGSuite with Matchers with Eventually {
     seqF2.await.toSet shouldBe Set(Event.invalidEvent(event2.eventKey), event2)
   }
 
+  // subscriptions share a single pub/sub connection, hence unsubscribing one of them must not affect the others
+  @Test(dataProvider = "redis-provider")
+  def should_keep_receiving_events_when_another_subscription_for_same_key_is_unsubscribed(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val event1 = makeEvent(1)
+    val event2 = makeEvent(2)
+    val buffer = mutable.ArrayBuffer.empty[Event]
+
+    val subscription1 = subscriber.subscribe(Set(event1.eventKey)).toMat(Sink.ignore)(Keep.left).run()
+    val subscription2 =
+      subscriber.subscribe(Set(event1.eventKey)).wireTap(e => buffer.addOne(e)).toMat(Sink.ignore)(Keep.left).run()
+    subscription1.ready().await
+    subscription2.ready().await
+    Thread.sleep(200)
+
+    publisher.publish(event1).await
+    eventually(buffer.last shouldBe event1)
+
+    subscription1.unsubscribe().await
+    publisher.publish(event2).await
+    eventually(buffer.last shouldBe event2)
+
+    subscription2.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_deliver_only_latest_event_to_slow_subscriber_when_subscriptions_are_conflated(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val conflatingSubscriber = eventServiceWith("csw-event.redis.subscriber.conflate = true").makeNewSubscriber()
+    val publishedEvents      = (1 to 10).map(makeEvent)
+    val buffer               = mutable.ArrayBuffer.empty[Event]
+
+    val subscription = conflatingSubscriber
+      .subscribe(Set(publishedEvents.head.eventKey))
+      .map { e =>
+        Thread.sleep(100) // slow subscriber
+        buffer.addOne(e)
+      }
+      .toMat(Sink.ignore)(Keep.left)
+      .run()
+    subscription.ready().await
+    Thread.sleep(200)
+
+    publishedEvents.foreach(publisher.publish(_).await)
+    eventually(buffer.last shouldBe publishedEvents.last)
+    buffer.count(e => publishedEvents.contains(e)) should be < publishedEvents.size
+
+    subscription.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_be_able_to_read_parameters_of_lazily_decoded_events(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val intArrayKey = IntArrayKey.make("intArray")
+    val stringKey   = StringKey.make("string")
+    val event1      = makeEvent(1).madd(intArrayKey.set(ArrayData.fromArray(Array(1, 2, 3))), stringKey.set("a", "b"))
+    val probe       = TestProbe[Event]()
+
+    val subscription = lazyDecodingSubscriber.subscribe(Set(event1.eventKey)).toMat(Sink.foreach(probe.ref ! _))(Keep.left).run()
+    subscription.ready().await
+    probe.expectMessageType[SystemEvent].isInvalid shouldBe true
+
+    publisher.publish(event1).await
+    val received = probe.expectMessageType[SystemEvent]
+
+    received(stringKey) shouldBe event1(stringKey)
+    received.get(intArrayKey) shouldBe event1.get(intArrayKey)
+    received shouldBe event1
+    lazyDecodingSubscriber.get(event1.eventKey).await shouldBe event1
+
+    subscription.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_rebuild_events_published_as_deltas(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val keys   = (1 to 10).map(i => IntKey.make(s"param$i"))
+    val event1 = makeEvent(1).madd(keys.map(_.set(0)).toSet)
+    // every event changes a single parameter, and the last one removes a parameter
+    val changedEvents = (1 to 10).map(i => event1.madd(keys(i % keys.size).set(i)))
+    val events        = changedEvents :+ changedEvents.last.remove(keys.head)
+    val probe         = TestProbe[Event]()
+
+    val subscription = deltaSubscriber.subscribe(Set(event1.eventKey)).toMat(Sink.foreach(probe.ref ! _))(Keep.left).run()
+    subscription.ready().await
+    probe.expectMessageType[SystemEvent] // latest event of the key published by an earlier test, if any
+
+    events.foreach(deltaPublisher.publish(_).await)
+    events.foreach(probe.expectMessage(_))
+    eventually(subscriber.get(event1.eventKey).await shouldBe events.last)
+
+    subscription.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_rebuild_deltas_from_the_next_keyframe_on_subscribers_not_expecting_deltas(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val keys      = (1 to 10).map(i => IntKey.make(s"param$i"))
+    val keyframe  = makeEventWithPrefix(1, Prefix("csw.event.deltas")).madd(keys.map(_.set(0)).toSet)
+    val events    = (0 until 8).map(i => keyframe.madd(keys(i).set(i + 1)))
+    val probe     = TestProbe[Event]()
+    val eventKeys = Set(keyframe.eventKey)
+
+    val subscription = subscriber.subscribe(eventKeys).toMat(Sink.foreach(probe.ref ! _))(Keep.left).run()
+    subscription.ready().await
+    probe.expectMessageType[SystemEvent] // latest event of the key published by an earlier run, if any
+
+    // with a keyframe every 4 publishes, the deltas before the second keyframe are not rebuilt by a subscriber which only
+    // keeps keyframes of the keys it received deltas of
+    events.foreach(deltaPublisher.publish(_).await)
+    (events.head +: events.drop(4)).foreach(probe.expectMessage(_))
+    probe.expectNoMessage(200.millis)
+
+    subscription.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_resume_from_last_seen_event_and_page_history_of_event_streams(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val streamsPublisher  = streamsEventService.makeNewPublisher()
+    val streamsSubscriber = streamsEventService.makeNewSubscriber().asInstanceOf[EventStreamSubscriber]
+    val events            = (1 to 10).map(i => makeEventWithPrefix(i, Prefix("csw.event.streams")))
+    val eventKey          = events.head.eventKey
+
+    events.take(5).foreach(streamsPublisher.publish(_).await)
+    val firstPage = streamsSubscriber.history(eventKey, count = 3).await
+    firstPage.map(_.event) shouldBe events.take(3)
+    streamsSubscriber.history(eventKey, after = Some(firstPage.last.id), count = 3).await.map(_.event) shouldBe events.slice(3, 5)
+    streamsSubscriber.get(eventKey).await shouldBe events(4)
+
+    // events published while no subscription is running are received on resuming from the last seen one
+    events.drop(5).foreach(streamsPublisher.publish(_).await)
+    val probe = TestProbe[Event]()
+    val subscription = streamsSubscriber
+      .subscribeFrom(Map(eventKey -> firstPage.last.id))
+      .toMat(Sink.foreach(streamed => probe.ref ! streamed.event))(Keep.left)
+      .run()
+    subscription.ready().await
+    events.drop(3).foreach(probe.expectMessage(_))
+
+    subscription.unsubscribe().await
+    streamsPublisher.shutdown().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_read_event_streams_over_a_connection_per_materialization_of_a_subscription(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val streamsPublisher  = streamsEventService.makeNewPublisher()
+    val streamsSubscriber = streamsEventService.makeNewSubscriber()
+    val events            = (1 to 3).map(i => makeEventWithPrefix(i, Prefix("csw.event.materialized")))
+    streamsPublisher.publish(events.head).await
+
+    val subscriptionSource        = streamsSubscriber.subscribe(Set(events.head.eventKey))
+    val (firstProbe, secondProbe) = (TestProbe[Event](), TestProbe[Event]())
+    val first                     = subscriptionSource.toMat(Sink.foreach(firstProbe.ref ! _))(Keep.left).run()
+    val second                    = subscriptionSource.toMat(Sink.foreach(secondProbe.ref ! _))(Keep.left).run()
+    first.ready().await
+    second.ready().await
+    firstProbe.expectMessage(events.head)
+    secondProbe.expectMessage(events.head)
+
+    // ending one materialization quits its own connection only
+    first.unsubscribe().await
+    events.tail.foreach(streamsPublisher.publish(_).await)
+    events.tail.foreach(secondProbe.expectMessage(_))
+    firstProbe.expectNoMessage(200.millis)
+
+    second.unsubscribe().await
+    streamsPublisher.shutdown().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_hold_a_pooled_read_connection_for_the_lifetime_of_a_streams_subscription(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val streamsPublisher  = pooledStreamsEventService.makeNewPublisher()
+    val streamsSubscriber = pooledStreamsEventService.makeNewSubscriber()
+    val events            = (1 to 4).map(i => makeEventWithPrefix(i, Prefix("csw.event.pooled")))
+    streamsPublisher.publish(events.head).await
+
+    val (firstProbe, secondProbe) = (TestProbe[Event](), TestProbe[Event]())
+    val first = streamsSubscriber.subscribe(Set(events.head.eventKey)).toMat(Sink.foreach(firstProbe.ref ! _))(Keep.left).run()
+    first.ready().await
+    firstProbe.expectMessage(events.head)
+
+    // the only connection of the pool is held by the first subscription, hence the second one waits for it
+    val second = streamsSubscriber.subscribe(Set(events.head.eventKey)).toMat(Sink.foreach(secondProbe.ref ! _))(Keep.left).run()
+    secondProbe.expectMessage(events.head)
+    streamsPublisher.publish(events(1)).await
+    firstProbe.expectMessage(events(1))
+    secondProbe.expectNoMessage(2.seconds)
+
+    // once the first subscription gives the connection back, the second one follows from where it left off
+    first.unsubscribe().await
+    secondProbe.expectMessage(events(1))
+    events.drop(2).foreach(streamsPublisher.publish(_).await)
+    events.drop(2).foreach(secondProbe.expectMessage(_))
+
+    second.unsubscribe().await
+    streamsPublisher.shutdown().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_deliver_events_in_order_while_decoding_in_parallel(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val parallelSubscriber = eventServiceWith("csw-event.redis.subscriber.decode-parallelism = 4").makeNewSubscriber()
+    val keys               = (1 to 20).map(i => IntArrayKey.make(s"param$i"))
+    val events = (1 to 50).map(i =>
+      makeEventWithPrefix(i, Prefix("csw.parallel.decode")).madd(keys.map(_.set(ArrayData.fromArray(Array.fill(i)(i)))).toSet)
+    )
+    val probe = TestProbe[Event]()
+
+    val subscription =
+      parallelSubscriber.subscribe(Set(events.head.eventKey)).toMat(Sink.foreach(probe.ref ! _))(Keep.left).run()
+    subscription.ready().await
+    probe.expectMessageType[Event] // latest event of the key, or an invalid event if nothing was published yet
+
+    events.foreach(publisher.publish(_).await)
+    events.foreach(probe.expectMessage(_))
+
+    subscription.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_answer_get_from_near_cache_kept_up_to_date_by_published_events(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val eventMetrics      = new EventMetrics
+    val cachingSubscriber = eventServiceWith(NearCacheConfig, eventMetrics).makeNewSubscriber()
+    val event1            = makeEventWithPrefix(1, Prefix("csw.near.cache"))
+    val event2            = makeEventWithPrefix(2, Prefix("csw.near.cache"))
+
+    publisher.publish(event1).await
+    eventually(cachingSubscriber.get(event1.eventKey).await shouldBe event1)
+
+    publisher.publish(event2).await
+    eventually(cachingSubscriber.get(event1.eventKey).await shouldBe event2)
+
+    val metrics = eventMetrics.snapshot().nearCaches
+    metrics.size shouldBe 1
+    metrics.hits should be > 0L
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_answer_get_of_many_keys_from_near_cache_and_redis(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val eventMetrics      = new EventMetrics
+    val cachingSubscriber = eventServiceWith(NearCacheConfig, eventMetrics).makeNewSubscriber()
+    val events            = (1 to 3).map(i => makeEventWithPrefix(i, Prefix(s"csw.near.cache$i"))).toSet
+    val unpublishedKey    = EventKey(Prefix("csw.near.cache"), EventName("unpublished"))
+
+    events.foreach(publisher.publish(_).await)
+    eventually(cachingSubscriber.get(events.head.eventKey).await shouldBe events.head)
+
+    // the first key is cached, the other ones are fetched together, and the unpublished one reads as an invalid event
+    val read = cachingSubscriber.get(events.map(_.eventKey) + unpublishedKey).await
+    read shouldBe events + Event.invalidEvent(unpublishedKey)
+
+    eventually(cachingSubscriber.get(events.map(_.eventKey)).await shouldBe events)
+    val metrics = eventMetrics.snapshot().nearCaches
+    metrics.size shouldBe 4
+    metrics.hits should be >= 4L
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_record_publish_round_trips_and_ages_of_received_events(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val events = (1 to 10).map(i => makeEventWithPrefix(i, Prefix("aps.metrics")))
+    val probe  = TestProbe[Event]()
+
+    val subscription = subscriber.subscribe(Set(events.head.eventKey)).toMat(Sink.foreach(probe.ref ! _))(Keep.left).run()
+    subscription.ready().await
+    probe.expectMessageType[Event]
+
+    events.foreach(publisher.publish(_).await)
+    events.foreach(probe.expectMessage(_))
+
+    val metrics = redisProps.metrics.subsystems(Subsystem.APS)
+    metrics.publishRoundTrip.count shouldBe 10
+    metrics.eventAge.count shouldBe 10
+    metrics.decodeTime.count shouldBe 10
+    metrics.publishRoundTrip.p50 should be > 0.nanos
+    metrics.eventAge.max should be >= metrics.eventAge.p50
+
+    subscription.unsubscribe().await
+  }
+
+  @Test(dataProvider = "redis-provider")
+  def should_run_async_callbacks_of_different_event_keys_concurrently_in_order_per_key(redisProps: RedisTestProps): Unit = {
+    import redisProps._
+
+    val prefixes  = List(Prefix("wfos.callbacks.red"), Prefix("wfos.callbacks.blue"))
+    val events    = for (i <- 1 to 10; prefix <- prefixes) yield makeEventWithPrefix(i, prefix)
+    val eventKeys = events.map(_.eventKey).toSet
+    val probe     = TestProbe[Event]()
+
+    // callbacks take a while, in no particular order
+    val callback: Event => Future[Unit] = event =>
+      Future {
+        Thread.sleep(Random.nextInt(20).toLong)
+        probe.ref ! event
+      }(ec)
+
+    val subscription = subscriber.subscribeAsync(eventKeys, callback, 4, CallbackOrderings.InOrderPerKey)
+    subscription.ready().await
+    probe.receiveMessages(eventKeys.size).foreach(_.isInvalid shouldBe true)
+
+    events.foreach(publisher.publish(_).await)
+
+    val received = probe.receiveMessages(events.size)
+    eventKeys.foreach(eventKey => received.filter(_.eventKey == eventKey) shouldBe events.filter(_.eventKey == eventKey))
+    eventually(redisProps.metrics.subsystems(Subsystem.WFOS).callbackDuration.count shouldBe events.size + eventKeys.size)
+
+    subscription.unsubscribe().await
+  }
+
   // DEOPSCSW-340: Provide most recently published event for subscribed prefix and name
   @Test(dataProvider = "event-service-provider")
   def should_be_able_to_retrieve_recently_published_event_on_subscription__DEOPSCSW_331_DEOPSCSW_334_DEOPSCSW_335_DEOPSCSW_337_DEOPSCSW_349_DEOPSCSW_395_DEOPSCSW_340(
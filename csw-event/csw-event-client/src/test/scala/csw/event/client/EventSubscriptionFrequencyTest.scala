@@ -15,7 +15,9 @@ import csw.event.client.helpers.Utils.makeEventForKeyName
 //import csw.event.client.internal.kafka.KafkaTestProps
 import csw.event.client.internal.redis.RedisTestProps
 import csw.event.client.internal.wiring.BaseProperties
-import csw.params.events.{Event, EventKey, EventName}
+import csw.params.core.generics.KeyType.{DoubleKey, IntKey, LongKey}
+import csw.params.events.{Event, EventKey, EventName, SystemEvent}
+import csw.prefix.models.Prefix
 import org.scalatest.concurrent.Eventually
 import org.scalatestplus.testng.TestNGSuite
 import org.testng.annotations.*
@@ -201,4 +203,30 @@ class EventSubscriptionFrequencyTest extends TestNGSuite with Matchers with Even
     // assert if received elements do not have duplicates
     receivedEvents.toSet.size shouldBe 5
   }
+
+  @Test(dataProvider = "event-service-provider")
+  def should_be_able_to_subscribe_with_duration_with_aggregation_mode(baseProperties: BaseProperties): Unit = {
+    import baseProperties._
+    val inbox = TestInbox[Event]()
+
+    val valueKey           = IntKey.make("value")
+    val eventName          = EventName(s"system_${Random.nextInt()}")
+    val events             = (1 to 10).map(i => SystemEvent(Prefix("csw.aggregation"), eventName, Set(valueKey.set(i))))
+    val eventKey: EventKey = events.head.eventKey
+
+    // published before subscribing, so that the subscription starts with it instead of an invalid event
+    publisher.publish(events.head).await
+    val subscription = subscriber.subscribeActorRef(Set(eventKey), inbox.ref, 300.millis, SubscriptionModes.AggregationMode)
+    subscription.ready().await
+    events.tail.foreach(publisher.publish(_).await)
+    Thread.sleep(1000)
+    subscription.unsubscribe().await
+
+    // events can be split across windows, hence the summaries of all of them together cover all published values
+    val summaries = inbox.receiveAll()
+    summaries.map(_(LongKey.make("value_count")).head).sum shouldBe 10
+    summaries.map(_(DoubleKey.make("value_min")).head).min shouldBe 1.0
+    summaries.map(_(DoubleKey.make("value_max")).head).max shouldBe 10.0
+    summaries.last(valueKey).head shouldBe 10
+  }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.commons
+
+import java.nio.charset.StandardCharsets.UTF_8
+
+import csw.params.core.generics.KeyType.{IntKey, StringKey}
+import csw.params.events.{Event, EventName, SystemEvent}
+import csw.prefix.models.Prefix
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+
+class EventConverterTest extends AnyFunSuite with Matchers {
+
+  private val intKey    = IntKey.make("int")
+  private val stringKey = StringKey.make("string")
+  private val event     = SystemEvent(Prefix("csw.converter"), EventName("event")).madd(intKey.set(1), stringKey.set("a", "b"))
+
+  // the string parameter claims to be of doubles, while its values are still strings
+  private def malformed: Array[Byte] = {
+    val bytes = EventConverter.toBytes[Array[Byte]](event)
+    val index = bytes.indexOfSlice("StringKey".getBytes(UTF_8))
+    System.arraycopy("DoubleKey".getBytes(UTF_8), 0, bytes, index, "DoubleKey".length)
+    bytes
+  }
+
+  test("should decode the parameters of a lazily decoded event when they are accessed") {
+    val decoded = EventConverter.toLazyEvent(EventConverter.toBytes[Array[Byte]](event))
+
+    decoded(stringKey) shouldBe event(stringKey)
+    decoded.get(intKey) shouldBe event.get(intKey)
+    decoded shouldBe event
+  }
+
+  test("should replace an event whose parameters can not be decoded by a bad event when decoded eagerly") {
+    EventConverter.toEvent(malformed) shouldBe Event.badEvent()
+  }
+
+  test("should fail on access of a parameter which can not be decoded when decoded lazily") {
+    val decoded = EventConverter.toLazyEvent(malformed)
+
+    decoded.eventKey shouldBe event.eventKey
+    decoded.get(intKey) shouldBe event.get(intKey)
+    val failure = intercept[IllegalArgumentException](decoded.paramSet.toList)
+    failure.getMessage should include("[string]")
+
+    // decoding all the parameters beforehand, as with decode-parallelism, still gives a bad event
+    EventConverter.decodeParams(EventConverter.toLazyEvent(malformed)) shouldBe Event.badEvent()
+  }
+}
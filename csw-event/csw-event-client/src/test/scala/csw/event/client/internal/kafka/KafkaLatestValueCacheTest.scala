@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.kafka
+
+import org.apache.pekko.actor.typed.scaladsl.adapter.TypedActorSystemOps
+import org.apache.pekko.actor.typed.{ActorSystem, SpawnProtocol}
+import org.apache.pekko.kafka.ConsumerSettings
+import csw.event.client.helpers.TestFutureExt.given
+import scala.language.implicitConversions
+
+import csw.event.client.helpers.Utils.makeDistinctEvent
+import csw.event.client.internal.commons.EventConverter
+import csw.params.core.models.Id
+import csw.params.events.{Event, EventKey}
+import org.apache.kafka.clients.consumer.{ConsumerRecord, MockConsumer, OffsetResetStrategy}
+import org.apache.kafka.common.TopicPartition
+import org.apache.kafka.common.serialization.{ByteArrayDeserializer, StringDeserializer}
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.Eventually
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+
+import scala.concurrent.Future
+import scala.concurrent.duration.DurationInt
+import scala.jdk.CollectionConverters.*
+
+class KafkaLatestValueCacheTest extends AnyFunSuite with Matchers with Eventually with BeforeAndAfterAll {
+
+  private implicit val actorSystem: ActorSystem[SpawnProtocol.Command] = ActorSystem(SpawnProtocol(), "latest-value-cache")
+
+  implicit val patience: PatienceConfig = PatienceConfig(5.seconds, 10.millis)
+
+  private val consumerSettings =
+    Future.successful(ConsumerSettings(actorSystem.toClassic, new StringDeserializer, new ByteArrayDeserializer))
+
+  private val loadTimeout = 500.millis
+
+  override def afterAll(): Unit = {
+    actorSystem.terminate()
+    actorSystem.whenTerminated.await
+  }
+
+  // the cache reads from a mock consumer, to whose partitions records are added from its polling thread
+  private def withCache(test: (KafkaLatestValueCache, MockConsumer[String, Array[Byte]]) => Unit): Unit = {
+    val consumer = new MockConsumer[String, Array[Byte]](OffsetResetStrategy.EARLIEST)
+    val cache    = new KafkaLatestValueCache(10.millis, loadTimeout, _ => consumer)
+    try test(cache, consumer)
+    finally cache.close()
+  }
+
+  private def partition(eventKey: EventKey) = new TopicPartition(eventKey.key, 0)
+
+  private def published(consumer: MockConsumer[String, Array[Byte]], offsets: (EventKey, Long)*): Unit = {
+    consumer.updateBeginningOffsets(offsets.map { case (eventKey, _) => partition(eventKey) -> Long.box(0L) }.toMap.asJava)
+    consumer.updateEndOffsets(offsets.map { case (eventKey, offset) => partition(eventKey) -> Long.box(offset) }.toMap.asJava)
+  }
+
+  private def receive(consumer: MockConsumer[String, Array[Byte]], event: Event, offset: Long): Unit =
+    consumer.schedulePollTask { () =>
+      val key = event.eventKey.key
+      consumer.addRecord(new ConsumerRecord(key, 0, offset, key, EventConverter.toBytes[Array[Byte]](event)))
+    }
+
+  test("get should answer with the last event published for a key and keep it updated") {
+    withCache { (cache, consumer) =>
+      val event1   = makeDistinctEvent(1)
+      val eventKey = event1.eventKey
+      published(consumer, eventKey -> 1L)
+
+      val loaded = cache.get(Set(eventKey))(consumerSettings)
+      receive(consumer, event1, 0)
+      loaded.await shouldBe Set(event1)
+
+      val event2 = makeDistinctEvent(1).copy(eventId = Id("2"))
+      receive(consumer, event2, 1)
+      eventually(cache.get(Set(eventKey))(consumerSettings).await shouldBe Set(event2))
+    }
+  }
+
+  test("get should answer with an invalid event for a key nothing was published for") {
+    withCache { (cache, consumer) =>
+      val eventKey = makeDistinctEvent(3).eventKey
+      published(consumer, eventKey -> 0L)
+
+      cache.get(Set(eventKey))(consumerSettings).await shouldBe Set(Event.invalidEvent(eventKey))
+    }
+  }
+
+  test("get should not wait longer than the load timeout for a last event which is never received") {
+    withCache { (cache, consumer) =>
+      val event    = makeDistinctEvent(4)
+      val eventKey = event.eventKey
+      // e.g. the last event was compacted away
+      published(consumer, eventKey -> 3L)
+
+      val startedAt = System.nanoTime()
+      cache.get(Set(eventKey))(consumerSettings).await shouldBe Set(Event.invalidEvent(eventKey))
+      (System.nanoTime() - startedAt).nanos should be >= loadTimeout
+
+      receive(consumer, event, 3)
+      eventually(cache.get(Set(eventKey))(consumerSettings).await shouldBe Set(event))
+    }
+  }
+
+  test("get should fail for keys whose partitions can not be read, and keep serving other keys") {
+    withCache { (cache, consumer) =>
+      val event         = makeDistinctEvent(5)
+      val missingKey    = makeDistinctEvent(6).eventKey
+      val publishedLate = makeDistinctEvent(7)
+      published(consumer, event.eventKey -> 1L)
+
+      val loaded = cache.get(Set(event.eventKey))(consumerSettings)
+      receive(consumer, event, 0)
+      loaded.await shouldBe Set(event)
+
+      // the mock consumer has no end offset for the partition of a key, as for a topic which does not exist
+      an[IllegalStateException] should be thrownBy cache.get(Set(missingKey))(consumerSettings).await
+      cache.get(Set(event.eventKey))(consumerSettings).await shouldBe Set(event)
+
+      published(consumer, publishedLate.eventKey -> 1L)
+      val loadedLate = cache.get(Set(publishedLate.eventKey))(consumerSettings)
+      receive(consumer, publishedLate, 0)
+      loadedLate.await shouldBe Set(publishedLate)
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.internal.kafka
+
+import org.apache.pekko.actor.typed.scaladsl.adapter.TypedActorSystemOps
+import org.apache.pekko.actor.typed.{ActorSystem, SpawnProtocol}
+import org.apache.pekko.kafka.ProducerSettings
+import com.typesafe.config.ConfigFactory
+import csw.event.api.exceptions.PublishFailure
+import csw.event.client.helpers.TestFutureExt.given
+import scala.language.implicitConversions
+
+import csw.event.client.helpers.Utils.makeDistinctEvent
+import csw.event.client.internal.commons.{EventConverter, EventMetrics, Settings}
+import org.apache.kafka.clients.producer.{MockProducer, ProducerConfig}
+import org.apache.kafka.common.serialization.{ByteArraySerializer, StringSerializer}
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.Eventually
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+
+import scala.concurrent.Future
+import scala.concurrent.duration.DurationInt
+import scala.jdk.CollectionConverters.*
+
+class KafkaPublisherTest extends AnyFunSuite with Matchers with Eventually with BeforeAndAfterAll {
+
+  private implicit val actorSystem: ActorSystem[SpawnProtocol.Command] = ActorSystem(SpawnProtocol(), "kafka-publisher")
+
+  implicit val patience: PatienceConfig = PatienceConfig(5.seconds, 10.millis)
+
+  private def settings(highThroughput: String) = new Settings(
+    ConfigFactory
+      .parseString(s"""
+        |csw-event.kafka.publisher.high-throughput {
+        |  $highThroughput
+        |}
+        |""".stripMargin)
+      .withFallback(ConfigFactory.load())
+  )
+
+  private val defaultSettings = ProducerSettings(actorSystem.toClassic, new StringSerializer, new ByteArraySerializer)
+
+  override def afterAll(): Unit = {
+    actorSystem.terminate()
+    actorSystem.whenTerminated.await
+  }
+
+  test("should tune the producer as per the high throughput profile only when it is enabled") {
+    val tuned = KafkaEventService.withProfile(
+      defaultSettings,
+      settings("enabled = true, linger = 20ms, batch-size = 1024, compression = zstd, max-in-flight = 8")
+    )
+
+    tuned.properties(ProducerConfig.LINGER_MS_CONFIG) shouldBe "20"
+    tuned.properties(ProducerConfig.BATCH_SIZE_CONFIG) shouldBe "1024"
+    tuned.properties(ProducerConfig.COMPRESSION_TYPE_CONFIG) shouldBe "zstd"
+    tuned.properties(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG) shouldBe "true"
+    tuned.properties(ProducerConfig.ACKS_CONFIG) shouldBe "all"
+    tuned.properties(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_CONFIG) shouldBe "5"
+
+    KafkaEventService.withProfile(defaultSettings, settings("enabled = false")).properties shouldBe defaultSettings.properties
+  }
+
+  // the mock producer completes sends only when told so, in the order in which they were made
+  test("should send events in order without awaiting each one, and complete each once it is acknowledged") {
+    val producer       = new MockProducer[String, Array[Byte]](false, new StringSerializer, new ByteArraySerializer)
+    val highThroughput = settings("enabled = true, max-in-flight = 8")
+    val publisher = new KafkaPublisher(
+      Future.successful(defaultSettings.withProducer(producer)),
+      highThroughput,
+      new EventMetrics,
+      highThroughput.publishOverflowPolicy
+    )
+    val events    = (1 to 5).map(makeDistinctEvent)
+    val published = events.map(publisher.publish)
+
+    eventually(producer.history().size shouldBe events.size)
+    val records = producer.history().asScala.toList
+    records.map(_.topic) shouldBe events.map(_.eventKey.key)
+    records.map(_.key) shouldBe events.map(_.eventKey.key)
+    records.map(record => EventConverter.toEvent(record.value)) shouldBe events
+    published.exists(_.isCompleted) shouldBe false
+
+    producer.completeNext() shouldBe true
+    published.head.await
+    published.tail.exists(_.isCompleted) shouldBe false
+
+    val failure = new RuntimeException("not acknowledged")
+    producer.errorNext(failure) shouldBe true
+    val publishFailure = intercept[PublishFailure](published(1).await)
+    publishFailure.event shouldBe events(1)
+    publishFailure.getCause shouldBe failure
+
+    while (producer.completeNext()) {}
+    published.drop(2).foreach(_.await)
+
+    publisher.shutdown().await
+  }
+}
@@ -5,6 +5,7 @@
 
 package csw.event.client.internal.redis
 
+import org.apache.pekko.Done
 import org.apache.pekko.actor.testkit.typed.scaladsl.TestProbe
 import org.apache.pekko.stream.scaladsl.{Keep, Sink, Source}
 import csw.event.api.exceptions.{EventServerNotAvailable, PublishFailure}
@@ -16,7 +17,15 @@ import csw.event.client.helpers.Utils.makeDistinctEvent
 import csw.params.events.{Event, EventKey}
 import csw.time.core.models.UTCTime
 import io.lettuce.core.ClientOptions.DisconnectedBehavior
-import io.lettuce.core.{ClientOptions, RedisException}
+import io.lettuce.core.{
+  ClientOptions,
+  RedisCommandExecutionException,
+  RedisCommandTimeoutException,
+  RedisConnectionException,
+  RedisException,
+  RedisLoadingException,
+  RedisReadOnlyException
+}
 import org.scalatest.BeforeAndAfterAll
 
 import scala.concurrent.Future
@@ -62,6 +71,39 @@ class RedisFailureTest extends AnyFunSuite with Matchers with MockitoSugar with
     failure.getCause shouldBe a[RedisException]
   }
 
+  test("should publish an event published while redis is down once it is back") {
+    import redisTestProps._
+    val publisher = eventService.makeNewPublisher()
+    publisher.publish(Utils.makeEvent(1)).await
+
+    redisServer.stop()
+
+    val event     = Utils.makeEvent(2)
+    val published = publisher.publish(event)
+
+    Thread.sleep(500)
+    redisServer.start()
+
+    published.await shouldBe Done
+    subscriber.get(event.eventKey).await shouldBe event
+    publisher.shutdown().await
+  }
+
+  test("should retry only connection errors and replies of a master which is unavailable") {
+    import SentinelFailover.isMasterUnavailable
+
+    isMasterUnavailable(new RedisException("Connection closed")) shouldBe true
+    isMasterUnavailable(new RedisConnectionException("Unable to connect")) shouldBe true
+    isMasterUnavailable(new RedisReadOnlyException("READONLY You can't write against a read only replica.")) shouldBe true
+    isMasterUnavailable(new RedisLoadingException("LOADING Redis is loading the dataset in memory")) shouldBe true
+    isMasterUnavailable(new RedisCommandExecutionException("MASTERDOWN Link with MASTER is down")) shouldBe true
+
+    isMasterUnavailable(new RedisCommandExecutionException("WRONGTYPE Operation against a key")) shouldBe false
+    isMasterUnavailable(new RedisCommandExecutionException("OOM command not allowed")) shouldBe false
+    isMasterUnavailable(new RedisCommandTimeoutException("Command timed out")) shouldBe false
+    isMasterUnavailable(new IllegalArgumentException("READONLY")) shouldBe false
+  }
+
   // DEOPSCSW-334: Publish an event
   test("should invoke onError callback on publish failure [stream API] | DEOPSCSW-398, DEOPSCSW-399, DEOPSCSW-334") {
     import redisTestProps._
@@ -5,6 +5,8 @@
 
 package csw.event.client.internal.redis
 
+import java.util.concurrent.ConcurrentLinkedQueue
+
 import org.apache.pekko.Done
 import org.apache.pekko.actor.typed.{ActorSystem, SpawnProtocol}
 import com.typesafe.config.ConfigFactory
@@ -15,9 +17,12 @@ import csw.event.client.EventServiceFactory
 import csw.event.client.helpers.TestFutureExt.given
 import scala.language.implicitConversions
 
+import csw.event.client.internal.commons.{EventMetrics, Settings}
 import csw.event.client.internal.commons.javawrappers.JEventService
+import csw.event.client.internal.commons.serviceresolver.EventServiceLocationResolver
 import csw.event.client.internal.wiring.BaseProperties
 import csw.event.client.internal.wiring.BaseProperties.createInfra
+import csw.event.client.models.EventMetricsSnapshot
 import csw.event.client.models.EventStores.RedisStore
 import csw.location.api.scaladsl.LocationService
 import csw.location.server.http.HTTPLocationServiceOnPorts
@@ -64,6 +69,47 @@ class RedisTestProps(
 
   override lazy val jSubscriber: IEventSubscriber = jEventService.defaultSubscriber
 
+  def metrics: EventMetricsSnapshot = eventServiceFactory.metrics()
+
+  // failovers and subscription hubs of the event services made by eventServiceWith, which are stopped on shutdown
+  private val failovers        = new ConcurrentLinkedQueue[SentinelFailover]()
+  private val subscriptionHubs = new ConcurrentLinkedQueue[RedisSubscriptionHub]()
+
+  // event service created from the default configuration overridden by the given one
+  def eventServiceWith(config: String, metrics: EventMetrics = new EventMetrics): EventService = {
+    val settings        = new Settings(ConfigFactory.parseString(config).withFallback(ConfigFactory.load()))
+    val failover        = new SentinelFailover(redisClient, settings, metrics)
+    val subscriptionHub = new RedisSubscriptionHub(redisClient, settings, metrics, failover)
+    val resolver        = new EventServiceLocationResolver(locationService)
+    failovers.add(failover)
+    subscriptionHubs.add(subscriptionHub)
+    new RedisEventService(resolver, settings, redisClient, subscriptionHub, metrics, failover)
+  }
+
+  lazy val pipelinedPublisher: EventPublisher =
+    eventServiceWith("csw-event.redis.publisher.pipelining.enabled = true").makeNewPublisher()
+
+  lazy val deltaEventService: EventService = eventServiceWith("""
+      |csw-event.redis.publisher.delta-encoding.enabled = true
+      |csw-event.redis.publisher.delta-encoding.keyframe-interval = 4
+      |""".stripMargin)
+
+  lazy val deltaPublisher: EventPublisher   = deltaEventService.makeNewPublisher()
+  lazy val deltaSubscriber: EventSubscriber = deltaEventService.makeNewSubscriber()
+
+  lazy val streamsEventService: EventService = streamsEventServiceWith("")
+
+  // subscriptions of which lease their read connection from a pool of a single connection
+  lazy val pooledStreamsEventService: EventService = streamsEventServiceWith("csw-event.redis-streams.read-connections = 1")
+
+  private def streamsEventServiceWith(config: String): EventService = {
+    val settings = new Settings(ConfigFactory.parseString(config).withFallback(ConfigFactory.load()))
+    new RedisStreamsEventService(new EventServiceLocationResolver(locationService), settings, redisClient, new EventMetrics)
+  }
+
+  lazy val lazyDecodingSubscriber: EventSubscriber =
+    eventServiceWith("csw-event.redis.subscriber.lazy-param-decoding = true").makeNewSubscriber()
+
   override def publishGarbage(channel: String, message: String): Future[Done] =
     asyncConnection.flatMap(c => c.publish(channel, message).asScala.map(_ => Done))
 
@@ -75,6 +121,9 @@ class RedisTestProps(
 
   override def shutdown(): Unit = {
     publisher.shutdown().await
+    failovers.forEach(_.shutdown())
+    subscriptionHubs.forEach(_.shutdown().await)
+    eventServiceFactory.shutdown().await
     redisClient.shutdown()
     stopSentinel(redisSentinel, redisServer)
     actorSystem.terminate()
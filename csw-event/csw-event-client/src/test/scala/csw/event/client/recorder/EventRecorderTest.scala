@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.event.client.recorder
+
+import java.nio.file.Files
+
+import org.apache.pekko.stream.scaladsl.{Keep, Sink}
+import csw.event.client.helpers.TestFutureExt.given
+import scala.language.implicitConversions
+
+import csw.event.client.helpers.Utils.makeEventWithPrefix
+import csw.event.client.internal.redis.RedisTestProps
+import csw.params.events.{Event, EventKey}
+import csw.prefix.models.Prefix
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.concurrent.Eventually
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+
+import scala.concurrent.duration.DurationInt
+
+class EventRecorderTest extends AnyFunSuite with Matchers with Eventually with BeforeAndAfterAll {
+
+  implicit val patience: PatienceConfig = PatienceConfig(5.seconds, 10.millis)
+
+  private val redisTestProps: RedisTestProps = RedisTestProps.createRedisProperties()
+
+  override def beforeAll(): Unit = redisTestProps.start()
+
+  override def afterAll(): Unit = redisTestProps.shutdown()
+
+  // records the events, into small segments so that they are spread over several of them
+  private def recorded(events: Seq[Event]): EventReplayer = {
+    import redisTestProps._
+
+    val directory = Files.createTempDirectory("event-recorder")
+    val recorder  = new EventRecorder(directory, segmentSize = 512)
+    val recording = recorder.record(subscriber, Set(events.head.eventKey))
+    recording.ready().await
+
+    events.foreach(publisher.publish(_).await)
+
+    val replayer = new EventReplayer(directory)
+    eventually(replayer.events().runWith(Sink.seq).await.map(_.event) shouldBe events)
+    recording.unsubscribe().await
+    recorder.close()
+    replayer
+  }
+
+  private def recordedAt(recorded: RecordedEvent): Long = EventRecorder.epochNanos(recorded.recordedAt.value)
+
+  test("should read the events recorded between two times in the order in which they were recorded") {
+    import redisTestProps._
+
+    val prefix   = Prefix("csw.recorder.range")
+    val events   = (1 to 20).map(makeEventWithPrefix(_, prefix))
+    val replayer = recorded(events)
+
+    val all = replayer.events().runWith(Sink.seq).await
+    all.map(recordedAt) shouldBe sorted
+
+    val (from, to) = (all(4).recordedAt, all(9).recordedAt)
+    val expected   = all.filter(event => recordedAt(event) >= recordedAt(all(4)) && recordedAt(event) <= recordedAt(all(9)))
+    replayer.events(Some(from), Some(to)).runWith(Sink.seq).await shouldBe expected
+    expected.map(_.event) should contain allElementsOf events.slice(4, 10)
+  }
+
+  test("should complete a replay once all the events are republished") {
+    import redisTestProps._
+
+    val prefix             = Prefix("csw.recorder.replay")
+    val events             = (1 to 20).map(makeEventWithPrefix(_, prefix))
+    val eventKey: EventKey = events.head.eventKey
+    val replayer           = recorded(events)
+
+    val (subscription, received) = subscriber.subscribe(Set(eventKey)).take(events.size + 1).toMat(Sink.seq)(Keep.both).run()
+    subscription.ready().await
+
+    replayer.replay(publisher, speed = Double.PositiveInfinity).await
+    subscriber.get(eventKey).await shouldBe events.last
+
+    // the latest event first, then the replayed ones
+    received.await shouldBe events.last +: events
+  }
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package csw.params.core.generics
+
+/**
+ * A parameter set which can look up a parameter by its key without going through (and hence materializing) all of
+ * its parameters. [[csw.params.core.generics.ParameterSetType#get]] delegates to it when the paramSet is one.
+ */
+private[csw] trait IndexedParamSet {
+  def get[S](keyName: String, keyType: KeyType[S]): Option[Parameter[S]]
+}
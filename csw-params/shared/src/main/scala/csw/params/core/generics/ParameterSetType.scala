@@ -101,9 +101,12 @@ abstract class ParameterSetType[+T <: ParameterSetType[T]] { self: T =>
    * @tparam S the value type
    * @return the parameter for the key, if found
    */
-  def get[S](keyName: String, keyType: KeyType[S]): Option[Parameter[S]] = {
-    paramSet.find(p => p.keyName == keyName && p.keyType == keyType).asInstanceOf[Option[Parameter[S]]]
-  }
+  def get[S](keyName: String, keyType: KeyType[S]): Option[Parameter[S]] =
+    paramSet match {
+      case indexedParamSet: IndexedParamSet => indexedParamSet.get(keyName, keyType)
+      case params =>
+        params.find(p => p.keyName == keyName && p.keyType == keyType).asInstanceOf[Option[Parameter[S]]]
+    }
 
   /**
    * Returns an Optional with the parameter for the key if found, otherwise empty
@@ -9,6 +9,7 @@ import org.apache.pekko.Done;
 import org.apache.pekko.actor.Cancellable;
 import org.apache.pekko.stream.javadsl.Keep;
 import org.apache.pekko.stream.javadsl.Source;
+import csw.event.api.exceptions.PublishFailure;
 import csw.params.events.Event;
 import csw.params.events.EventName;
 import csw.params.events.SystemEvent;
@@ -17,8 +18,10 @@ import csw.event.client.internal.commons.javawrappers.JEventService;
 import csw.prefix.models.Prefix;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
 
 public class JEventPublishExamples {
 
@@ -35,6 +38,15 @@ public class JEventPublishExamples {
         //#single-event
     }
 
+    public CompletionStage<List<PublishFailure>> allEvents(ComponentInfo componentInfo) {
+        //#all-events
+        List<Event> events = Stream.of("filter_wheel", "grating", "slit")
+                .map(name -> (Event) new SystemEvent(componentInfo.prefix(), new EventName(name)))
+                .toList();
+        return eventService.defaultPublisher().publishAll(events);
+        //#all-events
+    }
+
     private Event makeEvent(int id, Prefix prefix, EventName name) {
         return new SystemEvent(prefix, name);
     }
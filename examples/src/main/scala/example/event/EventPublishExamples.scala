@@ -31,6 +31,15 @@ class EventPublishExamples(eventService: EventService, log: Logger) {
     }
   // #single-event
 
+  def allEvents(componentInfo: ComponentInfo): Future[List[PublishFailure]] =
+    // #all-events
+    {
+      val publisher = eventService.defaultPublisher
+      val events    = List("filter_wheel", "grating", "slit").map(name => SystemEvent(componentInfo.prefix, EventName(name)))
+      publisher.publishAll(events)
+    }
+  // #all-events
+
   def source(componentInfo: ComponentInfo): Future[Done] = {
     val n: Int                                             = 10
     def makeEvent(i: Int, prefix: Prefix, name: EventName) = SystemEvent(prefix, name)
@@ -253,7 +253,7 @@ object Dependencies {
       Libs.`pekko-connectors-kafka`,
       Libs.`lettuce`,
       Libs.`reactor-core`,
-      Libs.`HdrHistogram`               % Test,
+      Libs.`HdrHistogram`,
       Pekko.`pekko-multi-node-testkit`  % Test,
       Pekko.`pekko-actor-testkit-typed` % Test,
       Libs.`scalatest`.value            % Test,
@@ -461,7 +461,9 @@ object Dependencies {
       Pekko.`pekko-stream`,
       Pekko.`pekko-stream-typed`,
       Pekko.`pekko-actor`,
-      Libs.`scalatest`.value % Test
+      Libs.`scalatest`.value       % Test,
+      Libs.`embedded-redis`        % Test,
+      Pekko.`pekko-stream-testkit` % Test
     )
   )
 
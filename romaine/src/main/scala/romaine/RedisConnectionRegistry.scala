@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine
+
+import java.net.URI
+import java.util.concurrent.atomic.AtomicBoolean
+
+import org.apache.pekko.Done
+import io.lettuce.core.api.StatefulRedisConnection
+import io.lettuce.core.api.async.RedisAsyncCommands
+import io.lettuce.core.{RedisClient, RedisURI}
+import romaine.codec.RomaineCodec
+
+import scala.collection.mutable
+import scala.concurrent.ExecutionContext.parasitic
+import scala.concurrent.Future
+import scala.jdk.FutureConverters.*
+import scala.util.control.NonFatal
+
+/**
+ * Connections of a redis client which are shared by all the [[romaine.async.RedisAsyncApi]]s made for the same redis server
+ * with the same codecs of keys and values, so that the number of connections scales with the number of servers (and codecs)
+ * rather than the number of apis. Connections are made with the codecs they are shared under, hence commands are typed by
+ * the connection they are issued over. Batches, which turn off auto flush of their connection while they are written, are
+ * not sent over the shared connection, see [[romaine.async.RedisAsyncApi#batch]].
+ *
+ * A connection is closed once every api using it was closed. A connection which is lost, or which an api gave up on e.g. as
+ * the master was switched, is not handed to apis made afterwards, which get a new connection instead.
+ */
+private[romaine] class RedisConnectionRegistry {
+  import RedisConnectionRegistry._
+
+  private final class Shared[K, V](val key: ConnectionKey, val connection: Future[StatefulRedisConnection[K, V]]) {
+    var references = 0
+
+    def usable: Boolean = connection.value.forall(_.fold(_ => false, _.isOpen))
+  }
+
+  private val connections = mutable.Map.empty[ConnectionKey, Shared[?, ?]]
+
+  /**
+   * Commands over the shared connection of the server at `redisURIF` with the given codecs, which is made by `connect` if
+   * there is no usable one
+   *
+   * @return the commands, and a reference which has to be released once the commands are not used anymore
+   */
+  def commands[K: RomaineCodec, V: RomaineCodec](
+      redisURIF: Future[RedisURI],
+      connect: RedisURI => Future[StatefulRedisConnection[K, V]]
+  ): (Future[RedisAsyncCommands[K, V]], Reference) = {
+    val sharedF   = redisURIF.map(redisURI => acquire(redisURI, connect))(parasitic)
+    val commandsF = sharedF.flatMap(_.connection)(parasitic).map(_.async())(parasitic)
+
+    val released = new AtomicBoolean(false)
+    val reference = new Reference {
+      override def release(lost: Boolean): Future[Done] =
+        if (released.compareAndSet(false, true)) sharedF.flatMap(shared => releaseShared(shared, lost))(parasitic)
+        else Future.successful(Done)
+    }
+    (commandsF, reference)
+  }
+
+  private def acquire[K: RomaineCodec, V: RomaineCodec](
+      redisURI: RedisURI,
+      connect: RedisURI => Future[StatefulRedisConnection[K, V]]
+  ): Shared[K, V] =
+    synchronized {
+      val key = ConnectionKey(redisURI.toURI, implicitly[RomaineCodec[K]], implicitly[RomaineCodec[V]])
+      // a connection is only registered under the codecs it was made with, which are part of its key
+      val registered = connections.get(key).map(_.asInstanceOf[Shared[K, V]])
+      val shared     = registered.filter(_.usable).getOrElse(new Shared(key, connect(redisURI)))
+      connections.update(key, shared)
+      shared.references += 1
+      shared
+    }
+
+  // a lost connection is closed right away once it is not used anymore, others are quit once redis answered pending commands
+  private def releaseShared(shared: Shared[?, ?], lost: Boolean): Future[Done] = {
+    val unused = synchronized {
+      shared.references -= 1
+      if ((lost || shared.references == 0) && connections.get(shared.key).contains(shared)) connections.remove(shared.key)
+      shared.references == 0
+    }
+
+    if (!unused) Future.successful(Done)
+    else
+      shared.connection
+        .flatMap { connection =>
+          if (lost) connection.closeAsync().asScala.map(_ => Done)(parasitic)
+          else connection.async().quit().asScala.map(_ => Done)(parasitic)
+        }(parasitic)
+        .recover { case NonFatal(_) => Done }(parasitic)
+  }
+}
+
+object RedisConnectionRegistry {
+
+  // codecs are compared by identity, hence apis made with the same implicit codecs share their connection
+  private final case class ConnectionKey(uri: URI, keyCodec: RomaineCodec[?], valueCodec: RomaineCodec[?])
+
+  /**
+   * A use of a shared connection
+   */
+  trait Reference {
+
+    /**
+     * Gives back the connection, which is closed once no api uses it anymore
+     *
+     * @param lost true if the connection should not be handed to other apis anymore, e.g. as it was lost
+     */
+    def release(lost: Boolean): Future[Done]
+  }
+
+  // connections are shared by all the romaine factories made for the same redis client, which does not keep them alive
+  private val registries = new java.util.WeakHashMap[RedisClient, RedisConnectionRegistry]()
+
+  private[romaine] def of(redisClient: RedisClient): RedisConnectionRegistry =
+    registries.synchronized(registries.computeIfAbsent(redisClient, _ => new RedisConnectionRegistry))
+}
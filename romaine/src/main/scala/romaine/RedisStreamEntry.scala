@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine
+
+/**
+ * An entry of a redis stream
+ *
+ * @param key key of the stream
+ * @param id id of the entry, which orders entries of the stream, e.g. `1700000000000-0`
+ * @param body fields of the entry and their values
+ */
+case class RedisStreamEntry[K, V](key: K, id: String, body: Map[K, V])
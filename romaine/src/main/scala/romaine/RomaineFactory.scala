@@ -5,11 +5,14 @@
 
 package romaine
 
+import io.lettuce.core.api.async.RedisAsyncCommands
+import io.lettuce.core.support.{AsyncConnectionPoolSupport, BoundedPoolConfig}
 import io.lettuce.core.{RedisClient, RedisURI}
-import romaine.async.RedisAsyncApi
+import romaine.async.{RedisAsyncApi, RedisAsyncApiPool, RedisTransactionApi}
 import romaine.codec.{RomaineCodec, RomaineRedisCodec}
 import romaine.exceptions.RedisServerNotAvailable
-import romaine.reactive.RedisSubscriptionApi
+import romaine.keyspace.RedisKeyTrackingApi
+import romaine.reactive.{RedisMultiplexedSubscriptionApi, RedisSubscriptionApi}
 
 import scala.jdk.FutureConverters.*
 import scala.concurrent.{ExecutionContext, Future}
@@ -17,13 +20,61 @@ import scala.util.control.NonFatal
 import cps.compat.FutureAsync.*
 
 class RomaineFactory(redisClient: RedisClient)(implicit val ec: ExecutionContext) {
-  def redisAsyncApi[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): RedisAsyncApi[K, V] =
-    new RedisAsyncApi(
-      async {
-        val redisURI    = await(redisURIF)
-        val connectionF = init { () => redisClient.connectAsync(new RomaineRedisCodec[K, V], redisURI).asScala }
-        await(connectionF).async()
-      }
+  private val registry = RedisConnectionRegistry.of(redisClient)
+
+  /**
+   * Makes an api over the connection shared by all apis made for the same server and codecs with the same redis client, see
+   * [[romaine.RedisConnectionRegistry]]. Blocking commands hold up the shared connection, use [[dedicatedRedisAsyncApi]] for
+   * them. Batches of the api are sent over a connection of its own, which is made on the first batch.
+   */
+  def redisAsyncApi[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): RedisAsyncApi[K, V] = {
+    val (commands, reference) = registry.commands[K, V](
+      redisURIF,
+      redisURI => init { () => redisClient.connectAsync(new RomaineRedisCodec[K, V], redisURI).asScala }
+    )
+    new RedisAsyncApi(commands, Some(reference), Some(() => dedicatedCommands[K, V](redisURIF)))
+  }
+
+  /**
+   * Makes an api over a connection of its own, e.g. for blocking commands
+   */
+  def dedicatedRedisAsyncApi[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): RedisAsyncApi[K, V] =
+    new RedisAsyncApi(dedicatedCommands[K, V](redisURIF))
+
+  /**
+   * Makes a bounded pool of connections of their own, e.g. for blocking commands which would otherwise need a connection each,
+   * see [[romaine.async.RedisAsyncApiPool]]
+   */
+  def redisAsyncApiPool[K: RomaineCodec, V: RomaineCodec](
+      redisURIF: Future[RedisURI],
+      maxConnections: Int
+  ): RedisAsyncApiPool[K, V] = {
+    def connect() =
+      redisURIF.flatMap(redisURI => init { () => redisClient.connectAsync(new RomaineRedisCodec[K, V], redisURI).asScala })
+    // lost connections are not given back to the pool
+    val config = BoundedPoolConfig.builder().maxTotal(maxConnections).maxIdle(maxConnections).testOnRelease(true).build()
+    val pool   = AsyncConnectionPoolSupport.createBoundedObjectPool(() => connect().asJava, config)
+    new RedisAsyncApiPool(pool)
+  }
+
+  /**
+   * Makes a connection of its own for transactions, as the state of MULTI and WATCH belongs to the connection
+   */
+  def redisTransactionApi[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): RedisTransactionApi[K, V] =
+    new RedisTransactionApi(dedicatedCommands[K, V](redisURIF))
+
+  /**
+   * Makes an api whose watches track keys over connections of their own, see [[romaine.keyspace.RedisKeyTrackingApi]]
+   */
+  def redisKeyTrackingApi[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): RedisKeyTrackingApi[K, V] =
+    new RedisKeyTrackingApi(
+      redisClient,
+      () =>
+        async {
+          val redisURI    = await(redisURIF)
+          val connectionF = init { () => redisClient.connectAsync(new RomaineRedisCodec[K, V], redisURI).asScala }
+          await(connectionF)
+        }
     )
 
   def redisSubscriptionApi[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): RedisSubscriptionApi[K, V] =
@@ -35,6 +86,31 @@ class RomaineFactory(redisClient: RedisClient)(implicit val ec: ExecutionContext
       }
     )
 
+  def redisMultiplexedSubscriptionApi[K: RomaineCodec, V: RomaineCodec](
+      redisURIF: Future[RedisURI],
+      bufferSize: Int,
+      conflate: Boolean,
+      onDropped: RedisResult[K, V] => Unit = (_: RedisResult[K, V]) => ()
+  ): RedisMultiplexedSubscriptionApi[K, V] =
+    new RedisMultiplexedSubscriptionApi(
+      () =>
+        async {
+          val redisURI    = await(redisURIF)
+          val connectionF = init { () => redisClient.connectPubSubAsync(new RomaineRedisCodec[K, V], redisURI).asScala }
+          await(connectionF).reactive()
+        },
+      bufferSize,
+      conflate,
+      onDropped
+    )
+
+  private def dedicatedCommands[K: RomaineCodec, V: RomaineCodec](redisURIF: Future[RedisURI]): Future[RedisAsyncCommands[K, V]] =
+    async {
+      val redisURI    = await(redisURIF)
+      val connectionF = init { () => redisClient.connectAsync(new RomaineRedisCodec[K, V], redisURI).asScala }
+      await(connectionF).async()
+    }
+
   private def init[T](conn: () => Future[T]): Future[T] =
     Future.unit.flatMap(_ => conn()).recover { case NonFatal(ex) =>
       throw RedisServerNotAvailable(ex.getCause)
@@ -5,9 +5,12 @@
 
 package romaine.async
 
-import org.apache.pekko.Done
+import org.apache.pekko.stream.scaladsl.Source
+import org.apache.pekko.{Done, NotUsed}
 import io.lettuce.core.api.async.RedisAsyncCommands
-import romaine.RedisResult
+import io.lettuce.core.{KeyScanCursor, Limit, Range, ScanArgs, ScanCursor, StreamMessage, XAddArgs, XReadArgs}
+import romaine.codec.RomaineCodec
+import romaine.{RedisConnectionRegistry, RedisResult, RedisStreamEntry}
 import romaine.exceptions.RedisServerNotAvailable
 import romaine.extensions.FutureExtensions.given
 import scala.language.implicitConversions
@@ -16,10 +19,30 @@ import scala.jdk.CollectionConverters.*
 import scala.jdk.FutureConverters.*
 import scala.jdk.OptionConverters.*
 
+import scala.concurrent.duration.FiniteDuration
 import scala.concurrent.{ExecutionContext, Future}
 import scala.util.control.NonFatal
+import scala.util.{Failure, Success, Try}
 
-class RedisAsyncApi[K, V](redisAsyncCommands: Future[RedisAsyncCommands[K, V]])(implicit ec: ExecutionContext) {
+/**
+ * @param reference use of a connection shared with other apis, see [[romaine.RedisConnectionRegistry]], which is released
+ *                  instead of closing the connection. None if the connection is used by this api only.
+ * @param batchConnection makes the connection which [[batch]]es are sent over, on the first batch. Batches turn off auto
+ *                        flush of their connection while they are written, hence a shared connection must not be used for
+ *                        them. None if batches are sent over the connection of this api.
+ * @param keyCodec encodes key patterns of SCAN, which lettuce only takes as bytes
+ */
+class RedisAsyncApi[K, V](
+    redisAsyncCommands: Future[RedisAsyncCommands[K, V]],
+    reference: Option[RedisConnectionRegistry.Reference] = None,
+    batchConnection: Option[() => Future[RedisAsyncCommands[K, V]]] = None
+)(implicit
+    ec: ExecutionContext,
+    keyCodec: RomaineCodec[K]
+) {
+  import RedisAsyncApi._
+
+  @volatile private var batchCommandsF: Option[Future[RedisAsyncCommands[K, V]]] = None
 
   def set(key: K, value: V): Future[Done] =
     redisAsyncCommands.flatMap(_.set(key, value).asScala.failWith(s"Redis 'SET' operation failed for [key:$key value:$value]"))
@@ -38,21 +61,220 @@ class RedisAsyncApi[K, V](redisAsyncCommands: Future[RedisAsyncCommands[K, V]])(
     }
 
   def mget(keys: List[K]): Future[List[RedisResult[K, Option[V]]]] =
-    redisAsyncCommands.flatMap(
-      _.mget(keys*).asScala
-        .map(_.asScala.map(kv => RedisResult(kv.getKey, kv.optional().toScala)).toList)
-    )
+    redisAsyncCommands
+      .flatMap(
+        _.mget(keys*).asScala
+          .map(_.asScala.map(kv => RedisResult(kv.getKey, kv.optional().toScala)).toList)
+      )
+      .recover { case NonFatal(ex) =>
+        throw RedisServerNotAvailable(ex.getCause)
+      }
 
+  /**
+   * Runs KEYS, which blocks redis while it walks all keys. Prefer [[scan]] for patterns which may match many keys, or on a
+   * redis shared with other clients.
+   */
   def keys(key: K): Future[List[K]] = redisAsyncCommands.flatMap(_.keys(key).asScala.map(_.asScala.toList))
 
+  /**
+   * Keys matching the given pattern, fetched with SCAN a page at a time as downstream demands them. Each page walks about
+   * `count` keys of redis, hence redis serves other clients in between pages however many keys it holds.
+   *
+   * As per SCAN, a key which exists during the whole scan is emitted at least once, but it may be emitted more than once
+   * if redis resizes its key space in the meantime. Keys added or removed during the scan may or may not be emitted.
+   */
+  def scan(pattern: K, count: Long = DefaultScanCount): Source[K, NotUsed] =
+    Source
+      .unfoldAsync[Option[ScanCursor], List[K]](Some(ScanCursor.INITIAL)) {
+        case None         => Future.successful(None)
+        case Some(cursor) => scanPage(cursor, pattern, count).map(page => Some((nextCursor(page), page.getKeys.asScala.toList)))
+      }
+      .mapConcat(identity)
+
   def exists(keys: K*): Future[Boolean] = redisAsyncCommands.flatMap(_.exists(keys*).asScala.map(_ == keys.size))
 
   def del(keys: List[K]): Future[Long] = redisAsyncCommands.flatMap(_.del(keys*).asScala.map(_.toLong))
 
-  def pdel(pattern: K): Future[Long] =
-    keys(pattern).flatMap(matchedKeys => if (matchedKeys.nonEmpty) del(matchedKeys) else Future.successful(0))
+  def unlink(keys: List[K]): Future[Long] = redisAsyncCommands.flatMap(_.unlink(keys*).asScala.map(_.toLong))
+
+  /**
+   * Deletes the keys matching the given pattern. Keys are found with SCAN, see [[scan]], and each page of keys is removed
+   * with a single UNLINK, which reclaims the memory of their values in the background.
+   *
+   * @return number of deleted keys
+   */
+  def pdel(pattern: K, count: Long = DefaultScanCount): Future[Long] = {
+    def deleteFrom(cursor: ScanCursor, deleted: Long): Future[Long] =
+      scanPage(cursor, pattern, count).flatMap { page =>
+        val matchedKeys = page.getKeys.asScala.toList
+        val unlinked    = if (matchedKeys.nonEmpty) unlink(matchedKeys) else Future.successful(0L)
+        unlinked.flatMap { unlinkedCount =>
+          nextCursor(page).fold(Future.successful(deleted + unlinkedCount))(deleteFrom(_, deleted + unlinkedCount))
+        }
+      }
+
+    deleteFrom(ScanCursor.INITIAL, 0)
+  }
 
   def publish(key: K, value: V): Future[Long] = redisAsyncCommands.flatMap(_.publish(key, value).asScala.map(_.toLong))
 
-  def quit(): Future[String] = redisAsyncCommands.flatMap(_.quit().asScala)
+  /**
+   * Publishes a message for each entry and sets a value as the latest value of its key. Commands for all entries are written
+   * to the connection in order and flushed once, without waiting for replies in between, so that the whole batch costs a
+   * single round trip.
+   *
+   * @param entries key, message published on the channel of the key, and value set for the key, which usually is the
+   *                message itself
+   * @return a future which completes when replies for all the commands are received. It contains the outcome of PUBLISH for
+   *         each entry in the order of entries. Failures of SET are ignored, as SET only keeps the latest value of a key.
+   */
+  def publishAndSet(entries: List[(K, V, V)]): Future[List[Try[Long]]] =
+    batch { batch =>
+      val publishReplies = entries.map { case (key, message, value) =>
+        val reply = batch.publish(key, message)
+        batch.set(key, value)
+        reply
+      }
+      Future.traverse(publishReplies)(_.transform(Success(_)))
+    }
+
+  /**
+   * Sends the commands which `build` queues in a [[romaine.async.RedisBatch]] as a single pipeline: they are written to the
+   * connection in order and flushed once, without waiting for replies in between, so that all of them cost a single round
+   * trip. Other commands issued on the connection in the meantime may be interleaved with them, use
+   * [[romaine.async.RedisTransactionApi]] for commands which have to be applied atomically. An api over a shared connection
+   * sends its batches over a connection of its own, so that other apis never wait for a batch to be flushed.
+   *
+   * @param build queues the commands, and combines the futures of their replies into the result
+   * @return the result of `build`, which completes once the replies it depends on are received
+   */
+  def batch[T](build: RedisBatch[K, V] => Future[T]): Future[T] = {
+    val batch  = new RedisBatch[K, V]
+    val result =
+      try build(batch)
+      catch { case NonFatal(ex) => Future.failed(ex) }
+
+    batchCommands.onComplete {
+      case Success(commands) =>
+        pipelined(commands)(batch.send(commands))
+        batch.completed()
+      case Failure(ex) => batch.failed(ex)
+    }
+    result
+  }
+
+  /**
+   * Appends an entry to the stream of the given key, which keeps about the last `maxLength` entries. Trimming is approximate,
+   * i.e. redis may keep a few more entries, as it only removes whole nodes of the stream, which makes it cheap.
+   *
+   * @return id of the added entry
+   */
+  def xadd(key: K, body: Map[K, V], maxLength: Long): Future[String] =
+    redisAsyncCommands.flatMap(_.xadd(key, XAddArgs.Builder.maxlen(maxLength).approximateTrimming(), body.asJava).asScala)
+
+  /**
+   * At most `count` entries of the stream of the given key, oldest first, with ids between `from` and `to`, both included.
+   * `-` and `+` stand for the smallest and the greatest id.
+   */
+  def xrange(key: K, from: String, to: String, count: Long): Future[List[RedisStreamEntry[K, V]]] =
+    redisAsyncCommands.flatMap(_.xrange(key, range(from, to), Limit.from(count)).asScala.map(entries(_)))
+
+  /**
+   * Same as [[xrange]], with the newest entries first
+   */
+  def xrevrange(key: K, from: String, to: String, count: Long): Future[List[RedisStreamEntry[K, V]]] =
+    redisAsyncCommands.flatMap(_.xrevrange(key, range(from, to), Limit.from(count)).asScala.map(entries(_)))
+
+  /**
+   * Reads at most `count` entries of each stream following the given ids, blocking the connection for up to `block` until
+   * any entry is added if there is none. A connection used for blocking reads should hence not be shared.
+   *
+   * @param offsets key of each stream and id of the entry after which to read it, `$` reads only entries added after the call
+   * @return entries of all the streams, or an empty list if none was added within `block`
+   */
+  def xread(offsets: List[(K, String)], count: Long, block: FiniteDuration): Future[List[RedisStreamEntry[K, V]]] =
+    redisAsyncCommands.flatMap { commands =>
+      val streamOffsets = offsets.map { case (key, id) => XReadArgs.StreamOffset.from(key, id) }
+      commands.xread(XReadArgs.Builder.block(block.toMillis).count(count), streamOffsets*).asScala.map(entries(_))
+    }
+
+  /**
+   * Closes the connection once redis answered the commands sent before. A shared connection is only closed once all apis
+   * using it quit.
+   */
+  def quit(): Future[String] = {
+    closeBatchConnection(_.quit().asScala)
+    reference match {
+      case Some(reference) => reference.release(lost = false).map(_ => "OK")
+      case None            => redisAsyncCommands.flatMap(_.quit().asScala)
+    }
+  }
+
+  /**
+   * Closes the connection right away, commands which are not yet answered fail. A shared connection is not given to other
+   * apis anymore, and is closed once all apis using it closed or quit.
+   */
+  def close(): Future[Done] = {
+    closeBatchConnection(_.getStatefulConnection.closeAsync().asScala)
+    reference match {
+      case Some(reference) => reference.release(lost = true)
+      case None            => redisAsyncCommands.flatMap(_.getStatefulConnection.closeAsync().asScala.map(_ => Done))
+    }
+  }
+
+  /**
+   * The connection could not be established or is currently disconnected, hence the owner can replace it with a new one
+   * instead of waiting for it to be reconnected
+   */
+  def connectionLost: Boolean = redisAsyncCommands.value.exists(_.fold(_ => true, commands => !commands.isOpen))
+
+  private def batchCommands: Future[RedisAsyncCommands[K, V]] =
+    batchConnection match {
+      case None          => redisAsyncCommands
+      case Some(connect) =>
+        batchCommandsF.getOrElse {
+          synchronized {
+            if (batchCommandsF.isEmpty) batchCommandsF = Some(connect())
+            batchCommandsF.get
+          }
+        }
+    }
+
+  private def closeBatchConnection(close: RedisAsyncCommands[K, V] => Future[Any]): Unit =
+    batchCommandsF.foreach(_.flatMap(close).recover { case NonFatal(_) => Done })
+
+  private def scanPage(cursor: ScanCursor, pattern: K, count: Long): Future[KeyScanCursor[K]] = {
+    val patternBytes = keyCodec.toBytes(pattern)
+    val bytes        = new Array[Byte](patternBytes.remaining())
+    patternBytes.get(bytes)
+    redisAsyncCommands.flatMap(_.scan(cursor, ScanArgs.Builder.matches(bytes).limit(count)).asScala)
+  }
+
+  private def nextCursor(page: KeyScanCursor[K]): Option[ScanCursor] = if (page.isFinished) None else Some(page)
+
+  private def range(from: String, to: String): Range[String] = Range.create(from, to)
+
+  // a null reply, e.g. of a blocking read which timed out, reads as no entries
+  private def entries(messages: java.util.List[StreamMessage[K, V]]): List[RedisStreamEntry[K, V]] =
+    if (messages == null) Nil
+    else messages.asScala.map(m => RedisStreamEntry(m.getStream, m.getId, m.getBody.asScala.toMap)).toList
+}
+
+object RedisAsyncApi {
+
+  /**
+   * Number of keys redis walks for each page of SCAN, a hint which redis may exceed for small key spaces
+   */
+  val DefaultScanCount: Long = 1000
+
+  // Auto flush is enabled again before flushing, so that commands issued concurrently on the same connection are never
+  // left unflushed
+  private[async] def pipelined[K, V, T](commands: RedisAsyncCommands[K, V])(block: => T): T = {
+    commands.setAutoFlushCommands(false)
+    try block
+    finally {
+      commands.setAutoFlushCommands(true)
+      commands.flushCommands()
+    }
+  }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.async
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import org.apache.pekko.Done
+import io.lettuce.core.api.StatefulRedisConnection
+import io.lettuce.core.support.BoundedAsyncPool
+import romaine.codec.RomaineCodec
+
+import scala.concurrent.{ExecutionContext, Future}
+import scala.jdk.FutureConverters.*
+import scala.util.control.NonFatal
+
+/**
+ * A bounded pool of connections for blocking commands, e.g. blocking reads of streams, which hold up their connection until
+ * redis replies and hence can not use the connection shared by other apis. Commands wait for a connection to be given back
+ * once all connections of the pool are in use, and connections which were lost are not given out again.
+ *
+ * A reader which blocks over and over, like a subscription following a stream, should [[lease]] a connection for as long as
+ * it reads rather than acquire one per command with [[withApi]]: a reader waiting for a connection between two of its reads
+ * would otherwise queue behind the blocked reads of all others, and readers beyond the size of the pool would starve.
+ */
+class RedisAsyncApiPool[K, V](pool: BoundedAsyncPool[StatefulRedisConnection[K, V]])(implicit
+    ec: ExecutionContext,
+    keyCodec: RomaineCodec[K]
+) {
+
+  /**
+   * Runs `use` with a connection of the pool, which is given back once the future returned by `use` completes
+   */
+  def withApi[T](use: RedisAsyncApi[K, V] => Future[T]): Future[T] =
+    pool.acquire().asScala.flatMap { connection =>
+      val result =
+        try use(new RedisAsyncApi(Future.successful(connection.async())))
+        catch { case NonFatal(ex) => Future.failed(ex) }
+      result.transformWith(outcome => pool.release(connection).asScala.transform(_ => outcome))
+    }
+
+  /**
+   * Takes a connection of the pool until the lease is released, waiting for one to be given back if all are in use
+   */
+  def lease(): Future[RedisAsyncApiPool.Lease[K, V]] =
+    pool.acquire().asScala.map { connection =>
+      new RedisAsyncApiPool.Lease[K, V] {
+        private val released = new AtomicBoolean(false)
+
+        override val api: RedisAsyncApi[K, V] = new RedisAsyncApi(Future.successful(connection.async()))
+
+        override def release(): Future[Done] =
+          if (released.compareAndSet(false, true)) pool.release(connection).asScala.map(_ => Done)
+          else Future.successful(Done)
+      }
+    }
+
+  def close(): Future[Done] = pool.closeAsync().asScala.map(_ => Done)
+}
+
+object RedisAsyncApiPool {
+
+  /**
+   * A connection of a pool taken for the exclusive use of its holder. The connection belongs to the pool, hence it is given
+   * back with [[release]] rather than quit through the api.
+   */
+  trait Lease[K, V] {
+    def api: RedisAsyncApi[K, V]
+
+    /**
+     * Gives the connection back to the pool, more than once is the same as once
+     */
+    def release(): Future[Done]
+  }
+}
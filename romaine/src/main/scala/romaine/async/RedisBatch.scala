@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.async
+
+import org.apache.pekko.Done
+import io.lettuce.core.api.async.RedisAsyncCommands
+import romaine.RedisResult
+import romaine.extensions.FutureExtensions.given
+import scala.language.implicitConversions
+
+import scala.collection.mutable
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.jdk.CollectionConverters.*
+import scala.jdk.FutureConverters.*
+import scala.jdk.OptionConverters.*
+import scala.util.Success
+import scala.util.control.NonFatal
+
+/**
+ * Commands queued to be sent to redis together, see [[romaine.async.RedisAsyncApi#batch]] and
+ * [[romaine.async.RedisTransactionApi]]. Every queued command returns a future of its own reply, which completes once the
+ * batch was sent and redis replied. Commands can only be queued while the batch is being built, i.e. not from callbacks of
+ * these futures.
+ */
+class RedisBatch[K, V] private[async] ()(implicit ec: ExecutionContext) {
+
+  private final class Queued[T](send: RedisAsyncCommands[K, V] => Future[T]) {
+    val promise: Promise[T]      = Promise()
+    private var reply: Future[T] = Future.never
+
+    def sendTo(commands: RedisAsyncCommands[K, V]): Unit =
+      reply =
+        try send(commands)
+        catch { case NonFatal(ex) => Future.failed(ex) }
+
+    def complete(): Unit          = promise.completeWith(reply)
+    def fail(ex: Throwable): Unit = promise.tryFailure(ex)
+  }
+
+  private val queued = mutable.ListBuffer.empty[Queued[?]]
+  private var sent   = false
+
+  def set(key: K, value: V): Future[Done] =
+    queue(_.set(key, value).asScala.failWith(s"Redis 'SET' operation failed for [key:$key value:$value]"))
+
+  def setex(key: K, seconds: Long, value: V): Future[Done] =
+    queue(_.setex(key, seconds, value).asScala.failWith(s"Redis 'SETEX' operation failed for [key: $key, value: $value]"))
+
+  def mset(map: Map[K, V]): Future[Done] =
+    queue(_.mset(map.asJava).asScala.failWith(s"Redis 'MSET' operation failed for [map: $map]"))
+
+  def get(key: K): Future[Option[V]] = queue(_.get(key).asScala.map(Option(_)))
+
+  def mget(keys: List[K]): Future[List[RedisResult[K, Option[V]]]] =
+    queue(_.mget(keys*).asScala.map(_.asScala.map(kv => RedisResult(kv.getKey, kv.optional().toScala)).toList))
+
+  def del(keys: List[K]): Future[Long] = queue(_.del(keys*).asScala.map(_.toLong))
+
+  def unlink(keys: List[K]): Future[Long] = queue(_.unlink(keys*).asScala.map(_.toLong))
+
+  def publish(key: K, value: V): Future[Long] = queue(_.publish(key, value).asScala.map(_.toLong))
+
+  private def queue[T](send: RedisAsyncCommands[K, V] => Future[T]): Future[T] =
+    synchronized {
+      if (sent) throw new IllegalStateException("Commands can not be queued in a batch which was already sent")
+      val command = new Queued(send)
+      queued += command
+      command.promise.future
+    }
+
+  // writes all queued commands to the connection, without flushing it
+  private[async] def send(commands: RedisAsyncCommands[K, V]): Unit =
+    synchronized {
+      sent = true
+      queued.foreach(_.sendTo(commands))
+    }
+
+  private[async] def isEmpty: Boolean = synchronized(queued.isEmpty)
+
+  // completes the future of every command with its reply, once all replies are received
+  private[async] def completed(): Future[Done] = {
+    queued.foreach(_.complete())
+    Future.traverse(queued.toList)(_.promise.future.transform(Success(_))).map(_ => Done)
+  }
+
+  // completes the future of every command with the failure, e.g. as the transaction they were queued in was aborted
+  private[async] def failed(ex: Throwable): Unit = queued.foreach(_.fail(ex))
+
+  // fails every queued command without sending it, e.g. as the transaction they were queued in could not be built
+  private[async] def discard(ex: Throwable): Unit =
+    synchronized {
+      sent = true
+      failed(ex)
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.async
+
+import io.lettuce.core.{KeyValue, TransactionResult}
+import io.lettuce.core.api.async.RedisAsyncCommands
+import romaine.RedisResult
+import romaine.exceptions.RedisTransactionAborted
+
+import scala.concurrent.{ExecutionContext, Future}
+import scala.jdk.CollectionConverters.*
+import scala.jdk.FutureConverters.*
+import scala.jdk.OptionConverters.*
+import scala.util.Failure
+import scala.util.control.NonFatal
+
+/**
+ * Runs commands atomically with MULTI/EXEC, optionally guarded by WATCH for optimistic updates.
+ *
+ * The state of a transaction belongs to the connection, hence the connection of this api must not be shared, and transactions
+ * run one after the other on it. Each transaction costs a single round trip, and a watched one an additional round trip to
+ * read the watched keys.
+ *
+ * @param redisAsyncCommands a connection used by this api only
+ */
+class RedisTransactionApi[K, V](redisAsyncCommands: Future[RedisAsyncCommands[K, V]])(implicit ec: ExecutionContext) {
+  import RedisAsyncApi.pipelined
+  import RedisTransactionApi._
+
+  private var previous: Future[Any] = Future.unit
+
+  /**
+   * Applies the commands which `build` queues in a [[romaine.async.RedisBatch]] atomically, i.e. no other client sees only
+   * some of them applied. The futures of the queued commands complete once redis replied to EXEC.
+   *
+   * If `build` throws or returns a failed future, no command is sent and the futures of the queued commands fail with the
+   * same error. A result which fails only once the replies are received does not prevent the commands from being applied.
+   *
+   * @param build queues the commands, and combines the futures of their replies into the result
+   * @return the result of `build`
+   */
+  def multi[T](build: RedisBatch[K, V] => Future[T]): Future[T] =
+    exclusively { commands =>
+      val batch  = new RedisBatch[K, V]
+      val result = built(build(batch))
+      failure(result) match {
+        case Some(ex) =>
+          batch.discard(ex)
+          result
+        case None => exec(commands, batch, Nil, 1).flatMap(_ => result)
+      }
+    }
+
+  /**
+   * Reads the given keys and applies the commands which `update` queues based on their values atomically, as long as none
+   * of the keys was changed by another client in between. Otherwise, the keys are read and `update` is called again, for at
+   * most `maxAttempts` times. The futures of the commands queued by an attempt which was aborted fail with
+   * [[romaine.exceptions.RedisTransactionAborted]].
+   *
+   * If `update` throws or returns a failed future, the keys are unwatched without sending any command, as for
+   * [[multi]].
+   *
+   * @param keys the keys whose values `update` depends on
+   * @param maxAttempts how often the transaction is attempted before it fails with
+   *                    [[romaine.exceptions.RedisTransactionAborted]]
+   * @param update queues the commands given the current values of the keys, and combines the futures of their replies
+   *               into the result. It may be called more than once, hence it should not have side effects.
+   * @return the result of `update` of the attempt which was applied
+   */
+  def watched[T](keys: List[K], maxAttempts: Int = DefaultMaxAttempts)(
+      update: (List[RedisResult[K, Option[V]]], RedisBatch[K, V]) => Future[T]
+  ): Future[T] =
+    exclusively { commands =>
+      def attempt(attempts: Int): Future[T] = {
+        val batch = new RedisBatch[K, V]
+        val attempted = for {
+          _      <- commands.watch(keys*).asScala
+          values <- commands.mget(keys*).asScala
+          result = built(update(results(values), batch))
+          committed <- failure(result) match {
+                         case Some(ex) =>
+                           batch.discard(ex)
+                           Future.failed(ex)
+                         case None => exec(commands, batch, keys, attempts + 1)
+                       }
+        } yield (committed, result)
+
+        attempted
+          .recoverWith { case NonFatal(ex) => commands.unwatch().asScala.transform(_ => Failure(ex)) }
+          .flatMap {
+            case (true, result)                           => result
+            case (false, _) if attempts + 1 < maxAttempts => attempt(attempts + 1)
+            case (false, _)                               => Future.failed(RedisTransactionAborted(keys, maxAttempts))
+          }
+      }
+
+      attempt(0)
+    }
+
+  def quit(): Future[String] = redisAsyncCommands.flatMap(_.quit().asScala)
+
+  // an empty transaction is not sent, and the commands of a transaction which was aborted fail
+  private def exec(commands: RedisAsyncCommands[K, V], batch: RedisBatch[K, V], keys: List[K], attempts: Int): Future[Boolean] =
+    if (batch.isEmpty) commands.unwatch().asScala.map(_ => true)
+    else {
+      val execReply = pipelined(commands) {
+        commands.multi()
+        batch.send(commands)
+        commands.exec()
+      }
+      execReply.asScala.flatMap { (result: TransactionResult) =>
+        if (result.wasDiscarded()) {
+          batch.failed(RedisTransactionAborted(keys, attempts))
+          Future.successful(false)
+        }
+        else batch.completed().map(_ => true)
+      }
+    }
+
+  private def built[T](build: => Future[T]): Future[T] =
+    try build
+    catch { case NonFatal(ex) => Future.failed(ex) }
+
+  // a transaction whose building failed is not sent, so that the commands queued before the failure are not applied
+  private def failure[T](result: Future[T]): Option[Throwable] = result.value.flatMap(_.failed.toOption)
+
+  private def results(values: java.util.List[KeyValue[K, V]]): List[RedisResult[K, Option[V]]] =
+    values.asScala.map(kv => RedisResult(kv.getKey, kv.optional().toScala)).toList
+
+  // the next transaction starts once the previous one completed, whether it succeeded or not
+  private def exclusively[T](transaction: RedisAsyncCommands[K, V] => Future[T]): Future[T] =
+    synchronized {
+      val result = previous.transformWith(_ => redisAsyncCommands.flatMap(transaction))
+      previous = result
+      result
+    }
+}
+
+object RedisTransactionApi {
+
+  /**
+   * How often a watched transaction is attempted by default, before it fails as its keys kept being changed
+   */
+  val DefaultMaxAttempts: Int = 5
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.codec
+
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+
+import io.netty.buffer.ByteBuf
+
+/**
+ * Caches the bytes of every value it encodes, and the value of every byte sequence it decodes, so that values which are
+ * seen again and again, e.g. the keys and channels of a subscription receiving thousands of events a second, are encoded and
+ * decoded only once. Encoding a cached value writes its bytes straight into the buffer of the connection, and decoding
+ * cached bytes is a lookup in place, which neither copies the bytes nor allocates.
+ *
+ * Meant for keys, whose set is bounded in practice. Both caches are cleared once they hold `maxEntries` values, so that a
+ * set of keys which keeps changing is cached again rather than growing without bounds.
+ *
+ * @param codec encodes and decodes values which are not cached, which must be immutable and compared by value
+ * @param maxEntries number of values each cache holds at most
+ */
+class InterningRomaineCodec[T](codec: RomaineCodec[T], maxEntries: Int) extends RomaineCodec[T] {
+
+  private val encoded = new ConcurrentHashMap[T, Array[Byte]]()
+
+  // buffers compare and hash by their remaining bytes, hence the buffer of the connection finds the copy cached for its bytes
+  private val decoded = new ConcurrentHashMap[ByteBuffer, T]()
+
+  // the bytes are shared by every caller, hence read only
+  override def toBytes(value: T): ByteBuffer               = ByteBuffer.wrap(bytesOf(value)).asReadOnlyBuffer()
+  override def writeBytes(value: T, target: ByteBuf): Unit = target.writeBytes(bytesOf(value))
+
+  override def fromBytes(byteBuffer: ByteBuffer): T = {
+    val cached = decoded.get(byteBuffer)
+    if (cached != null) cached
+    else {
+      val bytes = copy(byteBuffer)
+      val value = codec.fromBytes(ByteBuffer.wrap(bytes))
+      cache(decoded, ByteBuffer.wrap(bytes), value)
+      value
+    }
+  }
+
+  private def bytesOf(value: T): Array[Byte] = {
+    val cached = encoded.get(value)
+    if (cached != null) cached
+    else {
+      val bytes = copy(codec.toBytes(value))
+      cache(encoded, value, bytes)
+      bytes
+    }
+  }
+
+  private def cache[K, V](cache: ConcurrentHashMap[K, V], key: K, value: V): Unit = {
+    if (cache.mappingCount() >= maxEntries) cache.clear()
+    cache.put(key, value)
+  }
+
+  private def copy(byteBuffer: ByteBuffer): Array[Byte] = {
+    val bytes = new Array[Byte](byteBuffer.remaining())
+    byteBuffer.duplicate().get(bytes)
+    bytes
+  }
+}
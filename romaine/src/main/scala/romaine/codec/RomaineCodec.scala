@@ -9,15 +9,23 @@ import java.nio.ByteBuffer
 
 import enumeratum.{Enum, EnumEntry}
 import io.lettuce.core.codec.StringCodec
+import io.netty.buffer.ByteBuf
 
 trait RomaineCodec[T] { outer =>
   def toBytes(value: T): ByteBuffer
   def fromBytes(byteBuffer: ByteBuffer): T
 
+  /**
+   * Writes bytes of the value into the (pooled) buffer of the connection. Codecs which can produce their bytes
+   * incrementally should override this, so that no intermediate ByteBuffer is allocated for every value written.
+   */
+  def writeBytes(value: T, target: ByteBuf): Unit = target.writeBytes(toBytes(value))
+
   def bimap[S](from: S => T, to: T => S): RomaineCodec[S] =
     new RomaineCodec[S] {
-      override def toBytes(value: S): ByteBuffer        = outer.toBytes(from(value))
-      override def fromBytes(byteBuffer: ByteBuffer): S = to(outer.fromBytes(byteBuffer))
+      override def toBytes(value: S): ByteBuffer                = outer.toBytes(from(value))
+      override def fromBytes(byteBuffer: ByteBuffer): S         = to(outer.fromBytes(byteBuffer))
+      override def writeBytes(value: S, target: ByteBuf): Unit = outer.writeBytes(from(value), target)
     }
 }
 
@@ -47,4 +55,15 @@ object RomaineCodec {
 
   implicit def enumRomainCodec[T <: EnumEntry: Enum]: RomaineCodec[T] =
     stringCodec.bimap[T](_.entryName, implicitly[Enum[T]].withNameInsensitive)
+
+  /**
+   * Number of keys an interning codec caches by default
+   */
+  val DefaultInternedEntries: Int = 16384
+
+  /**
+   * Wraps the codec of keys so that every key is encoded and decoded once, see [[romaine.codec.InterningRomaineCodec]]
+   */
+  def interning[T](codec: RomaineCodec[T], maxEntries: Int = DefaultInternedEntries): RomaineCodec[T] =
+    new InterningRomaineCodec(codec, maxEntries)
 }
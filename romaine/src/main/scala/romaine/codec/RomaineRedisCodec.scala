@@ -7,13 +7,27 @@ package romaine.codec
 
 import java.nio.ByteBuffer
 
-import io.lettuce.core.codec.RedisCodec
+import io.lettuce.core.codec.{RedisCodec, ToByteBufEncoder}
+import io.netty.buffer.ByteBuf
 import romaine.codec.RomaineCodec.{FromBytes, ToBytesAndString}
 
-class RomaineRedisCodec[K: RomaineCodec, V: RomaineCodec] extends RedisCodec[K, V] {
+/**
+ * Keys and values are decoded straight from the buffer of the connection. Being a [[io.lettuce.core.codec.ToByteBufEncoder]],
+ * keys and values are encoded into pooled buffers allocated by the connection, see [[romaine.codec.RomaineCodec#writeBytes]].
+ */
+class RomaineRedisCodec[K: RomaineCodec, V: RomaineCodec] extends RedisCodec[K, V] with ToByteBufEncoder[K, V] {
   override def decodeKey(bytes: ByteBuffer): K   = bytes.as[K]
   override def decodeValue(bytes: ByteBuffer): V = bytes.as[V]
 
   override def encodeKey(key: K): ByteBuffer     = key.asBytes
   override def encodeValue(value: V): ByteBuffer = value.asBytes
+
+  override def encodeKey(key: K, target: ByteBuf): Unit     = implicitly[RomaineCodec[K]].writeBytes(key, target)
+  override def encodeValue(value: V, target: ByteBuf): Unit = implicitly[RomaineCodec[V]].writeBytes(value, target)
+  override def estimateSize(keyOrValue: Any): Int           = RomaineRedisCodec.InitialBufferSize
+}
+
+object RomaineRedisCodec {
+  // only sizes the pooled buffer a key or value is initially encoded into, the buffer grows as needed
+  private val InitialBufferSize = 256
 }
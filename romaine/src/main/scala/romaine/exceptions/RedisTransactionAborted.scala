@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.exceptions
+
+case class RedisTransactionAborted(keys: List[Any], attempts: Int)
+    extends RuntimeException(s"Redis transaction was aborted $attempts times as watched keys [${keys.mkString(", ")}] kept changing")
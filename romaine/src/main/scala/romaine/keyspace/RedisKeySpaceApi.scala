@@ -17,6 +17,8 @@ import romaine.keyspace.RedisKeyspaceEvent.{Delete, Expired, Unknown}
 import romaine.reactive.{RedisSubscription, RedisSubscriptionApi}
 import romaine.{RedisResult, RedisValueChange}
 
+import scala.collection.immutable.ListMap
+import scala.concurrent.duration.FiniteDuration
 import scala.concurrent.{ExecutionContext, Future}
 
 class RedisKeySpaceApi[K: RomaineCodec, V: RomaineCodec](
@@ -36,23 +38,59 @@ class RedisKeySpaceApi[K: RomaineCodec, V: RomaineCodec](
 
         result.value match {
           case RedisKeyspaceEvent.Set =>
-            redisAsyncApi.get(key).map { x =>
-              if (x.isDefined) RedisResult(key, Updated(x.get))
-              else RedisResult(key, Error(s"Received Set keyspace event for [$key] but value is not present in store."))
-            }
-          case Expired | Delete => Future.successful(RedisResult(key, Removed))
-          case Unknown          => Future.successful(RedisResult(key, Error("Received unknown keyspace event.")))
+            redisAsyncApi.get(key).map(value => RedisResult(key, keyspaceEvent(key, RedisKeyspaceEvent.Set, value)))
+          case event => Future.successful(RedisResult(key, keyspaceEvent(key, event, None)))
         }
       }
 
+  /**
+   * Same as [[watchKeyspaceEvent]], except that the values of updated keys are not read one at a time. Notifications are
+   * collected for up to `window`, or until `maxKeys` notifications were received, and the values of all the keys which were
+   * updated in the meantime are read with a single MGET. Only the last change of a key within a window is emitted, hence a
+   * key which is updated again and again is read once per window, however often it changes.
+   */
+  def watchKeyspaceEventBatched(
+      keys: List[K],
+      overflowStrategy: OverflowStrategy,
+      window: FiniteDuration,
+      maxKeys: Int
+  ): Source[RedisResult[K, KeyspaceEvent[V]], RedisSubscription] =
+    redisSubscriptionApi
+      .psubscribe(keys.map(x => KeyspaceKey(keyspacePrefix, x.asString)), overflowStrategy)
+      .groupedWithin(maxKeys, window)
+      .mapAsync(1) { results =>
+        // keys are emitted in the order of their last change
+        val lastEvents = results.foldLeft(ListMap.empty[K, RedisKeyspaceEvent]) { (events, result) =>
+          val key = result.key.value.as[K]
+          events.removed(key).updated(key, result.value)
+        }
+        val updatedKeys = lastEvents.collect { case (key, RedisKeyspaceEvent.Set) => key }.toList
+        val valuesF =
+          if (updatedKeys.isEmpty) Future.successful(Map.empty[K, Option[V]])
+          else redisAsyncApi.mget(updatedKeys).map(_.map(result => result.key -> result.value).toMap)
+
+        valuesF.map { values =>
+          lastEvents.toList.map { case (key, event) => RedisResult(key, keyspaceEvent(key, event, values.get(key).flatten)) }
+        }
+      }
+      .mapConcat(identity)
+
   def watchKeyspaceValue(
       keys: List[K],
       overflowStrategy: OverflowStrategy
   ): Source[RedisResult[K, Option[V]], RedisSubscription] =
-    watchKeyspaceEvent(keys, overflowStrategy).collect {
-      case RedisResult(k, Updated(v)) => RedisResult[K, Option[V]](k, Some(v))
-      case RedisResult(k, Removed)    => RedisResult[K, Option[V]](k, None)
-    }.distinctUntilChanged
+    valuesOf(watchKeyspaceEvent(keys, overflowStrategy))
+
+  /**
+   * Same as [[watchKeyspaceValue]], with values read in batches as per [[watchKeyspaceEventBatched]]
+   */
+  def watchKeyspaceValueBatched(
+      keys: List[K],
+      overflowStrategy: OverflowStrategy,
+      window: FiniteDuration,
+      maxKeys: Int
+  ): Source[RedisResult[K, Option[V]], RedisSubscription] =
+    valuesOf(watchKeyspaceEventBatched(keys, overflowStrategy, window, maxKeys))
 
   def watchKeyspaceValueChange(
       keys: List[K],
@@ -101,4 +139,23 @@ class RedisKeySpaceApi[K: RomaineCodec, V: RomaineCodec](
         }
       )
   }
+
+  private def valuesOf(
+      events: Source[RedisResult[K, KeyspaceEvent[V]], RedisSubscription]
+  ): Source[RedisResult[K, Option[V]], RedisSubscription] =
+    events.collect {
+      case RedisResult(k, Updated(v)) => RedisResult[K, Option[V]](k, Some(v))
+      case RedisResult(k, Removed)    => RedisResult[K, Option[V]](k, None)
+    }.distinctUntilChanged
+
+  private def keyspaceEvent(key: K, event: RedisKeyspaceEvent, value: Option[V]): KeyspaceEvent[V] =
+    event match {
+      case RedisKeyspaceEvent.Set =>
+        value match {
+          case Some(value) => Updated(value)
+          case None        => Error(s"Received Set keyspace event for [$key] but value is not present in store.")
+        }
+      case Expired | Delete => Removed
+      case Unknown          => Error("Received unknown keyspace event.")
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.keyspace
+
+import java.net.SocketAddress
+import java.nio.ByteBuffer
+
+import org.apache.pekko.Done
+import org.apache.pekko.stream.BoundedSourceQueue
+import org.apache.pekko.stream.scaladsl.{Keep, Source}
+import io.lettuce.core.api.StatefulRedisConnection
+import io.lettuce.core.api.push.PushListener
+import io.lettuce.core.{RedisChannelHandler, RedisClient, RedisConnectionStateAdapter, TrackingArgs}
+import romaine.RedisResult
+import romaine.codec.RomaineCodec
+import romaine.codec.RomaineCodec.{FromBytes, ToBytesAndString}
+import romaine.reactive.RedisSubscription
+
+import scala.concurrent.duration.FiniteDuration
+import scala.concurrent.{ExecutionContext, Future}
+import scala.jdk.CollectionConverters.*
+import scala.jdk.FutureConverters.*
+import scala.jdk.OptionConverters.*
+import scala.util.control.NonFatal
+
+/**
+ * Watches values of keys with client-side caching, i.e. CLIENT TRACKING of RESP3 in broadcast mode. Redis pushes the keys
+ * starting with a tracked prefix over the tracking connection as soon as they are modified, deleted, expire or are evicted,
+ * without keyspace notifications having to be enabled on the server. The values of the keys are then read with MGET, in
+ * batches as per [[romaine.keyspace.RedisKeySpaceApi#watchKeyspaceEventBatched]].
+ *
+ * Every watch makes a connection of its own, as tracking is a state of the connection, which is enabled again whenever the
+ * connection is made again. Changes made while the connection was lost are not pushed, hence the values of the watched keys
+ * given to the watch, and of all the keys pushed so far, are read again once it is back. Requires redis 6 or later, whose
+ * connections lettuce upgrades to RESP3.
+ *
+ * @param redisClient notifies when the connection of a watch is made again
+ * @param connect makes the connection of a watch
+ */
+class RedisKeyTrackingApi[K: RomaineCodec, V](redisClient: RedisClient, connect: () => Future[StatefulRedisConnection[K, V]])(
+    implicit ec: ExecutionContext
+) {
+  import RedisKeyTrackingApi._
+
+  /**
+   * Watches the values of the keys starting with any of the given prefixes
+   *
+   * @param prefixes keys, or prefixes of keys, to watch. Redis does not allow a prefix to be a prefix of another.
+   * @param window how long pushed keys are collected before their values are read
+   * @param maxKeys how many pushed keys are collected at most before their values are read, and how many keys a single MGET
+   *                reads at most
+   * @param bufferSize number of pushes held while the stream is busy, the watch fails once they overflow
+   * @param watchedKeys keys whose values are read again once the connection is made again, along with the keys pushed so far.
+   *                    Changes made to a key which was never pushed are otherwise missed while the connection was lost.
+   * @return values of the keys which changed, None for keys which were removed
+   */
+  def watchValues(
+      prefixes: List[K],
+      window: FiniteDuration,
+      maxKeys: Int,
+      bufferSize: Int = DefaultBufferSize,
+      watchedKeys: Set[K] = Set.empty[K]
+  ): Source[RedisResult[K, Option[V]], RedisSubscription] = {
+    val connectionF = connect()
+
+    Source
+      .queue[Invalidation[K]](bufferSize)
+      .groupedWithin(maxKeys, window)
+      .map(_.reduce(_ ++ _))
+      // invalidations keep being collected while values are read
+      .conflate(_ ++ _)
+      .statefulMap(() => watchedKeys)(
+        (knownKeys, invalidation) => {
+          val keys = if (invalidation.all) knownKeys ++ invalidation.keys else invalidation.keys
+          (knownKeys ++ invalidation.keys, keys.toList)
+        },
+        _ => None
+      )
+      .mapAsync(1)(keys => connectionF.flatMap(connection => read(connection, keys, maxKeys)))
+      .mapConcat(identity)
+      .watchTermination()(Keep.both)
+      .mapMaterializedValue { case (queue, terminated) => track(connectionF, prefixes, queue, terminated) }
+  }
+
+  private def track(
+      connectionF: Future[StatefulRedisConnection[K, V]],
+      prefixes: List[K],
+      queue: BoundedSourceQueue[Invalidation[K]],
+      terminated: Future[Done]
+  ): RedisSubscription = {
+    def offer(invalidation: Invalidation[K]): Unit =
+      if (!queue.offer(invalidation).isEnqueued)
+        queue.fail(new IllegalStateException(s"Pushed keys overflowed the buffer of the watch of [${prefixes.mkString(", ")}]"))
+
+    // a null list of keys stands for all keys, e.g. as the database was flushed
+    val pushListener: PushListener = message =>
+      if (message.getType == InvalidateMessage) {
+        val keys = Option(message.getContent((bytes: ByteBuffer) => bytes).get(1).asInstanceOf[java.util.List[ByteBuffer]])
+        offer(keys.fold(Invalidation.All[K])(keys => Invalidation(keys.asScala.map(_.as[K]).toSet)))
+      }
+
+    // reconnected connections lost their tracking, and pushes of the changes made in the meantime
+    val reconnectListener = new RedisConnectionStateAdapter {
+      override def onRedisConnected(connection: RedisChannelHandler[?, ?], socketAddress: SocketAddress): Unit =
+        connectionF.value.flatMap(_.toOption).filter(_ eq connection).foreach { connection =>
+          enable(connection, prefixes)
+          offer(Invalidation.All[K])
+        }
+    }
+
+    val trackingF = connectionF.flatMap { connection =>
+      connection.addListener(pushListener)
+      redisClient.addListener(reconnectListener)
+      enable(connection, prefixes)
+    }
+    trackingF.failed.foreach(queue.fail)
+
+    terminated.onComplete { _ =>
+      redisClient.removeListener(reconnectListener)
+      connectionF.foreach(_.closeAsync())
+    }
+
+    new RedisSubscription {
+      override def unsubscribe(): Future[Done] = {
+        queue.complete()
+        terminated.recover { case NonFatal(_) => Done }
+      }
+      override def ready(): Future[Done] = trackingF
+    }
+  }
+
+  private def enable(connection: StatefulRedisConnection[K, V], prefixes: List[K]): Future[Done] =
+    connection
+      .async()
+      .clientTracking(TrackingArgs.Builder.enabled().bcast().prefixes(prefixes.map(_.asString)*))
+      .asScala
+      .map(_ => Done)
+
+  private def read(
+      connection: StatefulRedisConnection[K, V],
+      keys: List[K],
+      maxKeys: Int
+  ): Future[List[RedisResult[K, Option[V]]]] =
+    Future
+      .traverse(keys.grouped(maxKeys).toList) { keys =>
+        connection.async().mget(keys*).asScala.map(_.asScala.map(kv => RedisResult(kv.getKey, kv.optional().toScala)).toList)
+      }
+      .map(_.flatten)
+}
+
+object RedisKeyTrackingApi {
+
+  /**
+   * Number of pushes held by default while a watch is busy
+   */
+  val DefaultBufferSize: Int = 1024
+
+  private val InvalidateMessage = "invalidate"
+
+  // keys whose values changed, or all keys watched and pushed so far
+  private case class Invalidation[K](keys: Set[K], all: Boolean = false) {
+    def ++(that: Invalidation[K]): Invalidation[K] = Invalidation(keys ++ that.keys, all || that.all)
+  }
+
+  private object Invalidation {
+    def All[K]: Invalidation[K] = Invalidation(Set.empty, all = true)
+  }
+}
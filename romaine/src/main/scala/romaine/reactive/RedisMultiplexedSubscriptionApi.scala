@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.reactive
+
+import org.apache.pekko.Done
+import org.apache.pekko.stream.scaladsl.{Flow, Keep, Source}
+import org.apache.pekko.stream.{Attributes, BoundedSourceQueue, QueueOfferResult}
+import io.lettuce.core.pubsub.api.reactive.RedisPubSubReactiveCommands
+import romaine.RedisResult
+
+import cps.compat.FutureAsync.*
+import scala.collection.mutable
+import scala.concurrent.{ExecutionContext, Future}
+import scala.util.{Failure, Success}
+import scala.jdk.FutureConverters.*
+
+/**
+ * Multiplexes any number of subscriptions over a single pub/sub connection.
+ *
+ * Messages received on the connection are fanned out to all subscriptions registered for their channel (or pattern).
+ * Registrations are ref-counted per channel (or pattern), hence SUBSCRIBE is sent only for the first subscription to a channel
+ * and UNSUBSCRIBE only when the last subscription to it goes away.
+ *
+ * The connection can be replaced with [[reconnect]], e.g. when the Redis master changed, without interrupting subscriptions.
+ *
+ * @param connect makes the pub/sub connection shared by all subscriptions
+ * @param bufferSize number of messages buffered for each subscription. Oldest messages are dropped when a subscription
+ *                   falls behind.
+ * @param conflate when true, a subscription which falls behind is delivered only the latest message of each channel
+ *                 received in the meantime, instead of buffered messages
+ * @param onDropped called with every message dropped for a subscription which falls behind
+ */
+class RedisMultiplexedSubscriptionApi[K, V](
+    connect: () => Future[RedisPubSubReactiveCommands[K, V]],
+    bufferSize: Int,
+    conflate: Boolean,
+    onDropped: RedisResult[K, V] => Unit = (_: RedisResult[K, V]) => ()
+)(implicit ec: ExecutionContext) {
+
+  private val channels: FanOut =
+    new FanOut((c, keys) => c.subscribe(keys*).toFuture.asScala, (c, keys) => c.unsubscribe(keys*).toFuture.asScala)
+
+  private val patterns: FanOut =
+    new FanOut((c, keys) => c.psubscribe(keys*).toFuture.asScala, (c, keys) => c.punsubscribe(keys*).toFuture.asScala)
+
+  @volatile private var connectedF: Future[RedisPubSubReactiveCommands[K, V]] = observe(connect())
+
+  /**
+   * A failed connection is never retried by this instance, hence the owner can use this to replace it with a new one
+   */
+  def connectionFailed: Boolean = connectedF.value.exists(_.isFailure)
+
+  /**
+   * Makes a new connection, on which all channels and patterns of current subscriptions are subscribed again before the
+   * previous connection is closed. Messages received on both connections in between may hence be delivered twice.
+   */
+  def reconnect(): Future[Done] = {
+    val previousF = synchronized {
+      val previous = connectedF
+      connectedF = observe(connect())
+      previous
+    }
+    async {
+      await(channels.resubscribe())
+      await(patterns.resubscribe())
+      await(previousF.transformWith {
+        case Success(previous) => previous.getStatefulConnection.closeAsync().asScala.map(_ => Done)
+        case Failure(_)        => Future.successful(Done)
+      })
+      Done
+    }
+  }
+
+  /**
+   * Completes all subscriptions and closes the connection. Subscriptions made afterwards are not served anymore.
+   */
+  def close(): Future[Done] = {
+    val previousF = synchronized {
+      val previous = connectedF
+      connectedF = Future.failed(new IllegalStateException("Subscription api was closed"))
+      previous
+    }
+    channels.clear()
+    patterns.clear()
+    previousF.transformWith {
+      case Success(current) => current.getStatefulConnection.closeAsync().asScala.map(_ => Done)
+      case Failure(_)       => Future.successful(Done)
+    }
+  }
+
+  // messages are observed once for the connection, before any SUBSCRIBE is sent on it
+  private def observe(reactiveApiF: Future[RedisPubSubReactiveCommands[K, V]]): Future[RedisPubSubReactiveCommands[K, V]] =
+    reactiveApiF.map { commands =>
+      commands.observeChannels().subscribe(msg => channels.dispatch(msg.getChannel, RedisResult(msg.getChannel, msg.getMessage)))
+      commands.observePatterns().subscribe(msg => patterns.dispatch(msg.getPattern, RedisResult(msg.getChannel, msg.getMessage)))
+      commands
+    }
+
+  def subscribe(keys: List[K]): Source[RedisResult[K, V], RedisSubscription] = subscribeInternal(keys, channels)
+
+  def psubscribe(keys: List[K]): Source[RedisResult[K, V], RedisSubscription] = subscribeInternal(keys, patterns)
+
+  private def subscribeInternal(keys: List[K], fanOut: FanOut): Source[RedisResult[K, V], RedisSubscription] =
+    bufferedQueue
+      .watchTermination()(Keep.both)
+      .mapMaterializedValue { case (queue, terminationSignal) =>
+        val subscribedF = fanOut.add(keys, queue)
+        subscribedF.failed.foreach(queue.fail)
+        terminationSignal.onComplete(_ => fanOut.remove(keys, queue)) // unsubscribe on stream termination
+
+        new RedisSubscription {
+          // the subscription completes even when its UNSUBSCRIBE fails, whose failure is reported once it completed
+          override def unsubscribe(): Future[Done] =
+            async {
+              val unsubscribedF = fanOut.remove(keys, queue)
+              queue.complete()
+              await(terminationSignal) // await on terminationSignal when unsubscribe is called by user
+              await(unsubscribedF)
+            }
+
+          override def ready(): Future[Done] = subscribedF
+        }
+      }
+
+  // messages are queued and buffered (or conflated) in a separate island, so that a slow subscriber never holds up the queue
+  private def bufferedQueue: Source[RedisResult[K, V], BoundedSourceQueue[RedisResult[K, V]]] = {
+    val queue = Source.queue[RedisResult[K, V]](bufferSize)
+    if (conflate)
+      queue
+        .conflateWithSeed(result => mutable.LinkedHashMap(result.key -> result)) { (latest, result) =>
+          latest.update(result.key, result)
+          latest
+        }
+        .async
+        .via(Flow[mutable.LinkedHashMap[K, RedisResult[K, V]]].mapConcat(_.values).withAttributes(Attributes.inputBuffer(1, 1)))
+    else
+      // same as buffer(bufferSize, OverflowStrategy.dropHead), except that dropped messages are seen by onDropped
+      queue
+        .conflateWithSeed(result => mutable.Queue(result)) { (buffered, result) =>
+          if (buffered.size >= bufferSize) onDropped(buffered.dequeue())
+          buffered.enqueue(result)
+        }
+        .async
+        .via(Flow[mutable.Queue[RedisResult[K, V]]].mapConcat(identity).withAttributes(Attributes.inputBuffer(1, 1)))
+  }
+
+  private type Subscribers = Map[K, Set[BoundedSourceQueue[RedisResult[K, V]]]]
+
+  private class FanOut(
+      subscribeCommand: (RedisPubSubReactiveCommands[K, V], Seq[K]) => Future[Void],
+      unsubscribeCommand: (RedisPubSubReactiveCommands[K, V], Seq[K]) => Future[Void]
+  ) {
+    @volatile private var subscribers: Subscribers = Map.empty
+    // the SUBSCRIBE of every key which has subscribers, whose outcome is shared by all subscriptions to the key
+    private var subscribed: Map[K, Future[Done]] = Map.empty
+    // commands are chained so that SUBSCRIBE and UNSUBSCRIBE for the same key reach redis in the order they were decided
+    private var lastCommand: Future[Done] = Future.successful(Done)
+
+    // a message is dropped by the queue of a subscription whose buffer is still full while it is handed over to the buffer
+    def dispatch(key: K, result: RedisResult[K, V]): Unit =
+      subscribers.get(key).foreach(_.foreach(queue => if (queue.offer(result) == QueueOfferResult.Dropped) onDropped(result)))
+
+    def add(keys: List[K], queue: BoundedSourceQueue[RedisResult[K, V]]): Future[Done] =
+      synchronized {
+        val newKeys = keys.filterNot(subscribers.contains)
+        subscribers = keys.foldLeft(subscribers)((acc, key) => acc.updated(key, acc.getOrElse(key, Set.empty) + queue))
+        val sent = run(newKeys, subscribeCommand)
+        subscribed ++= newKeys.map(_ -> sent)
+        // an already subscribed key might still be waiting for the reply of its SUBSCRIBE, or its SUBSCRIBE failed
+        Future.sequence(sent :: keys.map(subscribed)).map(_ => Done)
+      }
+
+    def remove(keys: List[K], queue: BoundedSourceQueue[RedisResult[K, V]]): Future[Done] =
+      synchronized {
+        val registeredKeys = keys.filter(key => subscribers.get(key).exists(_.contains(queue)))
+        subscribers = registeredKeys.foldLeft(subscribers) { (acc, key) =>
+          val remaining = acc(key) - queue
+          if (remaining.isEmpty) acc - key else acc.updated(key, remaining)
+        }
+        val unsubscribedKeys = registeredKeys.filterNot(subscribers.contains)
+        subscribed --= unsubscribedKeys
+        run(unsubscribedKeys, unsubscribeCommand)
+      }
+
+    // SUBSCRIBE for all keys which have subscribers, on the current connection
+    def resubscribe(): Future[Done] =
+      synchronized {
+        val keys = subscribers.keys.toList
+        val sent = run(keys, subscribeCommand)
+        subscribed ++= keys.map(_ -> sent)
+        sent
+      }
+
+    // subscriptions complete once the messages they buffered were delivered
+    def clear(): Unit = {
+      val queues = synchronized {
+        val queues = subscribers.values.flatten.toSet
+        subscribers = Map.empty
+        subscribed = Map.empty
+        queues
+      }
+      queues.foreach(_.complete())
+    }
+
+    private def run(keys: List[K], command: (RedisPubSubReactiveCommands[K, V], Seq[K]) => Future[Void]): Future[Done] = {
+      if (keys.isEmpty) lastCommand.transformWith(_ => connectedF.map(_ => Done))
+      else {
+        lastCommand = lastCommand.transformWith(_ => connectedF.flatMap(command(_, keys)).map(_ => Done))
+        lastCommand
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine
+
+import io.lettuce.core.RedisURI
+import io.lettuce.core.api.StatefulRedisConnection
+import org.scalatest.concurrent.Eventually
+import romaine.codec.{RomaineCodec, RomaineRedisCodec}
+
+import scala.concurrent.Future
+import scala.jdk.FutureConverters.*
+
+class RedisConnectionRegistryTest extends RomaineTestSetup with Eventually {
+
+  private given intCodec: RomaineCodec[Int] = RomaineCodec.stringCodec.bimap[Int](_.toString, _.toInt)
+
+  private def connect[K: RomaineCodec, V: RomaineCodec](redisURI: RedisURI): Future[StatefulRedisConnection[K, V]] =
+    redisClient.connectAsync(new RomaineRedisCodec[K, V], redisURI).asScala
+
+  test("should issue the commands of the same codecs over the same connection, and of other codecs over another one") {
+    val registry                 = new RedisConnectionRegistry
+    val (stringsF, stringsUse)   = registry.commands[String, String](redisURI, connect[String, String])
+    val (othersF, othersUse)     = registry.commands[String, String](redisURI, connect[String, String])
+    val (countersF, countersUse) = registry.commands[String, Int](redisURI, connect[String, Int])
+    val (strings, counters)      = (stringsF.await, countersF.await)
+
+    strings.getStatefulConnection should be theSameInstanceAs othersF.await.getStatefulConnection
+    strings.getStatefulConnection should not be theSameInstanceAs(counters.getStatefulConnection)
+
+    strings.set("registry-counter", "41").asScala.await shouldBe "OK"
+    counters.incr("registry-counter").asScala.await shouldBe 42L
+    counters.get("registry-counter").asScala.await shouldBe 42
+    strings.get("registry-counter").asScala.await shouldBe "42"
+
+    stringsUse.release(lost = false).await
+    othersUse.release(lost = false).await
+    countersUse.release(lost = false).await
+  }
+
+  test("should quit the connection once every use of it was released") {
+    val registry             = new RedisConnectionRegistry
+    val (firstF, firstUse)   = registry.commands[String, String](redisURI, connect[String, String])
+    val (secondF, secondUse) = registry.commands[String, String](redisURI, connect[String, String])
+    val connection           = firstF.await.getStatefulConnection
+
+    firstUse.release(lost = false).await
+    // a use is released only once
+    firstUse.release(lost = false).await
+    connection.isOpen shouldBe true
+    secondF.await.get("registry-missing").asScala.await shouldBe null
+
+    secondUse.release(lost = false).await
+    eventually(connection.isOpen shouldBe false)
+  }
+
+  test("should make a new connection for uses made after the connection was given up") {
+    val registry             = new RedisConnectionRegistry
+    val (firstF, firstUse)   = registry.commands[String, String](redisURI, connect[String, String])
+    val (secondF, secondUse) = registry.commands[String, String](redisURI, connect[String, String])
+    val lost                 = firstF.await.getStatefulConnection
+
+    firstUse.release(lost = true).await
+    val (thirdF, thirdUse) = registry.commands[String, String](redisURI, connect[String, String])
+    thirdF.await.getStatefulConnection should not be theSameInstanceAs(lost)
+
+    // the connection which was given up is still used until it is released
+    secondF.await.getStatefulConnection should be theSameInstanceAs lost
+    lost.isOpen shouldBe true
+    secondUse.release(lost = false).await
+    eventually(lost.isOpen shouldBe false)
+
+    thirdF.await.get("registry-missing").asScala.await shouldBe null
+    thirdUse.release(lost = false).await
+  }
+
+  test("should send batches of apis over a shared connection over a connection of their own") {
+    val batchApi = romaineFactory.redisAsyncApi[String, String](redisURI)
+    val otherApi = romaineFactory.redisAsyncApi[String, String](redisURI)
+
+    val batched = batchApi.batch { batch =>
+      val set = batch.set("registry-batched", "value")
+      val get = batch.get("registry-batched")
+      set.flatMap(_ => get)
+    }
+
+    batched.await shouldBe Some("value")
+    otherApi.get("registry-batched").await shouldBe Some("value")
+
+    // the connection of batches is quit together with the api, the shared one once the other api quits as well
+    batchApi.quit().await
+    otherApi.get("registry-batched").await shouldBe Some("value")
+    otherApi.quit().await
+  }
+}
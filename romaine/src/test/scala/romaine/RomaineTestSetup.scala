@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine
+
+import org.apache.pekko.actor.ActorSystem
+import csw.commons.redis.EmbeddedRedis
+import io.lettuce.core.{RedisClient, RedisURI}
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+import redis.embedded.RedisServer
+
+import scala.concurrent.duration.DurationInt
+import scala.concurrent.{Await, ExecutionContext, Future}
+
+abstract class RomaineTestSetup extends AnyFunSuite with Matchers with EmbeddedRedis with BeforeAndAfterAll {
+
+  val serverPort: Int                  = getFreePort
+  private val redisServer: RedisServer = startRedis(serverPort)
+
+  implicit val actorSystem: ActorSystem = ActorSystem("romaine")
+  implicit val ec: ExecutionContext     = actorSystem.dispatcher
+
+  val redisClient: RedisClient       = RedisClient.create()
+  val redisURI: Future[RedisURI]     = Future.successful(RedisURI.create("localhost", serverPort))
+  val romaineFactory: RomaineFactory = new RomaineFactory(redisClient)
+
+  extension [T](future: Future[T]) {
+    def await: T = Await.result(future, 5.seconds)
+  }
+
+  override protected def afterAll(): Unit = {
+    redisClient.shutdown()
+    stopRedis(redisServer)
+    actorSystem.terminate().await
+  }
+}
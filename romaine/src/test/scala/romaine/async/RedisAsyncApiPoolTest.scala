@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.async
+
+import romaine.RomaineTestSetup
+
+import scala.concurrent.duration.DurationInt
+
+class RedisAsyncApiPoolTest extends RomaineTestSetup {
+
+  test("lease should hold a connection until it is released, while others wait for it") {
+    val pool       = romaineFactory.redisAsyncApiPool[String, String](redisURI, maxConnections = 1)
+    val asyncApi   = romaineFactory.redisAsyncApi[String, String](redisURI)
+    val firstLease = pool.lease().await
+
+    // the connection is not given to the next lease while its blocked read is pending, nor between reads of the first lease
+    val blocked     = firstLease.api.xread(List("pool-stream" -> "$"), 1, 1.second)
+    val secondLease = pool.lease()
+    asyncApi.set("pool-key", "value").await
+    blocked.await shouldBe Nil
+    firstLease.api.get("pool-key").await shouldBe Some("value")
+    secondLease.isCompleted shouldBe false
+
+    firstLease.release().await
+    // a lease is released only once
+    firstLease.release().await
+    secondLease.await.api.get("pool-key").await shouldBe Some("value")
+
+    secondLease.await.release().await
+    pool.withApi(_.get("pool-key")).await shouldBe Some("value")
+
+    asyncApi.quit().await
+    pool.close().await
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.async
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.apache.pekko.Done
+import romaine.RomaineTestSetup
+import romaine.exceptions.RedisTransactionAborted
+
+import scala.concurrent.Future
+
+class RedisTransactionApiTest extends RomaineTestSetup {
+
+  private lazy val asyncApi       = romaineFactory.redisAsyncApi[String, String](redisURI)
+  private lazy val transactionApi = romaineFactory.redisTransactionApi[String, String](redisURI)
+
+  test("batch should send the queued commands in order and complete each with its own reply") {
+    val (first, second) = asyncApi.batch { batch =>
+      batch.set("batch-key", "1")
+      val first = batch.get("batch-key")
+      batch.set("batch-key", "2")
+      val second = batch.get("batch-key")
+      Future.successful((first, second))
+    }.await
+
+    first.await shouldBe Some("1")
+    second.await shouldBe Some("2")
+  }
+
+  test("multi should apply the queued commands and complete them once EXEC is replied") {
+    val (set, values) = transactionApi.multi { batch =>
+      val set    = batch.mset(Map("multi-key1" -> "1", "multi-key2" -> "2"))
+      val values = batch.mget(List("multi-key1", "multi-key2"))
+      Future.successful((set, values))
+    }.await
+
+    set.isCompleted shouldBe true
+    values.await.map(_.value) shouldBe List(Some("1"), Some("2"))
+    asyncApi.get("multi-key2").await shouldBe Some("2")
+  }
+
+  test("watched should retry once a watched key was changed by another client") {
+    asyncApi.set("counter", "0").await
+    val attempts = new AtomicInteger()
+    val sets     = List.newBuilder[Future[?]]
+
+    val result = transactionApi
+      .watched(List("counter")) { (values, batch) =>
+        // another client changes the key between it was read and EXEC, on the first attempt only
+        if (attempts.getAndIncrement() == 0) asyncApi.set("counter", "10").await
+        val next = values.head.value.fold(0)(_.toInt) + 1
+        sets += batch.set("counter", next.toString)
+        Future.successful(next)
+      }
+      .await
+
+    attempts.get shouldBe 2
+    result shouldBe 11
+    asyncApi.get("counter").await shouldBe Some("11")
+    sets.result().head.failed.await shouldBe RedisTransactionAborted(List("counter"), 1)
+  }
+
+  test("watched should fail once the watched keys kept changing for all attempts") {
+    val changes = new AtomicInteger()
+
+    val result = transactionApi.watched(List("contended"), maxAttempts = 2) { (_, batch) =>
+      asyncApi.set("contended", s"changed-${changes.incrementAndGet()}").await
+      batch.set("contended", "applied")
+      Future.unit
+    }
+
+    result.failed.await shouldBe RedisTransactionAborted(List("contended"), 2)
+    asyncApi.get("contended").await shouldBe Some("changed-2")
+  }
+
+  test("multi should not send any command once build failed") {
+    val failure           = new RuntimeException("failed to build")
+    var set: Future[Done] = Future.never
+
+    val result = transactionApi.multi { batch =>
+      set = batch.set("unapplied", "1")
+      throw failure
+    }
+
+    result.failed.await shouldBe failure
+    set.failed.await shouldBe failure
+    asyncApi.get("unapplied").await shouldBe None
+  }
+
+  test("watched should unwatch the keys without sending any command once update failed") {
+    val failure = new RuntimeException("failed to update")
+
+    val result = transactionApi.watched(List("unapplied-watched")) { (_, batch) =>
+      batch.set("unapplied-watched", "1")
+      Future.failed(failure)
+    }
+
+    result.failed.await shouldBe failure
+    asyncApi.get("unapplied-watched").await shouldBe None
+    // the connection is neither in a transaction nor watching keys anymore
+    transactionApi.multi(batch => batch.set("unapplied-watched", "2")).await
+    asyncApi.get("unapplied-watched").await shouldBe Some("2")
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.codec
+
+import java.nio.charset.StandardCharsets.UTF_8
+import java.nio.{ByteBuffer, ReadOnlyBufferException}
+
+import io.netty.buffer.Unpooled
+import org.scalatest.funsuite.AnyFunSuite
+import org.scalatest.matchers.should.Matchers
+
+class InterningRomaineCodecTest extends AnyFunSuite with Matchers {
+
+  // counts the values encoded and decoded by the codec it wraps
+  private class CountingCodec extends RomaineCodec[String] {
+    var encoded = 0
+    var decoded = 0
+
+    override def toBytes(value: String): ByteBuffer = {
+      encoded += 1
+      RomaineCodec.stringCodec.toBytes(value)
+    }
+    override def fromBytes(byteBuffer: ByteBuffer): String = {
+      decoded += 1
+      RomaineCodec.stringCodec.fromBytes(byteBuffer)
+    }
+  }
+
+  private def bytes(value: String): Array[Byte] = value.getBytes(UTF_8)
+
+  private def stringOf(byteBuffer: ByteBuffer): String = UTF_8.decode(byteBuffer.duplicate()).toString
+
+  test("should encode and decode a value which was seen before only once") {
+    val counting = new CountingCodec
+    val codec    = RomaineCodec.interning(counting)
+
+    stringOf(codec.toBytes("interned.key")) shouldBe "interned.key"
+    stringOf(codec.toBytes("interned.key")) shouldBe "interned.key"
+    counting.encoded shouldBe 1
+
+    val first = codec.fromBytes(ByteBuffer.wrap(bytes("interned.key")))
+    first shouldBe "interned.key"
+    codec.fromBytes(ByteBuffer.wrap(bytes("interned.key"))) should be theSameInstanceAs first
+    counting.decoded shouldBe 1
+
+    codec.toBytes("interned.other")
+    codec.fromBytes(ByteBuffer.wrap(bytes("interned.other"))) shouldBe "interned.other"
+    counting.encoded shouldBe 2
+    counting.decoded shouldBe 2
+  }
+
+  test("should write the cached bytes into the buffer of the connection") {
+    val codec  = RomaineCodec.interning(new CountingCodec)
+    val target = Unpooled.buffer()
+
+    codec.writeBytes("interned.key", target)
+    codec.writeBytes("interned.key", target)
+
+    target.toString(UTF_8) shouldBe "interned.keyinterned.key"
+  }
+
+  test("should clear its caches once they hold max entries") {
+    val counting = new CountingCodec
+    val codec    = RomaineCodec.interning(counting, maxEntries = 2)
+
+    List("first", "second", "first").foreach(codec.toBytes)
+    counting.encoded shouldBe 2
+
+    // the third value clears the cache before it is cached, hence the first is encoded again
+    List("third", "third", "first").foreach(codec.toBytes)
+    counting.encoded shouldBe 4
+
+    List("first", "second", "first").foreach(value => codec.fromBytes(ByteBuffer.wrap(bytes(value))))
+    counting.decoded shouldBe 2
+
+    List("third", "third", "first").foreach(value => codec.fromBytes(ByteBuffer.wrap(bytes(value))))
+    counting.decoded shouldBe 4
+  }
+
+  test("should find the value cached for the remaining bytes of direct and heap buffers, without consuming them") {
+    val counting = new CountingCodec
+    val codec    = RomaineCodec.interning(counting)
+
+    val heap  = ByteBuffer.wrap(bytes("interned.key"))
+    val value = codec.fromBytes(heap)
+    heap.remaining() shouldBe bytes("interned.key").length
+
+    // the buffers of a connection are direct, and hold more bytes than the ones of the key
+    val direct = ByteBuffer.allocateDirect(64)
+    direct.put(bytes("*3\r\ninterned.key\r\n"))
+    direct.flip()
+    direct.position(4).limit(16)
+
+    codec.fromBytes(direct) should be theSameInstanceAs value
+    direct.position() shouldBe 4
+    counting.decoded shouldBe 1
+
+    // the cached copy does not change with the buffer it was decoded from
+    heap.put(0, 'X'.toByte)
+    codec.fromBytes(ByteBuffer.wrap(bytes("interned.key"))) should be theSameInstanceAs value
+    counting.decoded shouldBe 1
+  }
+
+  test("should not let the cached bytes be written through the buffer of toBytes") {
+    val codec = RomaineCodec.interning(new CountingCodec)
+
+    val byteBuffer = codec.toBytes("interned.key")
+    byteBuffer.isReadOnly shouldBe true
+    a[ReadOnlyBufferException] shouldBe thrownBy(byteBuffer.put(0, 'X'.toByte))
+    a[ReadOnlyBufferException] shouldBe thrownBy(byteBuffer.array())
+
+    // a buffer which is consumed leaves the cached bytes as they were
+    byteBuffer.get(new Array[Byte](byteBuffer.remaining()))
+    stringOf(codec.toBytes("interned.key")) shouldBe "interned.key"
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.keyspace
+
+import org.apache.pekko.stream.scaladsl.{Keep, Sink}
+import io.lettuce.core.RedisURI
+import reactor.core.publisher.FluxSink.OverflowStrategy
+import romaine.keyspace.KeyspaceEvent.{Removed, Updated}
+import romaine.{RedisResult, RomaineTestSetup}
+
+import scala.concurrent.duration.DurationInt
+
+class RedisKeySpaceApiTest extends RomaineTestSetup {
+
+  private lazy val asyncApi = romaineFactory.redisAsyncApi[String, String](redisURI)
+  private lazy val keySpaceApi =
+    new RedisKeySpaceApi[String, String](romaineFactory.redisSubscriptionApi[KeyspaceKey, RedisKeyspaceEvent](redisURI), asyncApi)
+
+  override protected def beforeAll(): Unit =
+    redisClient.connect(RedisURI.create("localhost", serverPort)).sync().configSet("notify-keyspace-events", "K$gx")
+
+  test("watchKeyspaceEventBatched should emit the last change of every key of a window in the order of their last change") {
+    val (subscription, received) = keySpaceApi
+      .watchKeyspaceEventBatched(List("batched.*"), OverflowStrategy.LATEST, 500.millis, maxKeys = 16)
+      .take(3)
+      .toMat(Sink.seq)(Keep.both)
+      .run()
+    subscription.ready().await
+
+    asyncApi.set("batched.first", "1").await
+    asyncApi.set("batched.second", "1").await
+    asyncApi.set("batched.removed", "1").await
+    asyncApi.set("batched.first", "2").await
+    asyncApi.del(List("batched.removed")).await
+
+    received.await shouldBe List(
+      RedisResult("batched.second", Updated("1")),
+      RedisResult("batched.first", Updated("2")),
+      RedisResult("batched.removed", Removed)
+    )
+  }
+
+  test("watchKeyspaceEventBatched should read the values once max keys were notified, without waiting for the window") {
+    val (subscription, received) = keySpaceApi
+      .watchKeyspaceEventBatched(List("counted.*"), OverflowStrategy.LATEST, 1.minute, maxKeys = 2)
+      .take(2)
+      .toMat(Sink.seq)(Keep.both)
+      .run()
+    subscription.ready().await
+
+    asyncApi.set("counted.first", "1").await
+    asyncApi.set("counted.second", "2").await
+
+    received.await shouldBe List(RedisResult("counted.first", Updated("1")), RedisResult("counted.second", Updated("2")))
+  }
+
+  test("watchKeyspaceValueBatched should emit the values of updated keys and None for removed keys") {
+    val (subscription, received) = keySpaceApi
+      .watchKeyspaceValueBatched(List("valued.*"), OverflowStrategy.LATEST, 10.millis, maxKeys = 16)
+      .take(2)
+      .toMat(Sink.seq)(Keep.both)
+      .run()
+    subscription.ready().await
+
+    asyncApi.set("valued.key", "1").await
+    Thread.sleep(100) // the removal falls into a window of its own
+    asyncApi.del(List("valued.key")).await
+
+    received.await shouldBe List(RedisResult("valued.key", Some("1")), RedisResult("valued.key", None))
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.keyspace
+
+import java.util.concurrent.ConcurrentLinkedQueue
+
+import org.apache.pekko.stream.scaladsl.{Keep, Sink}
+import io.lettuce.core.{KillArgs, RedisURI}
+import io.lettuce.core.api.sync.RedisCommands
+import org.scalatest.concurrent.Eventually
+import romaine.{RedisResult, RomaineTestSetup}
+
+import scala.concurrent.Promise
+import scala.concurrent.duration.DurationInt
+import scala.jdk.CollectionConverters.*
+
+class RedisKeyTrackingApiTest extends RomaineTestSetup with Eventually {
+
+  implicit val patience: PatienceConfig = PatienceConfig(5.seconds, 10.millis)
+
+  private lazy val asyncApi    = romaineFactory.redisAsyncApi[String, String](redisURI)
+  private lazy val trackingApi = romaineFactory.redisKeyTrackingApi[String, String](redisURI)
+
+  // commands which romaine does not offer, over a connection of the test
+  private lazy val admin: RedisCommands[String, String] = redisClient.connect(RedisURI.create("localhost", serverPort)).sync()
+
+  private def watched(prefix: String, watchedKeys: Set[String] = Set.empty) = {
+    val received     = new ConcurrentLinkedQueue[RedisResult[String, Option[String]]]()
+    val subscription = trackingApi
+      .watchValues(List(prefix), 10.millis, maxKeys = 16, watchedKeys = watchedKeys)
+      .to(Sink.foreach(received.add))
+      .run()
+    subscription.ready().await
+    (subscription, received)
+  }
+
+  // the tracking connection is the only one flagged with `t`
+  private def killTrackingConnections(): Unit = {
+    val trackingIds = admin.clientList().linesIterator.filter(_.matches(""".* flags=\w*t\w* .*""")).map { line =>
+      line.split(' ').collectFirst { case s"id=$id" => id.toLong }.get
+    }
+    trackingIds.foreach(id => admin.clientKill(KillArgs.Builder.id(id)))
+  }
+
+  private def latest(received: ConcurrentLinkedQueue[RedisResult[String, Option[String]]]): Map[String, Option[String]] =
+    received.asScala.foldLeft(Map.empty[String, Option[String]])((values, result) => values + (result.key -> result.value))
+
+  test("should read the values of the keys which were changed or deleted") {
+    val (subscription, received) = watched("tracked.values.")
+
+    asyncApi.set("tracked.values.first", "1").await
+    asyncApi.mset(Map("tracked.values.second" -> "2", "tracked.values.first" -> "3")).await
+    asyncApi.set("untracked.values.first", "4").await
+    eventually(latest(received) shouldBe Map("tracked.values.first" -> Some("3"), "tracked.values.second" -> Some("2")))
+
+    asyncApi.del(List("tracked.values.second")).await
+    eventually(latest(received).get("tracked.values.second") shouldBe Some(None))
+    received.asScala.map(_.key).toSet shouldBe Set("tracked.values.first", "tracked.values.second")
+
+    subscription.unsubscribe().await
+  }
+
+  test("should read the values of all the keys pushed so far once all keys were invalidated") {
+    val (subscription, received) = watched("tracked.flushed.")
+
+    asyncApi.mset(Map("tracked.flushed.first" -> "1", "tracked.flushed.second" -> "2")).await
+    eventually(latest(received) shouldBe Map("tracked.flushed.first" -> Some("1"), "tracked.flushed.second" -> Some("2")))
+
+    // redis pushes a null list of keys once the database is flushed
+    admin.flushall()
+    eventually(latest(received) shouldBe Map("tracked.flushed.first" -> None, "tracked.flushed.second" -> None))
+
+    subscription.unsubscribe().await
+  }
+
+  test("should track the keys again once the connection of the watch is made again") {
+    val (subscription, received) = watched("tracked.reconnected.")
+
+    asyncApi.set("tracked.reconnected.key", "1").await
+    eventually(latest(received) shouldBe Map("tracked.reconnected.key" -> Some("1")))
+
+    killTrackingConnections()
+
+    // the change made while the connection was lost is read once it is back
+    asyncApi.set("tracked.reconnected.key", "2").await
+    eventually(latest(received) shouldBe Map("tracked.reconnected.key" -> Some("2")))
+
+    eventually {
+      asyncApi.set("tracked.reconnected.key", "3").await
+      latest(received) shouldBe Map("tracked.reconnected.key" -> Some("3"))
+    }
+
+    subscription.unsubscribe().await
+  }
+
+  test("should read the values of the watched keys which were never pushed once the connection of the watch is made again") {
+    val (subscription, received) = watched("tracked.never.", watchedKeys = Set("tracked.never.first", "tracked.never.second"))
+
+    asyncApi.set("tracked.never.first", "1").await
+    eventually(latest(received) shouldBe Map("tracked.never.first" -> Some("1")))
+
+    killTrackingConnections()
+
+    // the second key was never pushed before the connection was lost
+    asyncApi.set("tracked.never.second", "2").await
+    eventually(latest(received) shouldBe Map("tracked.never.first" -> Some("1"), "tracked.never.second" -> Some("2")))
+
+    subscription.unsubscribe().await
+  }
+
+  test("should fail the watch once the pushed keys overflow its buffer") {
+    val busy                 = Promise[Unit]()
+    val (subscription, done) = trackingApi
+      .watchValues(List("tracked.overflowed."), 1.millis, maxKeys = 1, bufferSize = 1)
+      .toMat(Sink.foreach { _ =>
+        // the stream does not take pushes while its sink is busy
+        busy.trySuccess(())
+        Thread.sleep(1000)
+      })(Keep.both)
+      .run()
+    subscription.ready().await
+
+    asyncApi.set("tracked.overflowed.busy", "1").await
+    busy.future.await
+    (1 to 3).foreach(n => asyncApi.set(s"tracked.overflowed.$n", n.toString).await)
+
+    val failure = done.failed.await
+    failure shouldBe an[IllegalStateException]
+    failure.getMessage should include("tracked.overflowed.")
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 Thirty Meter Telescope International Observatory
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package romaine.reactive
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.apache.pekko.Done
+import org.apache.pekko.stream.scaladsl.{Keep, Sink}
+import io.lettuce.core.pubsub.api.reactive.RedisPubSubReactiveCommands
+import romaine.RomaineTestSetup
+import romaine.codec.RomaineRedisCodec
+
+import scala.concurrent.Future
+import scala.jdk.FutureConverters.*
+
+class RedisMultiplexedSubscriptionApiTest extends RomaineTestSetup {
+
+  private def connect(): Future[RedisPubSubReactiveCommands[String, String]] =
+    redisURI.flatMap(uri => redisClient.connectPubSubAsync(new RomaineRedisCodec[String, String], uri).asScala.map(_.reactive()))
+
+  test("should deliver messages of a channel to every subscription of it") {
+    val subscriptionApi = new RedisMultiplexedSubscriptionApi[String, String](() => connect(), 16, conflate = false)
+    val publisher       = romaineFactory.redisAsyncApi[String, String](redisURI)
+
+    val (first, firstReceived)   = subscriptionApi.subscribe(List("multiplexed")).take(1).toMat(Sink.seq)(Keep.both).run()
+    val (second, secondReceived) = subscriptionApi.subscribe(List("multiplexed")).take(1).toMat(Sink.seq)(Keep.both).run()
+    first.ready().await
+    second.ready().await
+
+    publisher.publish("multiplexed", "message").await shouldBe 1L
+    firstReceived.await.map(_.value) shouldBe Seq("message")
+    secondReceived.await.map(_.value) shouldBe Seq("message")
+
+    subscriptionApi.close().await
+    publisher.quit().await
+  }
+
+  test("should fail every subscription of a channel whose SUBSCRIBE failed") {
+    // the connection is made, but closed before anything is subscribed on it
+    val closedConnection = () =>
+      connect().map { commands =>
+        commands.getStatefulConnection.close()
+        commands
+      }
+    val subscriptionApi = new RedisMultiplexedSubscriptionApi[String, String](closedConnection, 16, conflate = false)
+
+    // the second subscription is made while the SUBSCRIBE of the first one is in flight
+    val first  = subscriptionApi.subscribe(List("multiplexed-failed")).to(Sink.ignore).run()
+    val second = subscriptionApi.subscribe(List("multiplexed-failed")).to(Sink.ignore).run()
+
+    first.ready().failed.await shouldBe a[Throwable]
+    second.ready().failed.await shouldBe a[Throwable]
+  }
+
+  test("should complete all subscriptions once closed") {
+    val subscriptionApi = new RedisMultiplexedSubscriptionApi[String, String](() => connect(), 16, conflate = false)
+
+    val (channel, channelDone) = subscriptionApi.subscribe(List("multiplexed-closed")).toMat(Sink.ignore)(Keep.both).run()
+    val (pattern, patternDone) = subscriptionApi.psubscribe(List("multiplexed-*")).toMat(Sink.ignore)(Keep.both).run()
+    channel.ready().await
+    pattern.ready().await
+
+    subscriptionApi.close().await shouldBe Done
+    channelDone.await shouldBe Done
+    patternDone.await shouldBe Done
+    subscriptionApi.connectionFailed shouldBe true
+  }
+
+  test("should complete a subscription whose UNSUBSCRIBE failed, before its failure is reported") {
+    // only the first connection is made, hence the connection is failed after a reconnect
+    val connections = new AtomicInteger()
+    val firstConnection = () =>
+      if (connections.getAndIncrement() == 0) connect() else Future.failed(new RuntimeException("Connection refused"))
+    val subscriptionApi = new RedisMultiplexedSubscriptionApi[String, String](firstConnection, 16, conflate = false)
+
+    val (subscription, subscriptionDone) =
+      subscriptionApi.subscribe(List("multiplexed-unsubscribe")).toMat(Sink.ignore)(Keep.both).run()
+    subscription.ready().await
+    subscriptionApi.reconnect().failed.await shouldBe a[RuntimeException]
+
+    subscription.unsubscribe().failed.await shouldBe a[RuntimeException]
+    subscriptionDone.await shouldBe Done
+  }
+}